@@ -0,0 +1,129 @@
+package com.example.irc;
+
+import com.example.irc.Connection.NullConnection;
+import com.example.irc.Connection.Server.ConnectionListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Channel lines per second as channel shards are added, on a workload spread over many channels. Each
+ * benchmark thread drives its own set of channels on a shared in-memory server and, per invocation,
+ * sends one line to each of them and waits until every member has it, so the score counts delivered
+ * fan-out rather than enqueues. Flood control and search indexing are off.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ChannelShard"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ChannelShardBenchmark {
+    private static final int CHANNELS_PER_THREAD = 12;
+
+    @Param({"1", "2", "4", "8"})
+    private int shards;
+
+    @Param({"4"})
+    private int members;
+
+    private IRCServer server;
+    private final AtomicInteger nextThread = new AtomicInteger();
+    private final String suffix = Long.toString(System.nanoTime(), 36);
+
+    @Setup
+    public void setUp() {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setFloodControlEnabled(false);
+        config.setSearchEnabled(false);
+        config.setPingIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        config.setChannelShards(shards);
+        server = IrcTestSupport.startServer(config);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stopServer();
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+        private final AtomicLong delivered = new AtomicLong();
+        private ConnectionListener driver;
+        private String[] lines;
+        private long framesPerRound;
+
+        @Setup(Level.Trial)
+        public void setUp(ChannelShardBenchmark benchmark) throws InterruptedException {
+            int thread = benchmark.nextThread.getAndIncrement();
+            String prefix = "t" + thread + "-" + benchmark.suffix;
+            lines = new String[CHANNELS_PER_THREAD];
+            NullConnection driverConnection = new NullConnection(delivered);
+            driver = register(benchmark.server, driverConnection, "d" + prefix);
+            for (int c = 0; c < CHANNELS_PER_THREAD; c++) {
+                String channel = "#shard" + thread + "-" + c;
+                for (int m = 0; m < benchmark.members; m++) {
+                    NullConnection connection = new NullConnection(delivered);
+                    join(register(benchmark.server, connection, prefix + "c" + c + "m" + m), connection, channel);
+                }
+                join(driver, driverConnection, channel);
+                lines[c] = "PRIVMSG " + channel + " :the quick brown fox jumps over the lazy dog";
+            }
+            framesPerRound = (long) CHANNELS_PER_THREAD * benchmark.members;
+
+            // JOIN notices reach the other members on the shards; let them land before the first round.
+            long settled;
+            do {
+                settled = delivered.get();
+                Thread.sleep(200);
+            } while (delivered.get() != settled);
+        }
+
+        private static ConnectionListener register(IRCServer server, NullConnection connection, String nick) {
+            connection.setRecording(true);
+            ConnectionListener client = server.connect(connection, InetAddress.getLoopbackAddress());
+            client.onLine("REGISTER " + nick + " secret");
+            connection.awaitLine("successfully registered");
+            connection.setRecording(false);
+            return client;
+        }
+
+        private static void join(ConnectionListener client, NullConnection connection, String channel) {
+            connection.setRecording(true);
+            client.onLine("JOIN " + channel);
+            connection.awaitLine(" 366 ");
+            connection.setRecording(false);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHANNELS_PER_THREAD)
+    public void sendToEveryChannel(Sender sender) {
+        long target = sender.delivered.get() + sender.framesPerRound;
+        for (String line : sender.lines) {
+            sender.driver.onLine(line);
+        }
+        while (sender.delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channel fan-out cost with one encoding per recipient (the old PrintWriter path) against one
+ * shared {@link Frame} per broadcast. Run with {@code -prof gc} to see allocation per operation:
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="BroadcastEncoding -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastEncodingBenchmark {
+    @Param({"10", "100", "1000", "5000"})
+    private int members;
+
+    private ChatRoom room;
+    private String line;
+
+    @Setup
+    public void setUp() {
+        room = new ChatRoom("#bench");
+        for (int i = 0; i < members; i++) {
+            room.addComponent(new ChatUser("user" + i, new SinkConnection()));
+        }
+        line = ":sender PRIVMSG #bench :" + "the quick brown fox jumps over the lazy dog ".repeat(4) + "ünïcödé";
+    }
+
+    @Benchmark
+    public int encodePerRecipient() {
+        room.getUsers().forEach(user -> user.sendMessage(line));
+        return room.getUserCount();
+    }
+
+    @Benchmark
+    public int encodeOnce() {
+        room.sendMessage(line);
+        return room.getUserCount();
+    }
+
+    // Accepts frames the way an outbound queue would, without a socket behind it.
+    private static final class SinkConnection implements Connection {
+        private long bytes;
+
+        @Override
+        public void send(String message) {
+            bytes += Frame.of(message).length();
+        }
+
+        @Override
+        public void send(Frame frame) {
+            bytes += frame.buffer().remaining();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return bytes >= 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.NullConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChatRoom#sendMessage(Frame)} into members whose connections discard the frame, so the number
+ * is the cost of the member snapshot and the per-recipient dispatch alone.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ChannelFanOut"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelFanOutBenchmark {
+    @Param({"10", "1000", "10000"})
+    private int members;
+
+    private ChatRoom room;
+    private Frame frame;
+
+    @Setup
+    public void setUp() {
+        room = new ChatRoom("#bench");
+        for (int i = 0; i < members; i++) {
+            room.addComponent(new ChatUser("user" + i, new NullConnection()));
+        }
+        frame = Frame.of(":sender PRIVMSG #bench :the quick brown fox jumps over the lazy dog");
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        room.sendMessage(frame);
+    }
+}
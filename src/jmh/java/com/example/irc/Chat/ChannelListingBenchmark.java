@@ -0,0 +1,67 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.NullConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a full LIST reply, unfiltered and with a user-count filter, over channels holding 0-9 members.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ChannelListing"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelListingBenchmark {
+    private static final String PREFIX = ":MyIRCServer 322 bench ";
+    private static final String END = ":MyIRCServer 323 bench :End of /LIST";
+
+    @Param({"100", "10000"})
+    private int channels;
+
+    private final Map<String, ChatRoom> rooms = new ConcurrentHashMap<>();
+    private final ChannelFilter busy = ChannelFilter.parse(">5");
+    private final NullConnection sink = new NullConnection();
+
+    @Setup
+    public void setUp() {
+        ChatUser[] users = new ChatUser[10];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new ChatUser("user" + i, new NullConnection());
+        }
+        for (int i = 0; i < channels; i++) {
+            ChatRoom room = new ChatRoom("#channel" + i, "Topic of channel " + i);
+            for (int j = 0; j < i % users.length; j++) {
+                room.addComponent(users[j]);
+            }
+            rooms.put(room.getName(), room);
+        }
+    }
+
+    @Benchmark
+    public long listAll() {
+        new ChannelListing(rooms.values().iterator(), ChannelFilter.ALL, sink, PREFIX, END).run();
+        return sink.getBytes();
+    }
+
+    @Benchmark
+    public long listFiltered() {
+        new ChannelListing(rooms.values().iterator(), busy, sink, PREFIX, END).run();
+        return sink.getBytes();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.OutboundQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the last recipient of one channel line against channel size. {@link ChatRoom#deliver} returns
+ * only once every member has the frame, so its duration is that time. Each member queues the frame on a
+ * real {@link OutboundQueue}, which a writer drains at once. A threshold of 0 is the serial path; otherwise
+ * channels at or above the threshold are split into partitions of 1024.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ParallelFanOut"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelFanOutBenchmark {
+    @Param({"1000", "10000", "50000"})
+    private int members;
+
+    @Param({"0", "1000"})
+    private int threshold;
+
+    private ParallelFanOut fanOut;
+    private ChatRoom room;
+    private Frame frame;
+
+    @Setup
+    public void setUp() {
+        fanOut = threshold > 0 ? new ParallelFanOut(Runtime.getRuntime().availableProcessors(), threshold, 1024) : null;
+        room = new ChatRoom("#announce", null, null, fanOut);
+        for (int i = 0; i < members; i++) {
+            room.addComponent(new ChatUser("user" + i, new QueueingConnection()));
+        }
+        frame = Frame.of(":sender PRIVMSG #announce :the quick brown fox jumps over the lazy dog");
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int deliver() {
+        return room.deliver(frame);
+    }
+
+    private static final class QueueingConnection implements Connection {
+        private final OutboundQueue queue = new OutboundQueue(1024 * 1024, 10000);
+
+        @Override
+        public void send(String message) {
+            send(Frame.of(message));
+        }
+
+        @Override
+        public void send(Frame frame) {
+            queue.offer(frame.buffer());
+            queue.poll();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.irc.Connection;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection that swallows everything sent to it, standing in for a client socket in benchmarks.
+ * While recording it also keeps the lines, so setup code can wait for a reply. Connections sharing a
+ * {@code delivered} counter let a benchmark wait until a fan-out has reached every member.
+ */
+public final class NullConnection implements Connection {
+    private final BlockingQueue<String> recorded = new LinkedBlockingQueue<>();
+    private volatile boolean recording;
+    private final AtomicLong delivered;
+    private long bytes;
+
+    public NullConnection() {
+        this(new AtomicLong());
+    }
+
+    public NullConnection(AtomicLong delivered) {
+        this.delivered = delivered;
+    }
+
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+        recorded.clear();
+    }
+
+    public String awaitLine(String text) {
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            String line;
+            while ((line = recorded.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null) {
+                if (line.contains(text)) return line;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("No line containing '" + text + "'");
+    }
+
+    @Override
+    public void send(String message) {
+        send(Frame.of(message));
+    }
+
+    @Override
+    public void send(Frame frame) {
+        bytes += frame.length();
+        delivered.incrementAndGet();
+        if (recording) {
+            recorded.add(frame.toString());
+        }
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.irc.MessageHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientMessageHandler#processMessage} over a mix of lines a client in a busy channel receives:
+ * channel and private messages, joins and parts, numerics, PING and tagged history replay.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ClientMessageProcessing -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientMessageProcessingBenchmark {
+    private static final String[] LINES = {
+            ":alice!alice@host PRIVMSG #general :the quick brown fox jumps over the lazy dog",
+            ":bob!bob@host PRIVMSG #general :anyone around?",
+            ":carol PRIVMSG bench :hi there",
+            ":dave!dave@host JOIN #general",
+            ":alice!alice@host PRIVMSG #general :welcome dave",
+            ":dave!dave@host PART #general",
+            "PING :MyIRCServer",
+            ":MyIRCServer 332 bench #general :Welcome to #general",
+            ":MyIRCServer 353 bench = #general :alice bob carol dave bench",
+            ":MyIRCServer NOTICE bench :NickServ bench You are now identified with NickServ",
+            "@batch=h1;msgid=42;time=2024-05-01T12:00:00.000Z :alice PRIVMSG #general :replayed line",
+            ":eve!eve@host QUIT :Client quit"
+    };
+
+    private ClientMessageHandler handler;
+    private int next;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        handler = new ClientMessageHandler();
+        handler.setMessageCallback(new MessageCallback() {
+            @Override
+            public void onNicknameChange(String newNickname) {
+                blackhole.consume(newNickname);
+            }
+
+            @Override
+            public void onChannelChange(String channel) {
+                blackhole.consume(channel);
+            }
+
+            @Override
+            public void onRegistrationStatus(boolean registered) {
+                blackhole.consume(registered);
+            }
+
+            @Override
+            public void onServerMessage(String message) {
+                blackhole.consume(message);
+            }
+
+            @Override
+            public void sendServerCommand(String command) {
+                blackhole.consume(command);
+            }
+
+            @Override
+            public void closeConnection() {
+            }
+
+            @Override
+            public void reconnectToServer(String host, int port) {
+            }
+        });
+    }
+
+    @Benchmark
+    public void processMessage() {
+        handler.processMessage(LINES[next++ % LINES.length]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.irc.MessageHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-line parse and dispatch cost of the old {@code split(" ", 3)} + {@code toUpperCase()} + string
+ * switch against the flyweight {@link IrcMessage} with table lookup. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="IrcMessageParser -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IrcMessageParserBenchmark {
+    private final IrcMessage message = new IrcMessage();
+    private String[] lines;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lines = new String[]{
+                "PRIVMSG #general :the quick brown fox jumps over the lazy dog",
+                "privmsg alice :hello there",
+                "JOIN #general",
+                "PONG :irc.example.com",
+                "NAMES #general",
+                "PART #random"
+        };
+    }
+
+    @Benchmark
+    public int splitAndSwitch() {
+        String line = lines[next++ % lines.length];
+        String[] parts = line.split(" ", 3);
+        return switch (parts[0].toUpperCase()) {
+            case "PRIVMSG" -> parts[1].length() + parts[2].length();
+            case "JOIN", "PART", "NAMES" -> parts[1].length();
+            case "PONG" -> 1;
+            default -> 0;
+        };
+    }
+
+    @Benchmark
+    public int flyweightAndTable() {
+        message.parse(lines[next++ % lines.length]);
+        return switch (message.getCommand()) {
+            case PRIVMSG -> message.getParamLength(0) + message.getParamLength(1);
+            case JOIN, PART, NAMES -> message.getParamLength(0);
+            case PONG -> 1;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.irc.Search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency over a synthetic corpus of chat lines drawn from a Zipf-like vocabulary, compared with
+ * a linear scan of the same lines. Building the 10M-message corpus takes a few minutes and about 3 GB of
+ * heap. Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="SearchQuery"}, or add
+ * {@code -p messages=1000000} for a quicker pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class SearchQueryBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int CHANNELS = 1_000;
+    private static final int NICKS = 20_000;
+
+    @Param("10000000")
+    public int messages;
+
+    private SearchIndex index;
+    private String[] words;
+    private String[] sample;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = "w" + Integer.toString(i, 36);
+        }
+        random = new SplittableRandom(42);
+        index = new SearchIndex(Long.MAX_VALUE, 65_536, 1);
+        sample = new String[100_000];
+        for (int i = 0; i < messages; i++) {
+            String text = sentence();
+            index.index("#c" + random.nextInt(CHANNELS), "n" + random.nextInt(NICKS), i, text);
+            if (i < sample.length) {
+                sample[i] = text;
+            }
+        }
+        index.awaitIdle();
+        System.out.println(index.getStats());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+    }
+
+    // Word ranks follow roughly 1/rank, so common words have long posting lists and rare ones short.
+    private String sentence() {
+        StringBuilder text = new StringBuilder();
+        int length = 4 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            text.append(words[zipf()]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private int zipf() {
+        return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> rareTerm() {
+        return index.search(query(words[VOCABULARY / 2 + random.nextInt(VOCABULARY / 2)], null));
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> twoCommonTerms() {
+        return index.search(query(words[random.nextInt(20)] + " " + words[random.nextInt(20)], null));
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> termInOneChannel() {
+        return index.search(query(words[100 + random.nextInt(1_000)], "#c" + random.nextInt(CHANNELS)));
+    }
+
+    // What a query costs without an index, over only the first 100k lines.
+    @Benchmark
+    public int linearScan100k() {
+        String needle = words[VOCABULARY / 2 + random.nextInt(VOCABULARY / 2)] + " ";
+        int found = 0;
+        for (String text : sample) {
+            if (text.contains(needle)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static SearchIndex.Query query(String text, String channel) {
+        return new SearchIndex.Query(channel == null ? null : Set.of(channel), null, Long.MIN_VALUE, Long.MAX_VALUE, text, 50);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.irc;
+
+import com.example.irc.Connection.NullConnection;
+import com.example.irc.Connection.Server.ConnectionListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One client line through the server's whole command path (parse, throttle check, dispatch, reply and
+ * fan-out) with every client on an in-memory connection. Flood control and search indexing are off so
+ * the numbers are the handlers' own cost. Channel lines are delivered by the channel's shard, so each
+ * operation waits until every frame the line produces has been sent rather than timing only the enqueue.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ServerLine"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerLineBenchmark {
+    @Param({"10", "1000"})
+    private int members;
+
+    @Param({"PRIVMSG_CHANNEL", "PRIVMSG_USER", "NAMES", "WHOIS", "LIST", "PONG"})
+    private String command;
+
+    private IRCServer server;
+    private ConnectionListener driver;
+    private String line;
+    private final AtomicLong delivered = new AtomicLong();
+    private long framesPerLine;
+
+    @Setup
+    public void setUp() {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setFloodControlEnabled(false);
+        config.setSearchEnabled(false);
+        config.setPingIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        server = IrcTestSupport.startServer(config);
+
+        String suffix = Long.toString(System.nanoTime(), 36);
+        for (int i = 0; i < members; i++) {
+            join("m" + i + "-" + suffix);
+        }
+        driver = join("driver-" + suffix);
+        line = switch (command) {
+            case "PRIVMSG_CHANNEL" -> "PRIVMSG #bench :the quick brown fox jumps over the lazy dog";
+            case "PRIVMSG_USER" -> "PRIVMSG m0-" + suffix + " :the quick brown fox jumps over the lazy dog";
+            case "NAMES" -> "NAMES #bench";
+            case "WHOIS" -> "WHOIS m0-" + suffix;
+            case "LIST" -> "LIST";
+            case "PONG" -> "PONG :MyIRCServer";
+            default -> throw new IllegalArgumentException(command);
+        };
+        framesPerLine = countFrames();
+    }
+
+    private long countFrames() {
+        long before = delivered.get();
+        driver.onLine(line);
+        long settled;
+        do {
+            settled = delivered.get();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        } while (delivered.get() != settled);
+        return settled - before;
+    }
+
+    private ConnectionListener join(String nick) {
+        NullConnection connection = new NullConnection(delivered);
+        connection.setRecording(true);
+        ConnectionListener client = server.connect(connection, InetAddress.getLoopbackAddress());
+        client.onLine("REGISTER " + nick + " secret");
+        connection.awaitLine("successfully registered");
+        client.onLine("JOIN #bench");
+        connection.awaitLine(" 366 ");
+        connection.setRecording(false);
+        return client;
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stopServer();
+    }
+
+    @Benchmark
+    public void handleLine() {
+        long target = delivered.get() + framesPerLine;
+        driver.onLine(line);
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
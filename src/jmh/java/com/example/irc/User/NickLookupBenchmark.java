@@ -0,0 +1,67 @@
+package com.example.irc.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Direct-message routing throughput: the old scan of every connected client against a lookup in
+ * {@link NickRegistry}. Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="NickLookup"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NickLookupBenchmark {
+    @Param({"1000", "50000"})
+    private int users;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final NickRegistry<Client> registry = new NickRegistry<>();
+    private String[] targets;
+    private int next;
+
+    private record Client(String username) {
+    }
+
+    @Setup
+    public void setUp() {
+        targets = new String[1024];
+        for (int i = 0; i < users; i++) {
+            Client client = new Client("User" + i);
+            clients.add(client);
+            registry.claim(NickRegistry.fold(client.username()), client);
+        }
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = "User" + (i * 7919 % users);
+        }
+    }
+
+    @Benchmark
+    public Client scanClients() {
+        String target = targets[next++ & (targets.length - 1)];
+        return clients.stream()
+                .filter(c -> c.username().equals(target))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Benchmark
+    public Client registryLookup() {
+        return registry.find(targets[next++ & (targets.length - 1)]);
+    }
+}
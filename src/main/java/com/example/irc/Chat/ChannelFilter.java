@@ -0,0 +1,89 @@
+package com.example.irc.Chat;
+
+import com.example.irc.User.NickRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ELIST-style LIST conditions, comma separated: {@code >n} and {@code <n} on the user count, a channel
+ * name mask (with {@code !mask} to exclude) and {@code T:mask} on the topic. Masks use {@code *} and
+ * {@code ?} and are matched with RFC 1459 case folding.
+ */
+public class ChannelFilter {
+    public static final ChannelFilter ALL = new ChannelFilter();
+
+    private int minUsers = 0;
+    private int maxUsers = Integer.MAX_VALUE;
+    private final List<String> nameMasks = new ArrayList<>();
+    private final List<String> excludedMasks = new ArrayList<>();
+    private final List<String> topicMasks = new ArrayList<>();
+
+    public static ChannelFilter parse(String conditions) {
+        ChannelFilter filter = new ChannelFilter();
+        for (String condition : conditions.split(",")) {
+            if (condition.isEmpty()) continue;
+            char first = condition.charAt(0);
+            if (first == '>' || first == '<') {
+                int count;
+                try {
+                    count = Integer.parseInt(condition.substring(1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (first == '>') {
+                    filter.minUsers = Math.max(filter.minUsers, count + 1);
+                } else {
+                    filter.maxUsers = Math.min(filter.maxUsers, count - 1);
+                }
+            } else if (first == '!') {
+                filter.excludedMasks.add(NickRegistry.fold(condition.substring(1)));
+            } else if (condition.startsWith("T:")) {
+                filter.topicMasks.add(NickRegistry.fold(condition.substring(2)));
+            } else {
+                filter.nameMasks.add(NickRegistry.fold(condition));
+            }
+        }
+        return filter;
+    }
+
+    public boolean matches(ChatRoom room) {
+        int users = room.getUserCount();
+        if (users < minUsers || users > maxUsers) return false;
+        if (nameMasks.isEmpty() && excludedMasks.isEmpty() && topicMasks.isEmpty()) return true;
+
+        String name = NickRegistry.fold(room.getName());
+        if (!nameMasks.isEmpty() && nameMasks.stream().noneMatch(mask -> matchesMask(mask, name))) return false;
+        if (excludedMasks.stream().anyMatch(mask -> matchesMask(mask, name))) return false;
+        if (!topicMasks.isEmpty()) {
+            String topic = room.getTopic() == null ? "" : NickRegistry.fold(room.getTopic());
+            return topicMasks.stream().anyMatch(mask -> matchesMask(mask, topic));
+        }
+        return true;
+    }
+
+    static boolean matchesMask(String mask, String text) {
+        int m = 0;
+        int t = 0;
+        int star = -1;
+        int backtrack = 0;
+        while (t < text.length()) {
+            if (m < mask.length() && (mask.charAt(m) == '?' || mask.charAt(m) == text.charAt(t))) {
+                m++;
+                t++;
+            } else if (m < mask.length() && mask.charAt(m) == '*') {
+                star = m++;
+                backtrack = t;
+            } else if (star >= 0) {
+                m = star + 1;
+                t = ++backtrack;
+            } else {
+                return false;
+            }
+        }
+        while (m < mask.length() && mask.charAt(m) == '*') {
+            m++;
+        }
+        return m == mask.length();
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Frame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recent lines of one channel, kept as the encoded frames that were broadcast. Lines are copied into
+ * a byte ring that grows from a few KiB up to the per-channel limit while the shared {@link HistoryBudget}
+ * allows, then wraps and overwrites the oldest lines. The per-line index grows the same way, so a quiet
+ * channel reserves little of the budget however many lines it may keep. The ring can live in a direct
+ * buffer so large histories stay out of the heap. Every stored line gets the next sequence id, so ids of stored lines
+ * are consecutive and a lookup by id is arithmetic.
+ */
+public class ChannelHistory {
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int INITIAL_SLOTS = 64;
+    private static final int INDEX_BYTES_PER_LINE = Long.BYTES + 2 * Integer.BYTES;
+
+    private final int maxLines;
+    private final int maxBytes;
+    private final boolean offHeap;
+    private final HistoryBudget budget;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] timestamps;
+    private int[] offsets;
+    private int[] lengths;
+    private ByteBuffer data;
+    private int head;
+    private int count;
+    private int writePosition;
+    private long nextId = 1;
+    private boolean released;
+
+    public record Entry(long id, long timestamp, ByteBuffer line) {
+    }
+
+    public ChannelHistory(int maxLines, int maxBytes, boolean offHeap, HistoryBudget budget) {
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+        this.budget = budget;
+    }
+
+    /**
+     * Stores {@code frame} and returns its id, or 0 when there is no memory left to store it.
+     */
+    public long append(Frame frame, long timestamp) {
+        ByteBuffer line = frame.buffer();
+        int length = line.remaining();
+        lock.lock();
+        try {
+            if (released) return 0;
+            if (count == maxLines) {
+                evictOldest();
+            }
+            if (!makeRoom(length)) return 0;
+            if (count == slots() && !growIndex()) {
+                if (count == 0) return 0;
+                evictOldest();
+            }
+            int slot = (head + count) % slots();
+            data.put(writePosition, line, line.position(), length);
+            offsets[slot] = writePosition;
+            lengths[slot] = length;
+            timestamps[slot] = timestamp;
+            writePosition += length;
+            count++;
+            return nextId++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Entry> latest(int limit) {
+        lock.lock();
+        try {
+            return copy(Math.max(0, count - limit), count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} lines older than {@code id}, oldest first.
+     */
+    public List<Entry> before(long id, int limit) {
+        lock.lock();
+        try {
+            int end = (int) Math.max(0, Math.min(count, id - oldestId()));
+            return copy(Math.max(0, end - limit), end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} lines newer than {@code id}, oldest first.
+     */
+    public List<Entry> after(long id, int limit) {
+        lock.lock();
+        try {
+            int start = (int) Math.max(0, Math.min(count, id - oldestId() + 1));
+            return copy(start, Math.min(count, start + limit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacityBytes() {
+        lock.lock();
+        try {
+            return data == null ? 0 : data.capacity();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the buffers of a channel that is being dropped and returns what they reserved to the budget.
+     * Appends after this store nothing.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            if (released) return;
+            released = true;
+            budget.release(reservation());
+            data = null;
+            timestamps = null;
+            offsets = null;
+            lengths = null;
+            head = 0;
+            count = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long reservedBytes() {
+        lock.lock();
+        try {
+            return reservation();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long reservation() {
+        return (data == null ? 0 : data.capacity()) + (long) slots() * INDEX_BYTES_PER_LINE;
+    }
+
+    private int slots() {
+        return timestamps == null ? 0 : timestamps.length;
+    }
+
+    private long oldestId() {
+        return nextId - count;
+    }
+
+    private List<Entry> copy(int from, int to) {
+        if (from >= to) return Collections.emptyList();
+        List<Entry> entries = new ArrayList<>(to - from);
+        long firstId = oldestId();
+        for (int i = from; i < to; i++) {
+            int slot = (head + i) % slots();
+            ByteBuffer line = ByteBuffer.allocate(lengths[slot]);
+            line.put(0, data, offsets[slot], lengths[slot]);
+            entries.add(new Entry(firstId + i, timestamps[slot], line.asReadOnlyBuffer()));
+        }
+        return entries;
+    }
+
+    // Leaves writePosition at a free run of at least length bytes, growing the ring or dropping old lines as needed.
+    private boolean makeRoom(int length) {
+        while (true) {
+            int capacity = data == null ? 0 : data.capacity();
+            if (count == 0) {
+                writePosition = 0;
+                if (length <= capacity) return true;
+            } else {
+                int start = offsets[head];
+                if (writePosition > start) {
+                    if (capacity - writePosition >= length) return true;
+                    if (start >= length) {
+                        writePosition = 0;
+                        return true;
+                    }
+                } else if (start - writePosition >= length) {
+                    return true;
+                }
+            }
+            if (grow(length)) continue;
+            if (count == 0) return false;
+            evictOldest();
+        }
+    }
+
+    private boolean grow(int length) {
+        int capacity = data == null ? 0 : data.capacity();
+        if (capacity >= maxBytes) return false;
+        int used = usedBytes();
+        int newCapacity = Math.min(maxBytes, Math.max(Math.max(INITIAL_CAPACITY, capacity * 2), used + length));
+        if (used + length > newCapacity) return false;
+        if (!budget.reserve(newCapacity - capacity)) return false;
+
+        ByteBuffer grown = offHeap ? ByteBuffer.allocateDirect(newCapacity) : ByteBuffer.allocate(newCapacity);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % slots();
+            grown.put(position, data, offsets[slot], lengths[slot]);
+            offsets[slot] = position;
+            position += lengths[slot];
+        }
+        data = grown;
+        writePosition = position;
+        return true;
+    }
+
+    // Doubles the slot arrays up to maxLines, moving the oldest line to slot 0.
+    private boolean growIndex() {
+        int slots = slots();
+        int newSlots = Math.min(maxLines, Math.max(INITIAL_SLOTS, slots * 2));
+        if (newSlots <= slots || !budget.reserve((long) (newSlots - slots) * INDEX_BYTES_PER_LINE)) return false;
+
+        long[] grownTimestamps = new long[newSlots];
+        int[] grownOffsets = new int[newSlots];
+        int[] grownLengths = new int[newSlots];
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % slots;
+            grownTimestamps[i] = timestamps[slot];
+            grownOffsets[i] = offsets[slot];
+            grownLengths[i] = lengths[slot];
+        }
+        timestamps = grownTimestamps;
+        offsets = grownOffsets;
+        lengths = grownLengths;
+        head = 0;
+        return true;
+    }
+
+    private int usedBytes() {
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            used += lengths[(head + i) % slots()];
+        }
+        return used;
+    }
+
+    private void evictOldest() {
+        head = (head + 1) % slots();
+        count--;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+
+import java.util.Iterator;
+
+/**
+ * Streams RPL_LIST replies, one frame per line. When the connection has enough output queued, by bytes
+ * or by lines, the listing pauses and resumes from the writer once the queue drains, so a LIST over many
+ * channels neither builds one huge string nor trips either slow-consumer limit.
+ */
+public class ChannelListing implements Runnable {
+    static final long MAX_QUEUED_BYTES = 64 * 1024;
+    static final int MAX_QUEUED_LINES = 1024;
+
+    private final Iterator<ChatRoom> rooms;
+    private final ChannelFilter filter;
+    private final Connection connection;
+    private final String linePrefix;
+    private final String endLine;
+
+    public ChannelListing(Iterator<ChatRoom> rooms, ChannelFilter filter, Connection connection,
+                          String linePrefix, String endLine) {
+        this.rooms = rooms;
+        this.filter = filter;
+        this.connection = connection;
+        this.linePrefix = linePrefix;
+        this.endLine = endLine;
+    }
+
+    @Override
+    public void run() {
+        while (connection.isConnected()) {
+            if ((connection.getQueuedBytes() >= MAX_QUEUED_BYTES || connection.getQueuedMessages() >= MAX_QUEUED_LINES)
+                    && connection.onDrained(this)) {
+                return;
+            }
+            if (!rooms.hasNext()) {
+                connection.send(Frame.of(endLine));
+                return;
+            }
+            ChatRoom room = rooms.next();
+            if (filter.matches(room)) {
+                connection.send(Frame.of(linePrefix + room.getListEntry()));
+            }
+        }
+    }
+}
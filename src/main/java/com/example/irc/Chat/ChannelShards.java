@@ -0,0 +1,165 @@
+package com.example.irc.Chat;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Channels hashed onto a fixed set of single-threaded executors. A channel's shard is the only thread
+ * that changes its membership or topic and it delivers the channel's lines one at a time, so every
+ * member sees them in the same order and {@link ChatRoom} needs no locks. Connection threads only submit.
+ * <p>
+ * Client work is bounded: each shard takes at most {@code queueCapacity} tasks through {@link #tryExecute}
+ * or {@link #executeWaiting}, or reserved ahead with {@link #tryReserve} or {@link #reserve}. A thread that serves many connections, such as an event loop or a timer,
+ * must not wait for one busy channel, so it uses {@code tryExecute} and is refused when the shard is full;
+ * only a thread that belongs to a single connection waits for room. {@link #execute} is for bookkeeping
+ * that must happen, such as the PART of a client that disconnected, and queues past the limit. Shard
+ * threads never wait either, since a shard blocked on its own queue would never drain it.
+ */
+public class ChannelShards {
+    private final ThreadPoolExecutor[] shards;
+    private final Semaphore[] permits;
+    private final Set<Thread> shardThreads = ConcurrentHashMap.newKeySet();
+    private final LongAdder throttled = new LongAdder();
+
+    public ChannelShards(int count, int queueCapacity) {
+        shards = new ThreadPoolExecutor[Math.max(1, count)];
+        permits = new Semaphore[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            ThreadFactory factory = Thread.ofPlatform().name("irc-channel-" + i).daemon().factory();
+            // Tasks submitted after shutdown belong to clients being torn down with the server and are dropped.
+            shards[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    task -> {
+                        Thread thread = factory.newThread(task);
+                        shardThreads.add(thread);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.DiscardPolicy());
+            permits[i] = new Semaphore(Math.max(1, queueCapacity));
+        }
+    }
+
+    /**
+     * Runs {@code task} on {@code channel}'s shard, after everything submitted for that channel before it.
+     * Never waits and never refuses, so it is only for work that cannot be dropped or retried.
+     */
+    public void execute(String channel, Runnable task) {
+        submit(shardOf(channel), task, false);
+    }
+
+    /**
+     * Like {@link #execute}, but returns false without queueing when the shard's queue is full.
+     */
+    public boolean tryExecute(String channel, Runnable task) {
+        if (!tryReserve(channel)) return false;
+        executeReserved(channel, task);
+        return true;
+    }
+
+    /**
+     * Like {@link #execute}, but waits while the shard's queue is full. Only for a thread that serves a
+     * single connection, which is then the only one held up.
+     */
+    public void executeWaiting(String channel, Runnable task) {
+        reserve(channel);
+        executeReserved(channel, task);
+    }
+
+    /**
+     * Takes a place in the shard's queue for a task that this thread will pass to {@link #executeReserved},
+     * so a caller can commit to the work before building it. Returns false when the queue is full.
+     */
+    public boolean tryReserve(String channel) {
+        if (isShardThread()) return true;
+        if (permits[shardOf(channel)].tryAcquire()) return true;
+        throttled.increment();
+        return false;
+    }
+
+    /**
+     * Like {@link #tryReserve}, but waits for room, with the same restriction as {@link #executeWaiting}.
+     */
+    public void reserve(String channel) {
+        if (isShardThread()) return;
+        Semaphore permit = permits[shardOf(channel)];
+        if (!permit.tryAcquire()) {
+            throttled.increment();
+            permit.acquireUninterruptibly();
+        }
+    }
+
+    public void executeReserved(String channel, Runnable task) {
+        submit(shardOf(channel), task, !isShardThread());
+    }
+
+    private boolean isShardThread() {
+        return shardThreads.contains(Thread.currentThread());
+    }
+
+    private void submit(int shard, Runnable task, boolean limited) {
+        if (shards[shard].isShutdown()) {
+            if (limited) {
+                permits[shard].release();
+            }
+            return;
+        }
+        shards[shard].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                if (limited) {
+                    permits[shard].release();
+                }
+            }
+        });
+    }
+
+    public int shardOf(String channel) {
+        int hash = channel.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public long getQueued() {
+        long queued = 0;
+        for (ThreadPoolExecutor shard : shards) {
+            queued += shard.getQueue().size();
+        }
+        return queued;
+    }
+
+    /**
+     * How many submissions found their shard queue full, whether they then waited or were refused.
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    // Lets queued lines reach the log and index before those are closed.
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor shard : shards) {
+                shard.awaitTermination(1, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anyone still waiting for room would wait forever once nothing drains the queues.
+        for (Semaphore permit : permits) {
+            permit.release(Integer.MAX_VALUE / 2);
+        }
+    }
+}
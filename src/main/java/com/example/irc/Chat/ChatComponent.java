@@ -1,13 +1,20 @@
 package com.example.irc.Chat;
 
+import com.example.irc.Connection.Frame;
+
 public abstract class ChatComponent {
-    protected String name;
+    protected volatile String name;
 
     public ChatComponent(String name) {
         this.name = name;
     }
 
+    public String getName() {
+        return name;
+    }
+
     public abstract void sendMessage(String message);
+    public abstract void sendMessage(Frame frame);
     public abstract void addComponent(ChatComponent component);
     public abstract void removeComponent(ChatComponent component);
 }
@@ -1,33 +1,162 @@
 package com.example.irc.Chat;
 
+import com.example.irc.Connection.Frame;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * All state of one channel: topic, creation time and membership. Only the channel's shard (see
+ * {@link ChannelShards}) changes it or delivers to it, so members live in a plain set; other threads
+ * read just the user count, topic and LIST entry. Broadcasts iterate an array snapshot and LIST reads a
+ * pre-rendered entry, both rebuilt lazily after the channel changes. Chat lines posted with
+ * {@link #postMessage} are also kept in the channel's {@link ChannelHistory}, when it has one.
+ */
 public class ChatRoom {
+    private static final ChatUser[] NO_USERS = new ChatUser[0];
+
     private final String name;
-    private final Set<ChatUser> users = ConcurrentHashMap.newKeySet();
+    private final LocalDateTime creationTime = LocalDateTime.now();
+    private final Set<ChatUser> users = new HashSet<>();
+    // Written only by the shard; volatile so LIST on other threads sees the latest count and version.
+    private volatile int userCount;
+    private volatile int version;
+    private volatile Snapshot snapshot = new Snapshot(0, NO_USERS);
+    private volatile ListEntry listEntry = new ListEntry(-1, null);
+    private volatile String topic;
+    private final ChannelHistory history;
+    private final ParallelFanOut fanOut;
+
+    private record Snapshot(int version, ChatUser[] users) {
+    }
+
+    private record ListEntry(int version, String text) {
+    }
 
     public ChatRoom(String name) {
+        this(name, null);
+    }
+
+    public ChatRoom(String name, String topic) {
+        this(name, topic, null);
+    }
+
+    public ChatRoom(String name, String topic, ChannelHistory history) {
+        this(name, topic, history, null);
+    }
+
+    public ChatRoom(String name, String topic, ChannelHistory history, ParallelFanOut fanOut) {
         this.name = name;
+        this.topic = topic;
+        this.history = history;
+        this.fanOut = fanOut;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+        version++;
+    }
+
+    public ChannelHistory getHistory() {
+        return history;
+    }
+
+    public LocalDateTime getCreationTime() {
+        return creationTime;
     }
 
     public int getUserCount() {
-        return users.size();
+        return userCount;
+    }
+
+    public List<ChatUser> getUsers() {
+        return Collections.unmodifiableList(Arrays.asList(members()));
+    }
+
+    public boolean contains(ChatUser user) {
+        return users.contains(user);
     }
 
-    public Set<ChatUser> getUsers() {
-        return users;
+    public boolean addComponent(ChatUser user) {
+        if (!users.add(user)) return false;
+        userCount = users.size();
+        version++;
+        return true;
     }
 
-    public void addComponent(ChatUser user) {
-        users.add(user);
+    public boolean removeComponent(ChatUser user) {
+        if (!users.remove(user)) return false;
+        userCount = users.size();
+        version++;
+        return true;
     }
 
-    public void removeComponent(ChatUser user) {
-        users.remove(user);
+    /**
+     * The {@code <channel> <visible> :<topic>} part of an RPL_LIST line, rendered once per change.
+     */
+    public String getListEntry() {
+        ListEntry current = listEntry;
+        int expected = version;
+        if (current.version == expected) {
+            return current.text;
+        }
+        String text = name + " " + userCount + " :" + (topic != null ? topic : "No topic set");
+        listEntry = new ListEntry(expected, text);
+        return text;
     }
 
     public void sendMessage(String message) {
-        users.forEach(user -> user.sendMessage(message));
+        sendMessage(Frame.of(message));
+    }
+
+    public int postMessage(Frame frame) {
+        if (history != null) {
+            history.append(frame, System.currentTimeMillis());
+        }
+        return deliver(frame);
+    }
+
+    public void sendMessage(Frame frame) {
+        deliver(frame);
+    }
+
+    /**
+     * Sends {@code frame} to every member and returns how many that was. Channels at or above the
+     * {@link ParallelFanOut} threshold are sent in parallel partitions; this still returns only once
+     * every member has the frame.
+     */
+    public int deliver(Frame frame) {
+        ChatUser[] members = members();
+        if (fanOut != null && fanOut.appliesTo(members.length)) {
+            fanOut.deliver(members, frame);
+            return members.length;
+        }
+        for (ChatUser user : members) {
+            user.sendMessage(frame);
+        }
+        return members.length;
+    }
+
+    private ChatUser[] members() {
+        Snapshot current = snapshot;
+        int expected = version;
+        if (current.version == expected) {
+            return current.users;
+        }
+        ChatUser[] members = users.toArray(NO_USERS);
+        snapshot = new Snapshot(expected, members);
+        return members;
     }
-}
\ No newline at end of file
+}
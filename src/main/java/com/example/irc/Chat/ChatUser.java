@@ -1,18 +1,42 @@
 package com.example.irc.Chat;
 
-import java.io.PrintWriter;
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
 
+/**
+ * A client's presence in channels. Identity is the connection, so the same member is found
+ * again after a nick change.
+ */
 public class ChatUser extends ChatComponent {
-    private PrintWriter out;
+    private final Connection connection;
+    private final String email;
 
-    public ChatUser(String name, PrintWriter out) {
+    public ChatUser(String name, Connection connection) {
+        this(name, null, connection);
+    }
+
+    public ChatUser(String name, String email, Connection connection) {
         super(name);
-        this.out = out;
+        this.email = email;
+        this.connection = connection;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setName(String name) {
+        this.name = name;
     }
 
     @Override
     public void sendMessage(String message) {
-        out.println(message);
+        connection.send(message);
+    }
+
+    @Override
+    public void sendMessage(Frame frame) {
+        connection.send(frame);
     }
 
     @Override
@@ -24,4 +48,16 @@ public class ChatUser extends ChatComponent {
     public void removeComponent(ChatComponent component) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ChatUser that)) return false;
+        return connection == that.connection;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(connection);
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.irc.Chat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-wide cap on memory reserved by channel history buffers. A channel that cannot reserve more
+ * keeps the buffer it already has and overwrites its own oldest lines instead of growing.
+ */
+public class HistoryBudget {
+    private final long maxBytes;
+    private final AtomicLong reserved = new AtomicLong();
+
+    public HistoryBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean reserve(long bytes) {
+        while (true) {
+            long current = reserved.get();
+            if (current + bytes > maxBytes) return false;
+            if (reserved.compareAndSet(current, current + bytes)) return true;
+        }
+    }
+
+    public void release(long bytes) {
+        reserved.addAndGet(-bytes);
+    }
+
+    public long getReservedBytes() {
+        return reserved.get();
+    }
+}
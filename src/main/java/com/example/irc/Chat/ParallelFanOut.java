@@ -0,0 +1,75 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Frame;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers a frame to a large channel by splitting the member array into fixed-size partitions that a
+ * work-stealing pool sends in parallel. The caller waits until every partition is done, so a member
+ * still gets a channel's lines in order: the next line is not handed out before the last one has
+ * reached everybody. Channels below the threshold never get here and stay on the serial path.
+ */
+public class ParallelFanOut {
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int partitionSize;
+
+    public ParallelFanOut(int threads, int threshold, int partitionSize) {
+        this.pool = new ForkJoinPool(Math.max(1, threads), pool -> {
+            var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("irc-fanout-" + worker.getPoolIndex());
+            worker.setDaemon(true);
+            return worker;
+        }, null, false);
+        this.threshold = threshold;
+        this.partitionSize = Math.max(1, partitionSize);
+    }
+
+    public boolean appliesTo(int members) {
+        return members >= threshold;
+    }
+
+    public void deliver(ChatUser[] members, Frame frame) {
+        pool.invoke(new Partitions(members, frame, 0, members.length));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Halves a run of partitions at a partition boundary until one is left, which is then sent serially.
+    private class Partitions extends RecursiveAction {
+        private final ChatUser[] members;
+        private final Frame frame;
+        private final int from;
+        private final int to;
+
+        Partitions(ChatUser[] members, Frame frame, int from, int to) {
+            this.members = members;
+            this.frame = frame;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int partitions = (to - from + partitionSize - 1) / partitionSize;
+            if (partitions <= 1) {
+                for (int i = from; i < to; i++) {
+                    members[i].sendMessage(frame);
+                }
+                return;
+            }
+            int middle = from + partitions / 2 * partitionSize;
+            invokeAll(new Partitions(members, frame, from, middle), new Partitions(members, frame, middle, to));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.irc.Connection;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves client hostnames on a small bounded pool with a TTL cache. Concurrent lookups of the same
+ * address share one query, and callers get the IP string when the lookup fails, times out or the pool is full.
+ */
+public class AsyncHostResolver {
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final HostResolver resolver;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<InetAddress, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final Map<InetAddress, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private record CacheEntry(String hostname, long expiresAt) {
+    }
+
+    public AsyncHostResolver(HostResolver resolver, int threads, long timeoutMillis, long ttlMillis, int maxEntries) {
+        this.resolver = resolver;
+        this.timeoutMillis = timeoutMillis;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), Thread.ofPlatform().name("irc-dns-", 0).daemon().factory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Completes with the hostname, or with the IP string once the timeout expires. Never completes exceptionally.
+     */
+    public CompletableFuture<String> resolve(InetAddress address) {
+        CacheEntry cached = cache.get(address);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(cached.hostname);
+        }
+
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(address, lookup);
+        if (existing != null) {
+            lookup = existing;
+        } else {
+            CompletableFuture<String> started = lookup;
+            try {
+                executor.execute(() -> lookup(address, started));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(address, started);
+                started.complete(address.getHostAddress());
+            }
+        }
+        return lookup.copy().completeOnTimeout(address.getHostAddress(), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void lookup(InetAddress address, CompletableFuture<String> result) {
+        String hostname;
+        try {
+            hostname = resolver.reverseLookup(address);
+        } catch (Exception e) {
+            hostname = null;
+        }
+        if (hostname == null || hostname.isEmpty()) {
+            hostname = address.getHostAddress();
+        }
+        evictIfFull();
+        cache.put(address, new CacheEntry(hostname, System.currentTimeMillis() + ttlMillis));
+        inFlight.remove(address, result);
+        result.complete(hostname);
+    }
+
+    private void evictIfFull() {
+        if (cache.size() < maxEntries) return;
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(entry -> entry.expiresAt <= now);
+        Iterator<InetAddress> addresses = cache.keySet().iterator();
+        while (cache.size() >= maxEntries && addresses.hasNext()) {
+            addresses.next();
+            addresses.remove();
+        }
+    }
+
+    int getCacheSize() {
+        return cache.size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.irc.Connection;
+
+import java.io.IOException;
+
+/**
+ * A connection whose owner pulls incoming lines itself, one blocking {@link #receive} at a time.
+ * Event-driven transports push lines to a listener instead and only implement {@link Connection}.
+ */
+public interface BlockingConnection extends Connection {
+    /**
+     * The next line without its terminator, or null once the peer has closed the stream.
+     */
+    String receive() throws IOException;
+}
@@ -1,6 +1,6 @@
 package com.example.irc.Connection.Client;
 
-import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.BlockingConnection;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -8,7 +8,7 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 
-public class ClientConnection implements Connection {
+public class ClientConnection implements BlockingConnection {
     private final Socket socket;
     private final BufferedReader reader;
     private final PrintWriter writer;
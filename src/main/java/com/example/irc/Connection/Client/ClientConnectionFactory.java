@@ -1,6 +1,6 @@
 package com.example.irc.Connection.Client;
 
-import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.BlockingConnection;
 import com.example.irc.Connection.ConnectionFactory;
 import com.example.irc.MessageHandler.ClientMessageHandler;
 import com.example.irc.MessageHandler.MessageHandler;
@@ -10,7 +10,7 @@ import java.net.Socket;
 
 public class ClientConnectionFactory implements ConnectionFactory {
     @Override
-    public Connection createConnection(Socket socket) throws IOException {
+    public BlockingConnection createConnection(Socket socket) throws IOException {
         return new ClientConnection(socket);
     }
 
@@ -2,9 +2,47 @@ package com.example.irc.Connection;
 
 import java.io.IOException;
 
+/**
+ * The sending side of a connection, which is all that channels and replies need. How incoming lines
+ * arrive depends on the transport; see {@link BlockingConnection}.
+ */
 public interface Connection {
     void send(String message);
-    String receive() throws IOException;
+
+    default void send(Frame frame) {
+        send(frame.toString());
+    }
+
+    /**
+     * Bytes accepted by {@link #send} that have not reached the socket yet.
+     */
+    default long getQueuedBytes() {
+        return 0;
+    }
+
+    /**
+     * Frames accepted by {@link #send} that have not reached the socket yet.
+     */
+    default int getQueuedMessages() {
+        return 0;
+    }
+
+    /**
+     * Asks for {@code task} to run once queued output has been written. Returns false when there is
+     * nothing queued, in which case the task is not kept and the caller should continue directly.
+     */
+    default boolean onDrained(Runnable task) {
+        return false;
+    }
+
+    /**
+     * Drops output that has not started to go out, queues {@code frame} in its place and ignores
+     * whatever is sent afterwards. Used for the closing ERROR to a client whose send queue overflowed.
+     */
+    default void sendFinal(Frame frame) {
+        send(frame);
+    }
+
     void close() throws IOException;
     boolean isConnected();
 }
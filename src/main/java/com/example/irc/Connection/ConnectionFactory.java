@@ -5,6 +5,6 @@ import com.example.irc.MessageHandler.MessageHandler;
 import java.net.Socket;
 
 public interface ConnectionFactory {
-    Connection createConnection(Socket socket) throws Exception;
+    BlockingConnection createConnection(Socket socket) throws Exception;
     MessageHandler createMessageHandler();
 }
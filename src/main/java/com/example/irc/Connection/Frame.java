@@ -0,0 +1,51 @@
+package com.example.irc.Connection;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One IRC line encoded as UTF-8 with its CRLF terminator. Frames are immutable, so a broadcast
+ * encodes the line once and every recipient's outbound queue shares the same bytes.
+ */
+public final class Frame {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final byte[] bytes;
+
+    private Frame(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static Frame of(String line) {
+        byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[encoded.length + CRLF.length];
+        System.arraycopy(encoded, 0, bytes, 0, encoded.length);
+        System.arraycopy(CRLF, 0, bytes, encoded.length, CRLF.length);
+        return new Frame(bytes);
+    }
+
+    /**
+     * {@code prefix} followed by an already encoded line that still carries its CRLF, such as a line read back from history.
+     */
+    public static Frame prefixed(String prefix, ByteBuffer encoded) {
+        byte[] head = prefix.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[head.length + encoded.remaining()];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        encoded.get(encoded.position(), bytes, head.length, encoded.remaining());
+        return new Frame(bytes);
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    // A fresh position/limit per recipient over the shared array; the bytes themselves are never written.
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, bytes.length - CRLF.length, StandardCharsets.UTF_8);
+    }
+}
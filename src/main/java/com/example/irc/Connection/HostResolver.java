@@ -0,0 +1,14 @@
+package com.example.irc.Connection;
+
+import java.net.InetAddress;
+
+/**
+ * Blocking reverse lookup of a client address. Implementations may take as long as the resolver does;
+ * {@link AsyncHostResolver} keeps them off client threads.
+ */
+@FunctionalInterface
+public interface HostResolver {
+    HostResolver SYSTEM = address -> InetAddress.getByAddress(address.getAddress()).getHostName();
+
+    String reverseLookup(InetAddress address) throws Exception;
+}
@@ -0,0 +1,114 @@
+package com.example.irc.Connection;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OutboundQueue {
+    private final Queue<ByteBuffer> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicInteger queuedMessages = new AtomicInteger();
+    private final AtomicReference<Runnable> drainListener = new AtomicReference<>();
+    private final long maxBytes;
+    private final int maxMessages;
+
+    public OutboundQueue(long maxBytes, int maxMessages) {
+        this.maxBytes = maxBytes;
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * Returns false instead of queueing when either high-water mark would be crossed; the caller
+     * is expected to drop the connection as a slow consumer. Frames are accounted by their limit,
+     * so they must be queued with position zero.
+     */
+    public boolean offer(ByteBuffer frame) {
+        int size = frame.limit();
+        long bytes = queuedBytes.addAndGet(size);
+        int messages = queuedMessages.incrementAndGet();
+        if (bytes > maxBytes || messages > maxMessages) {
+            queuedBytes.addAndGet(-size);
+            queuedMessages.decrementAndGet();
+            return false;
+        }
+        frames.add(frame);
+        return true;
+    }
+
+    public ByteBuffer peek() {
+        return frames.peek();
+    }
+
+    public ByteBuffer poll() {
+        ByteBuffer frame = frames.poll();
+        if (frame != null) {
+            queuedBytes.addAndGet(-frame.limit());
+            queuedMessages.decrementAndGet();
+        }
+        return frame;
+    }
+
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    public void clear() {
+        while (poll() != null) {
+        }
+    }
+
+    /**
+     * Drops queued frames except the head when the writer has already written part of it, so the
+     * peer never sees half a line. Only the writer's thread may call this.
+     */
+    public void discardUnstarted() {
+        Iterator<ByteBuffer> iterator = frames.iterator();
+        boolean head = true;
+        while (iterator.hasNext()) {
+            ByteBuffer frame = iterator.next();
+            if (head && frame.position() > 0) {
+                head = false;
+                continue;
+            }
+            head = false;
+            iterator.remove();
+            queuedBytes.addAndGet(-frame.limit());
+            queuedMessages.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs {@code task} once the writer has emptied the queue. Returns false without keeping the task
+     * when the queue is already empty, so the caller can carry on itself instead of recursing.
+     */
+    public boolean onDrained(Runnable task) {
+        drainListener.set(task);
+        if (isEmpty() && drainListener.compareAndSet(task, null)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called by the writer after it has written everything it could find.
+     */
+    public void notifyDrained() {
+        if (!isEmpty() || drainListener.get() == null) return;
+        Runnable task = drainListener.getAndSet(null);
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    public int getQueuedMessages() {
+        return queuedMessages.get();
+    }
+}
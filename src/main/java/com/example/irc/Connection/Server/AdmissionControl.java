@@ -0,0 +1,90 @@
+package com.example.irc.Connection.Server;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts open connections overall and per remote address and turns new ones away once a limit is reached.
+ * Acceptors ask before anything is allocated for a connection, so a reconnect storm costs one counter update
+ * and one small write per rejected socket. A limit of 0 disables that check.
+ */
+public class AdmissionControl {
+    private final int maxConnections;
+    private final int maxConnectionsPerAddress;
+    private final AtomicInteger open = new AtomicInteger();
+    private final Map<InetAddress, Integer> perAddress = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedServerFull = new LongAdder();
+    private final LongAdder rejectedHostFull = new LongAdder();
+    private final ByteBuffer serverFullReply;
+    private final ByteBuffer hostFullReply;
+
+    public enum Verdict {
+        ADMITTED,
+        SERVER_FULL,
+        HOST_FULL
+    }
+
+    public record Stats(int open, long admitted, long rejectedServerFull, long rejectedHostFull, int addresses) {
+    }
+
+    public AdmissionControl(String serverName, int maxConnections, int maxConnectionsPerAddress) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+        this.serverFullReply = reply(serverName, "Server is full, try again later", "Server full");
+        this.hostFullReply = reply(serverName, "Too many connections from your host", "Too many host connections");
+    }
+
+    // RPL_TRYAGAIN, then the usual ERROR line clients print before the socket closes.
+    private static ByteBuffer reply(String serverName, String reason, String closing) {
+        String text = ":" + serverName + " 263 * CONNECT :" + reason + "\r\n"
+                + "ERROR :Closing Link: (" + closing + ")\r\n";
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Counts the connection when it is admitted; every admitted connection must be {@link #release released}.
+     */
+    public Verdict tryAdmit(InetAddress address) {
+        if (open.incrementAndGet() > maxConnections && maxConnections > 0) {
+            open.decrementAndGet();
+            rejectedServerFull.increment();
+            return Verdict.SERVER_FULL;
+        }
+        if (maxConnectionsPerAddress > 0 && perAddress.merge(address, 1, Integer::sum) > maxConnectionsPerAddress) {
+            releaseAddress(address);
+            open.decrementAndGet();
+            rejectedHostFull.increment();
+            return Verdict.HOST_FULL;
+        }
+        admitted.increment();
+        return Verdict.ADMITTED;
+    }
+
+    public void release(InetAddress address) {
+        open.decrementAndGet();
+        if (maxConnectionsPerAddress > 0) {
+            releaseAddress(address);
+        }
+    }
+
+    private void releaseAddress(InetAddress address) {
+        perAddress.computeIfPresent(address, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * The lines sent to a rejected connection before it is closed.
+     */
+    public ByteBuffer rejection(Verdict verdict) {
+        return (verdict == Verdict.HOST_FULL ? hostFullReply : serverFullReply).duplicate();
+    }
+
+    public Stats getStats() {
+        return new Stats(open.get(), admitted.sum(), rejectedServerFull.sum(), rejectedHostFull.sum(), perAddress.size());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.irc.Connection.Server;
+
+public interface ConnectionListener {
+    void onLine(String line);
+    void onClose();
+
+    /**
+     * The connection refused a frame because its send queue is full. The listener is expected to
+     * say why with {@link com.example.irc.Connection.Connection#sendFinal} and close it.
+     */
+    void onSendQueueExceeded();
+}
@@ -0,0 +1,233 @@
+package com.example.irc.Connection.Server;
+
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.OutboundQueue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class NioServerConnection implements Connection {
+    public static final int MAX_LINE_LENGTH = 8192;
+    private static final int INITIAL_PARTIAL_SIZE = 256;
+
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    private final SelectionKey key;
+    private final OutboundQueue outbound;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean finalFrameQueued;
+    private ConnectionListener listener;
+
+    // Bytes of a line that has not seen its terminating LF yet; allocated only when needed.
+    private byte[] partialLine;
+    private int partialLength;
+    private boolean discardingLine;
+
+    NioServerConnection(SocketChannel channel, NioEventLoop eventLoop, SelectionKey key, OutboundQueue outbound) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.key = key;
+        this.outbound = outbound;
+    }
+
+    void setListener(ConnectionListener listener) {
+        this.listener = listener;
+    }
+
+    public InetAddress getInetAddress() {
+        return channel.socket().getInetAddress();
+    }
+
+    public OutboundQueue getSendQueue() {
+        return outbound;
+    }
+
+    @Override
+    public void send(String message) {
+        send(Frame.of(message));
+    }
+
+    @Override
+    public void send(Frame frame) {
+        if (closed.get() || finalFrameQueued) return;
+        if (!outbound.offer(frame.buffer())) {
+            if (listener != null) {
+                listener.onSendQueueExceeded();
+            } else {
+                close();
+            }
+            return;
+        }
+        if (eventLoop.inEventLoop()) {
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::flush);
+        }
+    }
+
+    @Override
+    public void sendFinal(Frame frame) {
+        if (closed.get()) return;
+        finalFrameQueued = true;
+        if (eventLoop.inEventLoop()) {
+            replaceQueued(frame);
+        } else {
+            eventLoop.execute(() -> replaceQueued(frame));
+        }
+    }
+
+    // On the event loop, so a frame flush has written part of is left in place.
+    private void replaceQueued(Frame frame) {
+        if (closed.get()) return;
+        outbound.discardUnstarted();
+        outbound.offer(frame.buffer());
+        flush();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return outbound.getQueuedBytes();
+    }
+
+    @Override
+    public int getQueuedMessages() {
+        return outbound.getQueuedMessages();
+    }
+
+    @Override
+    public boolean onDrained(Runnable task) {
+        return isConnected() && outbound.onDrained(task);
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        outbound.clear();
+        if (listener != null) {
+            listener.onClose();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !closed.get() && channel.isOpen();
+    }
+
+    void flush() {
+        flushScheduled.set(false);
+        if (closed.get()) return;
+        try {
+            ByteBuffer buffer;
+            while ((buffer = outbound.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound.poll();
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            outbound.notifyDrained();
+        } catch (IOException | CancelledKeyException e) {
+            close();
+        }
+    }
+
+    void read(ByteBuffer buffer) {
+        int read;
+        try {
+            buffer.clear();
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+
+        buffer.flip();
+        int lineStart = buffer.position();
+        for (int i = lineStart; i < buffer.limit(); i++) {
+            if (buffer.get(i) != '\n') continue;
+
+            String line = completeLine(buffer, lineStart, i);
+            lineStart = i + 1;
+            if (line != null) {
+                try {
+                    listener.onLine(line);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (closed.get()) return;
+        }
+        appendPartial(buffer, lineStart, buffer.limit());
+    }
+
+    private String completeLine(ByteBuffer buffer, int start, int end) {
+        if (discardingLine) {
+            discardingLine = false;
+            return null;
+        }
+
+        byte[] bytes;
+        int length;
+        if (partialLength == 0) {
+            length = end - start;
+            if (length > MAX_LINE_LENGTH) return null;
+            bytes = new byte[length];
+            buffer.get(start, bytes);
+        } else {
+            appendPartial(buffer, start, end);
+            if (discardingLine) {
+                discardingLine = false;
+                return null;
+            }
+            bytes = partialLine;
+            length = partialLength;
+            partialLine = null;
+            partialLength = 0;
+        }
+
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void appendPartial(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (length == 0 || discardingLine) return;
+
+        if (partialLength + length > MAX_LINE_LENGTH) {
+            partialLine = null;
+            partialLength = 0;
+            discardingLine = true;
+            return;
+        }
+        if (partialLine == null) {
+            partialLine = new byte[Math.max(INITIAL_PARTIAL_SIZE, length)];
+        } else if (partialLength + length > partialLine.length) {
+            partialLine = Arrays.copyOf(partialLine, Math.min(MAX_LINE_LENGTH, Math.max(partialLine.length * 2, partialLength + length)));
+        }
+        buffer.get(start, partialLine, partialLength, length);
+        partialLength += length;
+    }
+}
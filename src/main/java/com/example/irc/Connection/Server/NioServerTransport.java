@@ -0,0 +1,137 @@
+package com.example.irc.Connection.Server;
+
+import com.example.irc.Connection.OutboundQueue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Non-blocking listener. Acceptor loops only admit and hand sockets off; the worker loop that owns a
+ * connection does the socket setup. With more than one acceptor each binds its own channel with
+ * SO_REUSEPORT where the platform has it, so the kernel spreads the accept queue between them.
+ */
+public class NioServerTransport {
+    private final NioEventLoop[] eventLoops;
+    private final NioEventLoop[] acceptorLoops;
+    private final Function<NioServerConnection, ConnectionListener> listenerFactory;
+    private final long maxSendQueueBytes;
+    private final int maxSendQueueMessages;
+    private final AdmissionControl admission;
+    private final List<ServerSocketChannel> serverChannels = new ArrayList<>();
+    private final AtomicInteger nextEventLoop = new AtomicInteger();
+
+    /**
+     * @param acceptorThreads dedicated accept loops; 0 accepts on the first worker loop
+     * @param admission       checked for every accepted socket, or null to admit everything
+     */
+    public NioServerTransport(int eventLoopThreads, int acceptorThreads, long maxSendQueueBytes, int maxSendQueueMessages,
+                              AdmissionControl admission,
+                              Function<NioServerConnection, ConnectionListener> listenerFactory) throws IOException {
+        this.eventLoops = new NioEventLoop[Math.max(1, eventLoopThreads)];
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new NioEventLoop("irc-event-loop-" + i);
+        }
+        this.acceptorLoops = new NioEventLoop[Math.max(0, acceptorThreads)];
+        for (int i = 0; i < acceptorLoops.length; i++) {
+            acceptorLoops[i] = new NioEventLoop("irc-acceptor-" + i);
+        }
+        this.listenerFactory = listenerFactory;
+        this.maxSendQueueBytes = maxSendQueueBytes;
+        this.maxSendQueueMessages = maxSendQueueMessages;
+        this.admission = admission;
+    }
+
+    public void bind(InetSocketAddress address, int backlog) throws IOException {
+        ServerSocketChannel first = ServerSocketChannel.open();
+        boolean reusePort = acceptorLoops.length > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        serverChannels.add(first);
+        configure(first, reusePort).bind(address, backlog);
+        InetSocketAddress bound = new InetSocketAddress(address.getAddress(), first.socket().getLocalPort());
+        for (int i = 1; reusePort && i < acceptorLoops.length; i++) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            serverChannels.add(channel);
+            configure(channel, true).bind(bound, backlog);
+        }
+
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+        if (acceptorLoops.length == 0) {
+            eventLoops[0].registerAcceptor(first, () -> accept(first));
+            return;
+        }
+        for (int i = 0; i < acceptorLoops.length; i++) {
+            ServerSocketChannel channel = serverChannels.get(reusePort ? i : 0);
+            acceptorLoops[i].start();
+            acceptorLoops[i].registerAcceptor(channel, () -> accept(channel));
+        }
+    }
+
+    private static ServerSocketChannel configure(ServerSocketChannel channel, boolean reusePort) throws IOException {
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        if (reusePort) {
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    public int getLocalPort() {
+        return serverChannels.isEmpty() ? -1 : serverChannels.get(0).socket().getLocalPort();
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                if (!admit(channel)) continue;
+                OutboundQueue sendQueue = new OutboundQueue(maxSendQueueBytes, maxSendQueueMessages);
+                int next = Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length);
+                eventLoops[next].register(channel, sendQueue, listenerFactory);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean admit(SocketChannel channel) {
+        if (admission == null) return true;
+        try {
+            InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+            AdmissionControl.Verdict verdict = admission.tryAdmit(remote.getAddress());
+            if (verdict == AdmissionControl.Verdict.ADMITTED) return true;
+            // A fresh socket has room for a couple of short lines, so this write does not come back partial.
+            channel.configureBlocking(false);
+            channel.write(admission.rejection(verdict));
+        } catch (IOException ignored) {
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        return false;
+    }
+
+    public void close() {
+        try {
+            for (ServerSocketChannel serverChannel : serverChannels) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (NioEventLoop acceptorLoop : acceptorLoops) {
+            acceptorLoop.shutdown();
+        }
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+}
@@ -1,27 +1,138 @@
 package com.example.irc.Connection.Server;
 
-import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.BlockingConnection;
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.OutboundQueue;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ServerConnection implements Connection {
+public class ServerConnection implements BlockingConnection {
     private final Socket clientSocket;
     private final BufferedReader reader;
-    private final PrintWriter writer;
+    private final OutputStream output;
+    private final OutboundQueue sendQueue;
+    private final Executor writeExecutor;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile ConnectionListener listener;
+    private volatile boolean finalFrameQueued;
 
     public ServerConnection(Socket clientSocket) throws IOException {
+        this(clientSocket, Runnable::run, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    public ServerConnection(Socket clientSocket, Executor writeExecutor,
+                            long maxSendQueueBytes, int maxSendQueueMessages) throws IOException {
         this.clientSocket = clientSocket;
-        this.reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-        this.writer = new PrintWriter(clientSocket.getOutputStream(), true);
+        this.reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8));
+        this.output = new BufferedOutputStream(clientSocket.getOutputStream());
+        this.sendQueue = new OutboundQueue(maxSendQueueBytes, maxSendQueueMessages);
+        this.writeExecutor = writeExecutor;
+    }
+
+    // Only told about send queue overflow; lines are still pulled with receive().
+    public void setListener(ConnectionListener listener) {
+        this.listener = listener;
+    }
+
+    public InetAddress getInetAddress() {
+        return clientSocket.getInetAddress();
+    }
+
+    public OutboundQueue getSendQueue() {
+        return sendQueue;
     }
 
     @Override
     public void send(String message) {
-        writer.println(message);
+        send(Frame.of(message));
+    }
+
+    // Never blocks the caller: the frame is queued and written by a drain task on writeExecutor.
+    @Override
+    public void send(Frame frame) {
+        if (clientSocket.isClosed() || finalFrameQueued) return;
+        if (!sendQueue.offer(frame.buffer())) {
+            ConnectionListener listener = this.listener;
+            if (listener != null) {
+                listener.onSendQueueExceeded();
+            } else {
+                sendQueue.clear();
+                closeQuietly();
+            }
+            return;
+        }
+        scheduleDrain();
+    }
+
+    // The drain task polls a frame before writing it, so everything still queued is unstarted.
+    @Override
+    public void sendFinal(Frame frame) {
+        if (clientSocket.isClosed()) return;
+        finalFrameQueued = true;
+        sendQueue.clear();
+        sendQueue.offer(frame.buffer());
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                writeExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                sendQueue.clear();
+                closeQuietly();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            do {
+                ByteBuffer frame;
+                while ((frame = sendQueue.poll()) != null) {
+                    output.write(frame.array(), frame.arrayOffset(), frame.limit());
+                }
+                output.flush();
+                drainScheduled.set(false);
+            } while (!sendQueue.isEmpty() && drainScheduled.compareAndSet(false, true));
+            sendQueue.notifyDrained();
+        } catch (IOException e) {
+            sendQueue.clear();
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            clientSocket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return sendQueue.getQueuedBytes();
+    }
+
+    @Override
+    public int getQueuedMessages() {
+        return sendQueue.getQueuedMessages();
+    }
+
+    @Override
+    public boolean onDrained(Runnable task) {
+        return isConnected() && sendQueue.onDrained(task);
     }
 
     @Override
@@ -1,7 +1,7 @@
 package com.example.irc;
 
+import com.example.irc.Connection.BlockingConnection;
 import com.example.irc.Connection.Client.ClientConnectionFactory;
-import com.example.irc.Connection.Connection;
 import com.example.irc.Connection.ConnectionFactory;
 import com.example.irc.MessageHandler.ClientMessageHandler;
 import com.example.irc.MessageHandler.MessageCallback;
@@ -17,7 +17,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 public class IRCClient {
     private final BufferedReader consoleReader;
-    private final AtomicReference<Connection> connectionRef;
+    private final AtomicReference<BlockingConnection> connectionRef;
     private final ConnectionFactory connectionFactory;
     private final ClientMessageHandler messageHandler;
 
@@ -25,6 +25,7 @@ public class IRCClient {
     private int currentServerPort;
     private String username;
     private String password;
+    private volatile String resumeToken;
     private volatile boolean isRunning;
     private volatile boolean isReconnecting;
 
@@ -111,11 +112,22 @@ public class IRCClient {
             public void reconnectToServer(String host, int port) {
                 handleServerChange(host, port);
             }
+
+            @Override
+            public void onResumeToken(String token) {
+                resumeToken = token;
+            }
+
+            @Override
+            public void onResumeFailed() {
+                resumeToken = null;
+                sendCommand("PRIVMSG" + " " + username + " " + password);
+            }
         });
     }
 
     private synchronized void sendCommand(String command) {
-        Connection conn = connectionRef.get();
+        BlockingConnection conn = connectionRef.get();
         if (conn != null && !isReconnecting) {
             try {
                 conn.send(command);
@@ -148,7 +160,7 @@ public class IRCClient {
             socket.setSoTimeout(SOCKET_TIMEOUT_MS);
             socket.setKeepAlive(true);
 
-            Connection connection = connectionFactory.createConnection(socket);
+            BlockingConnection connection = connectionFactory.createConnection(socket);
             connectionRef.set(connection);
 
             connection.send("PRIVMSG" +" " + username +" " + password);
@@ -166,7 +178,7 @@ public class IRCClient {
     }
 
     private void cleanupConnection() {
-        Connection existingConnection = connectionRef.get();
+        BlockingConnection existingConnection = connectionRef.get();
         if (existingConnection != null) {
             try {
                 existingConnection.close();
@@ -210,9 +222,16 @@ public class IRCClient {
                     socket.setSoTimeout(SOCKET_TIMEOUT_MS);
                     socket.setKeepAlive(true);
 
-                    Connection newConnection = connectionFactory.createConnection(socket);
+                    BlockingConnection newConnection = connectionFactory.createConnection(socket);
                     connectionRef.set(newConnection);
 
+                    // A resume token skips the password hash on the server; fall back to credentials without one.
+                    String token = resumeToken;
+                    if (token != null) {
+                        newConnection.send("RESUME " + token);
+                    } else {
+                        newConnection.send("PRIVMSG" + " " + username + " " + password);
+                    }
                     newConnection.send("NICK " + username);
                     newConnection.send("USER " + username + " 0 * :Java IRC Client");
 
@@ -250,7 +269,7 @@ public class IRCClient {
                 }
             }
 
-            Connection connection = connectionRef.get();
+            BlockingConnection connection = connectionRef.get();
             if (connection == null) {
                 try {
                     Thread.sleep(1000);
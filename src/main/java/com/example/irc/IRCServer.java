@@ -1,143 +1,508 @@
 package com.example.irc;
 
+import com.example.irc.Chat.ChannelFilter;
+import com.example.irc.Chat.ChannelHistory;
+import com.example.irc.Chat.ChannelListing;
+import com.example.irc.Chat.ChannelShards;
 import com.example.irc.Chat.ChatRoom;
 import com.example.irc.Chat.ChatUser;
+import com.example.irc.Chat.HistoryBudget;
+import com.example.irc.Chat.ParallelFanOut;
+import com.example.irc.Connection.AsyncHostResolver;
+import com.example.irc.Connection.BlockingConnection;
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.HostResolver;
+import com.example.irc.Connection.Server.AdmissionControl;
+import com.example.irc.Connection.Server.ConnectionListener;
+import com.example.irc.Connection.Server.NioServerTransport;
+import com.example.irc.Connection.Server.ServerConnection;
+import com.example.irc.Link.LinkManager;
+import com.example.irc.Link.LocalNetwork;
+import com.example.irc.Link.RemoteUser;
+import com.example.irc.Link.ServerLink;
+import com.example.irc.Log.MessageLog;
+import com.example.irc.Search.SearchIndex;
+import com.example.irc.MessageHandler.FloodControl;
+import com.example.irc.MessageHandler.IrcCommand;
+import com.example.irc.MessageHandler.IrcMessage;
+import com.example.irc.MessageHandler.TokenBucket;
+import com.example.irc.Metrics.Histogram;
+import com.example.irc.Metrics.ServerMetrics;
+import com.example.irc.Timer.HashedWheelTimer;
+import com.example.irc.Timer.Timeout;
+import com.example.irc.User.AuthExecutor;
+import com.example.irc.User.NickRegistry;
+import com.example.irc.User.ResumeTokens;
 import com.example.irc.User.User;
 import com.example.irc.User.UserDatabaseSingleton;
 import com.example.irc.User.UserService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 @Component
 public class IRCServer {
     private final Set<ClientHandler> clients = ConcurrentHashMap.newKeySet();
+    private final NickRegistry<ClientHandler> nicks = new NickRegistry<>();
     private final Map<String, ChatRoom> chatRooms = new ConcurrentHashMap<>();
-    private final Map<String, String> channelTopics = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> channelCreationTimes = new ConcurrentHashMap<>();
-    private final Map<String, Set<UserChannelInfo>> channelUsers = new ConcurrentHashMap<>();
+    private final ChannelShards channelShards;
+    // Null when parallel fan-out is switched off with a threshold of zero.
+    private final ParallelFanOut fanOut;
+    private final Map<String, ClientHandler> localUids = new ConcurrentHashMap<>();
     private final UserDatabaseSingleton userDatabase;
     private final ServerConfig serverConfig;
+    private final ThreadFactory clientThreadFactory;
+    private final AsyncHostResolver hostResolver;
+    private final AuthExecutor authExecutor;
+    private final ResumeTokens resumeTokens;
+    private final HistoryBudget historyBudget;
+    private final AtomicLong historyBatches = new AtomicLong();
+    private final AtomicLong guestNicks = new AtomicLong();
+    private final LongAdder sendQueueEvictions = new LongAdder();
+    private final MessageLog messageLog;
+    private final SearchIndex searchIndex;
+    private final AdmissionControl admission;
+    private final LinkManager links;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final Map<FloodControl.CommandClass, FloodControl.Budget> floodBudgets = new EnumMap<>(FloodControl.CommandClass.class);
+    private final Map<String, TokenBucket> channelFloodBuckets = new ConcurrentHashMap<>();
+    private final Set<String> permanentChannels;
+    // Clients over their budget share this one thread, so a flooder only ever slows down other flooders.
+    private final ExecutorService penaltyExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("irc-fakelag").daemon().factory());
+    // Applies finished auth jobs and replays the lines held back meanwhile, off whichever thread completed the job.
+    private final ExecutorService authCompletionExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("irc-auth-done-", 0).factory());
+    private final Map<IrcCommand, BiConsumer<ClientHandler, IrcMessage>> commandHandlers = new EnumMap<>(IrcCommand.class);
+    private ExecutorService writeExecutor;
     private volatile boolean running;
     private ServerSocket serverSocket;
-    private final String SERVER_NAME = "MyIRCServer";
+    private NioServerTransport nioTransport;
+    private HashedWheelTimer livenessTimer;
+    private final String SERVER_NAME;
     private final String SERVER_VERSION = "1.0.1";
-    private static final int SOCKET_TIMEOUT = 600000;
-    private static final int PING_INTERVAL = 30000;
-    private static final int PONG_TIMEOUT = 10000;
-
-    private record UserChannelInfo(String username, String email, User user) {
-
-        @Override
-            public boolean equals(Object o) {
-                if (this == o) return true;
-                if (o == null || getClass() != o.getClass()) return false;
-                UserChannelInfo that = (UserChannelInfo) o;
-                return username.equals(that.username);
-            }
-
-            @Override
-            public int hashCode() {
-                return Objects.hash(username);
-            }
-        }
+    private static final int LIVENESS_TICK_MS = 100;
+    private static final int LIVENESS_WHEEL_SIZE = 512;
+    private static final int MAX_NICK_LENGTH = 30;
+    private static final int MAX_DEFERRED_LINES = 64;
+    private static final int SHARD_RETRY_MILLIS = 10;
+    private static final int MAX_GUEST_NICK_ATTEMPTS = 10;
+    private static final int SEARCH_DEFAULT_LIMIT = 50;
+    private static final DateTimeFormatter HISTORY_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
 
     @Autowired
     public IRCServer(UserService userService, ServerConfig serverConfig) {
+        this(userService, serverConfig, HostResolver.SYSTEM);
+    }
+
+    public IRCServer(UserService userService, ServerConfig serverConfig, HostResolver hostResolver) {
         this.userDatabase = UserDatabaseSingleton.getInstance(userService);
         this.serverConfig = serverConfig;
+        this.SERVER_NAME = serverConfig.getServerName();
+        if (serverConfig.isLinkEnabled() && serverConfig.getLinkPassword().isBlank()) {
+            throw new IllegalStateException("irc.server.link-password must be set when irc.server.link-enabled is true");
+        }
+        this.channelShards = new ChannelShards(serverConfig.getChannelShards(), serverConfig.getChannelShardQueueCapacity());
+        this.fanOut = serverConfig.getFanoutParallelThreshold() > 0
+                ? new ParallelFanOut(serverConfig.getFanoutThreads(), serverConfig.getFanoutParallelThreshold(),
+                        serverConfig.getFanoutPartitionSize())
+                : null;
+        this.clientThreadFactory = serverConfig.isVirtualThreads()
+                ? Thread.ofVirtual().name("irc-client-", 0).factory()
+                : Thread.ofPlatform().name("irc-client-", 0).factory();
+        this.hostResolver = new AsyncHostResolver(hostResolver, serverConfig.getDnsResolverThreads(),
+                serverConfig.getDnsTimeoutMillis(), serverConfig.getDnsCacheTtlMillis(), serverConfig.getDnsCacheMaxEntries());
+        this.authExecutor = new AuthExecutor(serverConfig.getAuthThreads(), serverConfig.getAuthQueueCapacity());
+        this.resumeTokens = new ResumeTokens(serverConfig.getResumeTokenTtlMillis(), serverConfig.getResumeTokenMaxEntries());
+        this.historyBudget = new HistoryBudget(serverConfig.getHistoryGlobalMaxBytes());
+        this.messageLog = serverConfig.isMessageLogEnabled() ? openMessageLog(serverConfig) : null;
+        this.searchIndex = serverConfig.isSearchEnabled()
+                ? new SearchIndex(serverConfig.getSearchMaxBytes(), serverConfig.getSearchSegmentDocs(), serverConfig.getSearchQueueCapacity())
+                : null;
+        this.admission = new AdmissionControl(SERVER_NAME, serverConfig.getMaxConnections(), serverConfig.getMaxConnectionsPerIp());
+        this.links = new LinkManager(SERVER_NAME, serverConfig.getLinkPassword(), serverConfig.getLinkReconnectMillis(),
+                serverConfig.getLinkSendQueueMaxBytes(), new NetworkBridge());
+        initializeCommandHandlers();
+        initializeFloodBudgets();
+        initializeGauges();
         createChannel("#main", "Welcome to the main channel!");
         createChannel("#help", "Get help with IRC commands and features");
+        this.permanentChannels = Set.copyOf(chatRooms.keySet());
+    }
+
+    private void initializeCommandHandlers() {
+        commandHandlers.put(IrcCommand.REGISTER, ClientHandler::handleRegisterCommand);
+        commandHandlers.put(IrcCommand.AUTH, ClientHandler::handleAuthCommand);
+        commandHandlers.put(IrcCommand.JOIN, ClientHandler::handleJoinCommand);
+        commandHandlers.put(IrcCommand.PART, ClientHandler::handlePartCommand);
+        commandHandlers.put(IrcCommand.LIST, ClientHandler::handleListCommand);
+        commandHandlers.put(IrcCommand.NAMES, ClientHandler::handleNamesCommand);
+        commandHandlers.put(IrcCommand.PRIVMSG, ClientHandler::handlePrivMsgCommand);
+        commandHandlers.put(IrcCommand.QUIT, ClientHandler::handleQuitCommand);
+        commandHandlers.put(IrcCommand.PONG, ClientHandler::handlePongCommand);
+        commandHandlers.put(IrcCommand.NICK, ClientHandler::handleNickCommand);
+        commandHandlers.put(IrcCommand.WHOIS, ClientHandler::handleWhoisCommand);
+        commandHandlers.put(IrcCommand.RESUME, ClientHandler::handleResumeCommand);
+        commandHandlers.put(IrcCommand.CHATHISTORY, ClientHandler::handleChatHistoryCommand);
+        commandHandlers.put(IrcCommand.SEARCH, ClientHandler::handleSearchCommand);
+        commandHandlers.put(IrcCommand.STATS, ClientHandler::handleStatsCommand);
+        commandHandlers.put(IrcCommand.CONNECT, ClientHandler::handleConnectCommand);
+        commandHandlers.put(IrcCommand.SQUIT, ClientHandler::handleSquitCommand);
+    }
+
+    private void initializeFloodBudgets() {
+        floodBudgets.put(FloodControl.CommandClass.MESSAGE, new FloodControl.Budget(
+                serverConfig.getFloodMessagesPerSecond(), serverConfig.getFloodMessageBurst()));
+        floodBudgets.put(FloodControl.CommandClass.MEMBERSHIP, new FloodControl.Budget(
+                serverConfig.getFloodMembershipPerSecond(), serverConfig.getFloodMembershipBurst()));
+        floodBudgets.put(FloodControl.CommandClass.QUERY, new FloodControl.Budget(
+                serverConfig.getFloodQueriesPerSecond(), serverConfig.getFloodQueryBurst()));
+    }
+
+    private void initializeGauges() {
+        metrics.gauge("clients.connected", clients::size);
+        metrics.gauge("clients.authenticated", () -> clients.stream().filter(client -> client.isAuthenticated).count());
+        metrics.gauge("channels", chatRooms::size);
+        metrics.gauge("channels.shard.queued", channelShards::getQueued);
+        metrics.gauge("channels.shard.throttled", channelShards::getThrottled);
+        metrics.gauge("connections.open", () -> admission.getStats().open());
+        metrics.gauge("sendq.bytes.total", () -> clients.stream().mapToLong(client -> client.connection.getQueuedBytes()).sum());
+        metrics.gauge("sendq.evictions", sendQueueEvictions::sum);
+        metrics.gauge("sendq.bytes.max", () -> clients.stream().mapToLong(client -> client.connection.getQueuedBytes()).max().orElse(0));
+        metrics.gauge("auth.queued", () -> authExecutor.getStats().queued());
+        metrics.gauge("links", () -> links.getStats().links());
+        metrics.gauge("users.remote", () -> links.getStats().remoteUsers());
+    }
+
+    private ChatRoom createChannel(String name, String topic) {
+        return chatRooms.computeIfAbsent(name, key -> {
+            metrics.addChannel(key);
+            channelFloodBuckets.put(key, new TokenBucket(
+                    serverConfig.getFloodChannelMessagesPerSecond(), serverConfig.getFloodChannelMessageBurst()));
+            return new ChatRoom(key, topic, newHistory(), fanOut);
+        });
+    }
+
+    // On the channel's shard, after a member left. Channels other than the startup ones go once nobody
+    // local or remote is in them, and their history gives its memory back to the shared budget.
+    private void dropIfEmpty(ChatRoom room) {
+        String name = room.getName();
+        if (room.getUserCount() > 0 || permanentChannels.contains(name) || !links.getRemoteNames(name).isEmpty()) return;
+        if (!chatRooms.remove(name, room)) return;
+        channelFloodBuckets.remove(name);
+        metrics.removeChannel(name);
+        if (room.getHistory() != null) {
+            room.getHistory().release();
+        }
+    }
+
+    private static MessageLog openMessageLog(ServerConfig config) {
+        try {
+            return new MessageLog(Path.of(config.getMessageLogDirectory()), config.getMessageLogSegmentBytes(),
+                    config.getMessageLogIndexIntervalBytes(), config.getMessageLogSegmentRollMillis(),
+                    config.getMessageLogRetentionMillis(), config.getMessageLogFlushIntervalMillis(),
+                    config.getMessageLogQueueCapacity());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open message log in " + config.getMessageLogDirectory(), e);
+        }
     }
 
-    private void createChannel(String name, String topic) {
-        chatRooms.putIfAbsent(name, new ChatRoom(name));
-        channelTopics.putIfAbsent(name, topic);
-        channelCreationTimes.putIfAbsent(name, LocalDateTime.now());
-        channelUsers.putIfAbsent(name, ConcurrentHashMap.newKeySet());
+    public SearchIndex.Stats getSearchStats() {
+        return searchIndex != null ? searchIndex.getStats() : null;
+    }
+
+    public MessageLog.Stats getMessageLogStats() {
+        return messageLog != null ? messageLog.getStats() : null;
+    }
+
+    private ChannelHistory newHistory() {
+        if (serverConfig.getHistoryMaxLines() <= 0) return null;
+        return new ChannelHistory(serverConfig.getHistoryMaxLines(), serverConfig.getHistoryMaxBytes(),
+                serverConfig.isHistoryOffHeap(), historyBudget);
     }
 
     @PostConstruct
     public void startServer() {
         running = true;
-        new Thread(() -> {
-            try {
-                serverSocket = new ServerSocket();
-                serverSocket.setReuseAddress(true);
-                serverSocket.bind(new InetSocketAddress(serverConfig.getDefaultPort()));
-                System.out.println("IRC Server started on port " + serverConfig.getDefaultPort());
-
-                while (running) {
-                    Socket socket = serverSocket.accept();
-                    socket.setKeepAlive(true);
-
-                    ClientHandler clientHandler = new ClientHandler(socket);
-                    clients.add(clientHandler);
-                    new Thread(clientHandler).start();
+        livenessTimer = new HashedWheelTimer("irc-liveness-timer", LIVENESS_TICK_MS, TimeUnit.MILLISECONDS, LIVENESS_WHEEL_SIZE);
+        livenessTimer.start();
+        if (serverConfig.getTransport() == ServerConfig.Transport.NIO) {
+            startNioServer();
+        } else {
+            startBlockingServer();
+        }
+        if (serverConfig.isLinkEnabled()) {
+            startLinks();
+        }
+    }
+
+    private void startLinks() {
+        try {
+            links.listen(new InetSocketAddress(serverConfig.getLinkBindAddress(), serverConfig.getLinkPort()));
+            System.out.println("Accepting server links on " + serverConfig.getLinkBindAddress() + ":" + links.getLocalPort() +
+                    " as " + SERVER_NAME);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        serverConfig.getLinkPeers().forEach(links::connect);
+    }
+
+    private void startBlockingServer() {
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(serverConfig.getDefaultPort()), serverConfig.getAcceptBacklog());
+            System.out.println("IRC Server started on port " + serverSocket.getLocalPort() +
+                    (serverConfig.isVirtualThreads() ? " (virtual threads)" : ""));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        writeExecutor = serverConfig.isVirtualThreads()
+                ? Executors.newThreadPerTaskExecutor(clientThreadFactory)
+                : Executors.newCachedThreadPool(Thread.ofPlatform().name("irc-writer-", 0).daemon().factory());
+
+        for (int i = 0; i < Math.max(1, serverConfig.getAcceptorThreads()); i++) {
+            Thread acceptor = new Thread(this::acceptBlockingClients, "irc-acceptor-" + i);
+            acceptor.start();
+        }
+    }
+
+    // Acceptors only admit; stream setup happens on the client's own thread so a storm does not queue behind it.
+    private void acceptBlockingClients() {
+        try {
+            while (running) {
+                Socket socket = serverSocket.accept();
+                AdmissionControl.Verdict verdict = admission.tryAdmit(socket.getInetAddress());
+                if (verdict != AdmissionControl.Verdict.ADMITTED) {
+                    reject(socket, verdict);
+                    continue;
                 }
+                clientThreadFactory.newThread(() -> serveBlockingClient(socket)).start();
+            }
+        } catch (IOException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void reject(Socket socket, AdmissionControl.Verdict verdict) {
+        try (socket) {
+            Channels.newChannel(socket.getOutputStream()).write(admission.rejection(verdict));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void serveBlockingClient(Socket socket) {
+        ServerConnection connection;
+        try {
+            socket.setKeepAlive(true);
+            socket.setTcpNoDelay(true);
+            connection = new ServerConnection(socket, writeExecutor,
+                    serverConfig.getSendQueueMaxBytes(), serverConfig.getSendQueueMaxMessages());
+        } catch (IOException e) {
+            admission.release(socket.getInetAddress());
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        ClientHandler clientHandler = attach(connection, socket.getInetAddress());
+        connection.setListener(clientHandler);
+        clientHandler.readLines(connection);
+    }
+
+    private ClientHandler attach(Connection connection, InetAddress address) {
+        ClientHandler clientHandler = new ClientHandler(connection, address);
+        clients.add(clientHandler);
+        clientHandler.startLivenessCheck();
+        return clientHandler;
+    }
+
+    /**
+     * Serves a client on an in-memory connection; lines are fed to the returned listener. Lets benchmarks
+     * drive the command path without sockets.
+     */
+    ConnectionListener connect(Connection connection, InetAddress address) {
+        return attach(connection, address);
+    }
+
+    private void startNioServer() {
+        try {
+            nioTransport = new NioServerTransport(serverConfig.getEventLoopThreads(), serverConfig.getAcceptorThreads(),
+                    serverConfig.getSendQueueMaxBytes(), serverConfig.getSendQueueMaxMessages(), admission,
+                    connection -> attach(connection, connection.getInetAddress()));
+            nioTransport.bind(new InetSocketAddress(serverConfig.getDefaultPort()), serverConfig.getAcceptBacklog());
+            System.out.println("IRC Server started on port " + nioTransport.getLocalPort() + " (NIO)");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void stopServer() {
+        running = false;
+        if (livenessTimer != null) {
+            livenessTimer.stop();
+        }
+        links.close();
+        if (nioTransport != null) {
+            nioTransport.close();
+        }
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
             } catch (IOException e) {
-                if (running) {
-                    e.printStackTrace();
-                }
+                e.printStackTrace();
             }
-        }).start();
+        }
+        new ArrayList<>(clients).forEach(ClientHandler::cleanup);
+        channelShards.shutdown();
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+        penaltyExecutor.shutdown();
+        authCompletionExecutor.shutdown();
+        if (writeExecutor != null) {
+            writeExecutor.shutdown();
+        }
+        hostResolver.shutdown();
+        authExecutor.shutdown();
+        if (messageLog != null) {
+            messageLog.close();
+        }
+        if (searchIndex != null) {
+            searchIndex.close();
+        }
+    }
+
+    public int getLocalPort() {
+        if (nioTransport != null) {
+            return nioTransport.getLocalPort();
+        }
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    int getClientCount() {
+        return clients.size();
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    ChannelShards getChannelShards() {
+        return channelShards;
     }
 
-    private class ClientHandler implements Runnable {
-        private boolean isAuthenticated = false;
-        private final Socket socket;
-        private final BufferedReader in;
-        private final PrintWriter out;
-        private User user;
-        private String username = "";
-        private final Set<String> channels = new HashSet<>();
+    public AdmissionControl.Stats getAdmissionStats() {
+        return admission.getStats();
+    }
+
+    public AuthExecutor.Stats getAuthStats() {
+        return authExecutor.getStats();
+    }
+
+    public int getLinkPort() {
+        return links.getLocalPort();
+    }
+
+    public LinkManager.Stats getLinkStats() {
+        return links.getStats();
+    }
+
+    public List<ServerLink.Info> getServerLinks() {
+        return links.getLinks();
+    }
+
+    private class ClientHandler implements ConnectionListener {
+        private volatile boolean isAuthenticated = false;
+        private final Connection connection;
+        private final InetAddress address;
+        private volatile String hostname;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final IrcMessage message = new IrcMessage();
+        private volatile User user;
+        private volatile String username = "";
+        private String nickKey;
+        // Network-wide identity for server links, and when the current nick was taken (0 until then).
+        private volatile String uid;
+        private volatile long nickTs;
+        private ChatUser member;
+        private final Set<String> channels = ConcurrentHashMap.newKeySet();
         private boolean registered = false;
-        private long lastPingSent = 0;
-        private long lastMessageReceived = 0;
-        private boolean waitingForPong = false;
+        private final AtomicLong lastMessageReceived = new AtomicLong();
+        private final AtomicBoolean waitingForPong = new AtomicBoolean();
+        private volatile Timeout livenessTimeout;
         private LocalDateTime connectionTime;
         private String awayMessage = null;
+        // Lines that arrive while an auth job or a flood penalty is pending wait here, in order; guarded by itself.
+        private final Deque<String> deferredLines = new ArrayDeque<>();
+        private boolean deferring;
+        private boolean authInFlight;
+        private boolean penaltyPending;
+        // The line being handled, so a command refused by a busy channel shard can be deferred and retried.
+        private String currentLine;
+        // The blocking transport's reader, the only thread of this client's that may wait for a busy shard.
+        private volatile Thread reader;
+        private final FloodControl floodControl = serverConfig.isFloodControlEnabled() ? new FloodControl(floodBudgets) : null;
 
-        public ClientHandler(Socket socket) throws IOException {
-            this.socket = socket;
-            this.socket.setSoTimeout(SOCKET_TIMEOUT);
-            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            this.out = new PrintWriter(socket.getOutputStream(), true);
-            this.lastMessageReceived = System.currentTimeMillis();
+        public ClientHandler(Connection connection, InetAddress address) {
+            this.connection = connection;
+            this.address = address;
+            this.hostname = address.getHostAddress();
+            hostResolver.resolve(address).thenAccept(resolved -> this.hostname = resolved);
+            this.lastMessageReceived.set(System.currentTimeMillis());
             this.connectionTime = LocalDateTime.now();
         }
 
         private void sendNumericReply(int code, String message) {
-            out.println(":" + SERVER_NAME + " " + String.format("%03d", code) + " " +
+            connection.send(":" + SERVER_NAME + " " + String.format("%03d", code) + " " +
                     (username.isEmpty() ? "*" : username) + " " + message);
         }
 
         private void sendServerMessage(String message) {
-            out.println(":" + SERVER_NAME + " NOTICE " + username + " :" + message);
+            connection.send(":" + SERVER_NAME + " NOTICE " + username + " :" + message);
         }
 
-        @Override
-        public void run() {
-            try {
-                startPingChecker();
+        // Operator rights follow the authenticated account, not the nick, which anyone can change to.
+        private boolean isOperator() {
+            User account = user;
+            return isAuthenticated && account != null && serverConfig.getOperators().contains(account.getUsername());
+        }
 
+        // The blocking transport's reader thread; NIO connections call onLine instead.
+        private void readLines(BlockingConnection source) {
+            reader = Thread.currentThread();
+            try {
                 String line;
-                while ((line = readLineWithTimeout()) != null) {
-                    lastMessageReceived = System.currentTimeMillis();
-                    if (waitingForPong && line.startsWith("PONG")) {
-                        waitingForPong = false;
-                    }
-                    handleIRCMessage(line);
+                while ((line = source.receive()) != null) {
+                    onLine(line);
                 }
-            } catch (SocketTimeoutException e) {
-                System.out.println("Client timeout (no response): " + username);
             } catch (IOException e) {
                 if (running) {
                     System.out.println("Client connection error: " + e.getMessage());
@@ -147,128 +512,730 @@ public class IRCServer {
             }
         }
 
-        private String readLineWithTimeout() throws IOException {
-            try {
-                return in.readLine();
-            } catch (SocketTimeoutException e) {
-                if (waitingForPong && System.currentTimeMillis() - lastPingSent > PONG_TIMEOUT) {
-                    throw new SocketTimeoutException("PING timeout");
-                }
-                return null;
-            }
-        }
-
-        private void startPingChecker() {
-            new Thread(() -> {
-                while (!socket.isClosed()) {
-                    try {
-                        Thread.sleep(PING_INTERVAL);
-                        long now = System.currentTimeMillis();
-                        if (now - lastMessageReceived > PING_INTERVAL && !waitingForPong) {
-                            sendPing();
-                        }
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+        @Override
+        public void onLine(String line) {
+            lastMessageReceived.set(System.currentTimeMillis());
+            if (line.startsWith("PONG")) {
+                waitingForPong.set(false);
+            }
+            // Whatever is being waited for, an auth job or a flood penalty, a client that overruns the buffer is dropped.
+            boolean excessFlood;
+            synchronized (deferredLines) {
+                if (deferring && deferredLines.size() < MAX_DEFERRED_LINES) {
+                    deferredLines.add(line);
+                    return;
                 }
-            }).start();
+                excessFlood = deferring;
+            }
+            if (excessFlood) {
+                connection.send("ERROR :Closing Link: " + hostname + " (Excess Flood)");
+                cleanup(true);
+                return;
+            }
+            handleIRCMessage(line);
         }
 
-        private void sendPing() {
-            out.println("PING :" + SERVER_NAME);
-            out.flush();
-            lastPingSent = System.currentTimeMillis();
-            waitingForPong = true;
+        @Override
+        public void onClose() {
+            cleanup();
         }
 
-        private void handleIRCMessage(String message) {
-            if (message == null) return;
-            String[] parts = message.split(" ", 3);
-            if (parts.length == 0) return;
+        // Called on whichever thread overflowed the queue, often a channel shard mid-broadcast.
+        @Override
+        public void onSendQueueExceeded() {
+            if (closed.get()) return;
+            System.out.println("Client SendQ exceeded: " + username);
+            sendQueueEvictions.increment();
+            connection.sendFinal(Frame.of("ERROR :Closing Link: " + hostname + " (SendQ exceeded)"));
+            cleanup(true, "SendQ exceeded");
+        }
 
-            String command = parts[0].toUpperCase();
-            switch (command) {
-                case "REGISTER":
-                    if (parts.length < 3) {
-                        sendNumericReply(461, "REGISTER :Not enough parameters. Usage: REGISTER <username> <password> <email>");
-                        return;
-                    }
-                    handleRegistration(parts[1], parts[2], parts[1] + "@example.com");
-                    break;
+        private void startLivenessCheck() {
+            scheduleIdleCheck(serverConfig.getPingIntervalMillis());
+        }
 
-                case "AUTH":
-                    if (parts.length < 3) {
-                        sendNumericReply(461, "AUTH :Not enough parameters. Usage: AUTH <username> <password>");
-                        return;
-                    }
-                    handleAuthentication(parts[1], parts[2]);
-                    break;
+        private void scheduleIdleCheck(long delayMillis) {
+            livenessTimeout = livenessTimer.schedule(this::checkIdle, delayMillis, TimeUnit.MILLISECONDS);
+        }
 
-                case "JOIN":
-                    if (!isAuthenticated) {
-                        sendNumericReply(484, ":Must authenticate first");
-                        return;
-                    }
-                    if (parts.length < 2) return;
-                    String channelName = parts[1].startsWith("#") ? parts[1] : "#" + parts[1];
-                    joinChannel(channelName);
-                    break;
+        // Runs on the liveness timer thread. Traffic only bumps a timestamp, so a busy client
+        // costs one reschedule per ping interval rather than one timer update per line.
+        private void checkIdle() {
+            if (closed.get()) return;
+            long idle = System.currentTimeMillis() - lastMessageReceived.get();
+            long pingInterval = serverConfig.getPingIntervalMillis();
+            if (idle < pingInterval) {
+                scheduleIdleCheck(pingInterval - idle);
+                return;
+            }
+            waitingForPong.set(true);
+            connection.send("PING :" + SERVER_NAME);
+            livenessTimeout = livenessTimer.schedule(this::checkPong, serverConfig.getPongTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
 
-                case "PART":
-                    if (!registered) return;
-                    if (parts.length < 2) return;
-                    String partChannel = parts[1];
-                    if (!partChannel.startsWith("#")) {
-                        partChannel = "#" + partChannel;
-                    }
-                    partChannel(partChannel);
-                    break;
+        private void checkPong() {
+            if (closed.get()) return;
+            if (waitingForPong.get()) {
+                System.out.println("Client timeout (no response): " + username);
+                cleanup();
+            } else {
+                checkIdle();
+            }
+        }
 
-                case "LIST":
-                    sendEnhancedChannelList();
+        private void handleIRCMessage(String line) {
+            if (line == null) return;
+            switch (message.parse(line)) {
+                case EMPTY, MALFORMED:
+                    return;
+                case TOO_LONG:
+                    sendNumericReply(417, ":Input line was too long");
+                    return;
+                default:
                     break;
+            }
+            if (throttle(line)) return;
+            currentLine = line;
+
+            IrcCommand command = message.getCommand();
+            BiConsumer<ClientHandler, IrcMessage> handler = commandHandlers.get(command);
+            if (handler != null) {
+                long start = System.nanoTime();
+                handler.accept(this, message);
+                metrics.recordCommand(command, System.nanoTime() - start);
+            } else if (!isAuthenticated) {
+                sendNumericReply(484, ":Must authenticate first");
+            }
+        }
+
+        private void handleRegisterCommand(IrcMessage message) {
+            if (message.getParamCount() < 2) {
+                sendNumericReply(461, "REGISTER :Not enough parameters. Usage: REGISTER <username> <password> <email>");
+                return;
+            }
+            // As before the parser existed, the password is everything after the username, spaces included.
+            String username = message.getParam(0);
+            handleRegistration(username, message.getRawParams(1), username + "@example.com");
+        }
+
+        private void handleAuthCommand(IrcMessage message) {
+            if (message.getParamCount() < 2) {
+                sendNumericReply(461, "AUTH :Not enough parameters. Usage: AUTH <username> <password>");
+                return;
+            }
+            handleAuthentication(message.getParam(0), message.getRawParams(1));
+        }
 
-                case "NAMES":
-                    if (parts.length < 2) {
-                        channels.forEach(this::sendChannelNames);
-                    } else {
-                        String namesChannel = parts[1];
-                        if (!namesChannel.startsWith("#")) {
-                            namesChannel = "#" + namesChannel;
-                        }
-                        sendChannelNames(namesChannel);
+        private void handleResumeCommand(IrcMessage message) {
+            if (message.getParamCount() < 1) {
+                sendNumericReply(461, "RESUME :Not enough parameters. Usage: RESUME <token>");
+                return;
+            }
+            // The HMAC check runs here; only the account lookup goes through the auth executor.
+            String username = resumeTokens.redeem(message.getParam(0));
+            if (username == null) {
+                connection.send(":" + SERVER_NAME + " FAIL RESUME INVALID_TOKEN :Resume token is invalid or expired");
+                return;
+            }
+            ClientHandler holder = nicks.find(username);
+            if (holder != null && holder != this) {
+                // The token proves the account, so a session that has not timed out yet is replaced.
+                holder.cleanup();
+            }
+            submitAuthJob("RESUME", () -> {
+                Optional<User> result = userDatabase.findUser(username);
+                return () -> applyAuthentication(username, result);
+            });
+        }
+
+        private void handleJoinCommand(IrcMessage message) {
+            if (!isAuthenticated) {
+                sendNumericReply(484, ":Must authenticate first");
+                return;
+            }
+            if (message.getParamCount() < 1) return;
+            joinChannel(channelParam(message, 0));
+        }
+
+        // CHATHISTORY LATEST <channel> * <limit> | BEFORE/AFTER <channel> msgid=<id> <limit>
+        private void handleChatHistoryCommand(IrcMessage message) {
+            if (!isAuthenticated) {
+                sendNumericReply(484, ":Must authenticate first");
+                return;
+            }
+            if (message.getParamCount() < 4) {
+                sendNumericReply(461, "CHATHISTORY :Not enough parameters");
+                return;
+            }
+            String subcommand = message.getParam(0).toUpperCase();
+            String target = message.getParam(1);
+            if (!channels.contains(target)) {
+                connection.send(":" + SERVER_NAME + " FAIL CHATHISTORY INVALID_TARGET " + target + " :You're not on that channel");
+                return;
+            }
+            if (subcommand.equals("BETWEEN")) {
+                sendLoggedHistory(message);
+                return;
+            }
+            ChatRoom room = chatRooms.get(target);
+            if (room == null || room.getHistory() == null) {
+                connection.send(":" + SERVER_NAME + " FAIL CHATHISTORY INVALID_TARGET " + target + " :No history for target");
+                return;
+            }
+            long reference;
+            int limit;
+            try {
+                String marker = message.getParam(2);
+                if (marker.equals("*")) {
+                    reference = subcommand.equals("AFTER") ? 0 : Long.MAX_VALUE;
+                } else {
+                    reference = Long.parseLong(marker.startsWith("msgid=") ? marker.substring(6) : marker);
+                }
+                limit = Math.min(Integer.parseInt(message.getParam(3)), serverConfig.getHistoryMaxLines());
+            } catch (NumberFormatException e) {
+                connection.send(":" + SERVER_NAME + " FAIL CHATHISTORY INVALID_PARAMS " + subcommand + " :Invalid message reference or limit");
+                return;
+            }
+            ChannelHistory history = room.getHistory();
+            switch (subcommand) {
+                case "LATEST" -> sendHistory(target, history.latest(limit));
+                case "BEFORE" -> sendHistory(target, history.before(reference, limit));
+                case "AFTER" -> sendHistory(target, history.after(reference, limit));
+                default -> connection.send(":" + SERVER_NAME + " FAIL CHATHISTORY INVALID_PARAMS " + subcommand + " :Unknown subcommand");
+            }
+        }
+
+        // CHATHISTORY BETWEEN <channel> timestamp=<from> timestamp=<to> <limit>, read from the durable log.
+        private void sendLoggedHistory(IrcMessage message) {
+            if (messageLog == null) {
+                connection.send(":" + SERVER_NAME + " FAIL CHATHISTORY INVALID_PARAMS BETWEEN :Message log is disabled");
+                return;
+            }
+            if (message.getParamCount() < 5) {
+                sendNumericReply(461, "CHATHISTORY :Not enough parameters");
+                return;
+            }
+            String target = message.getParam(1);
+            List<MessageLog.Record> records;
+            try {
+                long from = parseTimestamp(message.getParam(2));
+                long to = parseTimestamp(message.getParam(3));
+                int limit = Math.min(Integer.parseInt(message.getParam(4)), serverConfig.getHistoryMaxLines());
+                records = messageLog.scan(target, Math.min(from, to), Math.max(from, to), limit);
+            } catch (DateTimeException | NumberFormatException e) {
+                connection.send(":" + SERVER_NAME + " FAIL CHATHISTORY INVALID_PARAMS BETWEEN :Invalid timestamp or limit");
+                return;
+            }
+            String batch = "h" + historyBatches.incrementAndGet();
+            connection.send(":" + SERVER_NAME + " BATCH +" + batch + " chathistory " + target);
+            for (MessageLog.Record record : records) {
+                String tags = "@batch=" + batch + ";time=" + HISTORY_TIME.format(Instant.ofEpochMilli(record.timestamp())) + " ";
+                connection.send(Frame.prefixed(tags, record.line()));
+            }
+            connection.send(":" + SERVER_NAME + " BATCH -" + batch);
+        }
+
+        // SEARCH <channel|*> [nick=<nick>] [after=<timestamp>] [before=<timestamp>] [limit=<n>] :<words>
+        private void handleSearchCommand(IrcMessage message) {
+            if (!isAuthenticated) {
+                sendNumericReply(484, ":Must authenticate first");
+                return;
+            }
+            if (searchIndex == null) {
+                connection.send(":" + SERVER_NAME + " FAIL SEARCH INVALID_PARAMS :Search is disabled");
+                return;
+            }
+            if (message.getParamCount() < 2) {
+                sendNumericReply(461, "SEARCH :Not enough parameters");
+                return;
+            }
+            String target = message.getParam(0);
+            if (!target.equals("*") && !channels.contains(target)) {
+                connection.send(":" + SERVER_NAME + " FAIL SEARCH INVALID_TARGET " + target + " :You're not on that channel");
+                return;
+            }
+            String nick = null;
+            long from = Long.MIN_VALUE;
+            long to = Long.MAX_VALUE;
+            int limit = SEARCH_DEFAULT_LIMIT;
+            try {
+                for (int i = 1; i < message.getParamCount() - 1; i++) {
+                    String option = message.getParam(i);
+                    int equals = option.indexOf('=');
+                    if (equals < 0) throw new IllegalArgumentException(option);
+                    String value = option.substring(equals + 1);
+                    switch (option.substring(0, equals).toLowerCase()) {
+                        case "nick" -> nick = value;
+                        case "after" -> from = parseTimestamp(value);
+                        case "before" -> to = parseTimestamp(value);
+                        case "limit" -> limit = Math.min(Integer.parseInt(value), serverConfig.getHistoryMaxLines());
+                        default -> throw new IllegalArgumentException(option);
                     }
-                    break;
+                }
+            } catch (IllegalArgumentException | DateTimeException e) {
+                connection.send(":" + SERVER_NAME + " FAIL SEARCH INVALID_PARAMS :Invalid search option");
+                return;
+            }
+            String words = message.getParam(message.getParamCount() - 1);
+            // A search of every channel covers the ones the client is in, not the whole server.
+            List<SearchIndex.Hit> hits = searchIndex.search(new SearchIndex.Query(
+                    target.equals("*") ? Set.copyOf(channels) : Set.of(target), nick, from, to, words, limit));
 
-                case "PRIVMSG":
-                    if (!isAuthenticated) {
-                        handleRegistration(parts[1], parts[2], parts[1] + "@example.com");
-                        handleAuthentication(parts[1], parts[2]);
-                        return;
+            String batch = "h" + historyBatches.incrementAndGet();
+            connection.send(":" + SERVER_NAME + " BATCH +" + batch + " search " + target);
+            for (int i = hits.size() - 1; i >= 0; i--) {
+                SearchIndex.Hit hit = hits.get(i);
+                connection.send("@batch=" + batch + ";time=" + HISTORY_TIME.format(Instant.ofEpochMilli(hit.timestamp())) +
+                        " :" + hit.nick() + " PRIVMSG " + hit.channel() + " :" + hit.text());
+            }
+            connection.send(":" + SERVER_NAME + " BATCH -" + batch);
+        }
+
+        // STATS l: server links, m: per-command latency, u: uptime, f: channel fan-out, z: gauges and auth latency.
+        private void handleStatsCommand(IrcMessage message) {
+            if (!isOperator()) {
+                sendNumericReply(481, ":Permission Denied- You're not an IRC operator");
+                return;
+            }
+            String query = message.getParamCount() > 0 ? message.getParam(0) : "*";
+            switch (query) {
+                case "l" -> links.getLinks().forEach(link -> sendNumericReply(211, link.peer() + " " +
+                        link.queuedBytes() + " " + link.linesOut() + " " + link.linesIn() + " " +
+                        TimeUnit.MILLISECONDS.toSeconds(link.connectedMillis()) + (link.synced() ? "" : " :bursting")));
+                case "m" -> metrics.getCommandLatency().forEach((command, histogram) -> {
+                    if (histogram.getCount() > 0) {
+                        Histogram.Snapshot snapshot = histogram.snapshot();
+                        sendNumericReply(212, command + " " + snapshot.count() + " :" + latencySummary(snapshot));
                     }
-                    if (parts.length < 3) return;
-                    handlePrivMsg(parts[1], parts[2].startsWith(":") ? parts[2].substring(1) : parts[2]);
-                    break;
+                });
+                case "u" -> {
+                    long seconds = TimeUnit.MILLISECONDS.toSeconds(metrics.getUptimeMillis());
+                    sendNumericReply(242, String.format(":Server Up %d days %d:%02d:%02d",
+                            seconds / 86400, seconds / 3600 % 24, seconds / 60 % 60, seconds % 60));
+                }
+                case "f" -> {
+                    Histogram.Snapshot recipients = metrics.getFanOutRecipients().snapshot();
+                    sendNumericReply(249, ":fanout " + recipients.count() + " recipients p50=" + recipients.p50() +
+                            " p99=" + recipients.p99() + " max=" + recipients.max());
+                    sendNumericReply(249, ":fanout latency " + latencySummary(metrics.getFanOutNanos().snapshot()));
+                    metrics.getChannelFanOut().forEach((channel, fanOut) -> {
+                        long messages = fanOut.getMessages();
+                        if (messages == 0) return;
+                        sendNumericReply(249, ":" + channel + " messages=" + messages +
+                                " avgRecipients=" + fanOut.getRecipients() / messages +
+                                " avg=" + TimeUnit.NANOSECONDS.toMicros(fanOut.getNanos() / messages) + "us" +
+                                " max=" + TimeUnit.NANOSECONDS.toMicros(fanOut.getMaxNanos()) + "us");
+                    });
+                }
+                case "z" -> {
+                    metrics.readGauges().forEach((name, value) -> sendNumericReply(249, ":" + name + " " + value));
+                    sendNumericReply(249, ":auth latency " + latencySummary(metrics.getAuthLatency().snapshot()));
+                }
+                default -> {
+                }
+            }
+            sendNumericReply(219, query + " :End of STATS report");
+        }
 
-                case "QUIT":
-                    cleanup();
-                    break;
+        // CONNECT <host:port> starts linking to a peer; SQUIT <server> drops a direct link.
+        private void handleConnectCommand(IrcMessage message) {
+            if (!isOperator()) {
+                sendNumericReply(481, ":Permission Denied- You're not an IRC operator");
+                return;
+            }
+            if (message.getParamCount() < 1 || message.getParam(0).lastIndexOf(':') < 1) {
+                sendNumericReply(461, "CONNECT :Not enough parameters. Usage: CONNECT <host:port>");
+                return;
+            }
+            links.connect(message.getParam(0));
+            sendServerMessage("Connecting to " + message.getParam(0));
+        }
 
-                case "PONG":
-                    waitingForPong = false;
-                    break;
+        private void handleSquitCommand(IrcMessage message) {
+            if (!isOperator()) {
+                sendNumericReply(481, ":Permission Denied- You're not an IRC operator");
+                return;
+            }
+            if (message.getParamCount() < 1) {
+                sendNumericReply(461, "SQUIT :Not enough parameters");
+                return;
+            }
+            if (!links.squit(message.getParam(0))) {
+                sendNumericReply(402, message.getParam(0) + " :No such server");
+            }
+        }
 
-                default:
-                    if (!isAuthenticated && !command.equals("QUIT")) {
-                        sendNumericReply(484, ":Must authenticate first");
-                    }
+        private long parseTimestamp(String reference) {
+            return Instant.parse(reference.startsWith("timestamp=") ? reference.substring(10) : reference).toEpochMilli();
+        }
+
+        private void sendHistory(String channelName, List<ChannelHistory.Entry> entries) {
+            String batch = "h" + historyBatches.incrementAndGet();
+            connection.send(":" + SERVER_NAME + " BATCH +" + batch + " chathistory " + channelName);
+            for (ChannelHistory.Entry entry : entries) {
+                String tags = "@batch=" + batch + ";msgid=" + entry.id() +
+                        ";time=" + HISTORY_TIME.format(Instant.ofEpochMilli(entry.timestamp())) + " ";
+                connection.send(Frame.prefixed(tags, entry.line()));
+            }
+            connection.send(":" + SERVER_NAME + " BATCH -" + batch);
+        }
+
+        private void handlePartCommand(IrcMessage message) {
+            if (!registered) return;
+            if (message.getParamCount() < 1) return;
+            partChannel(channelParam(message, 0));
+        }
+
+        private void handleListCommand(IrcMessage message) {
+            if (message.getParamCount() == 0) {
+                sendEnhancedChannelList(ChannelFilter.ALL);
+                return;
+            }
+            StringJoiner conditions = new StringJoiner(",");
+            for (int i = 0; i < message.getParamCount(); i++) {
+                conditions.add(message.getParam(i));
+            }
+            sendEnhancedChannelList(ChannelFilter.parse(conditions.toString()));
+        }
+
+        private void handleNamesCommand(IrcMessage message) {
+            if (message.getParamCount() < 1) {
+                channels.forEach(this::sendChannelNames);
+            } else {
+                sendChannelNames(channelParam(message, 0));
+            }
+        }
+
+        private void handlePrivMsgCommand(IrcMessage message) {
+            if (!isAuthenticated) {
+                // IRCClient logs in by sending "PRIVMSG <username> <password>" before anything else.
+                if (message.getParamCount() < 2) {
+                    sendNumericReply(461, "PRIVMSG :Not enough parameters");
+                    return;
+                }
+                String username = message.getParam(0);
+                String password = message.getRawParams(1);
+                if (isAccountInUse(username)) return;
+                submitAsyncAuthJob("PRIVMSG", () -> userDatabase
+                        .registerUserAsync(username, password, username + "@example.com")
+                        .thenApplyAsync(registeredUser -> {
+                            Optional<User> authenticatedUser = userDatabase.authenticateUser(username, password);
+                            return () -> {
+                                applyRegistration(username, registeredUser);
+                                applyAuthentication(username, authenticatedUser);
+                            };
+                        }, authExecutor::execute));
+                return;
+            }
+            if (message.getParamCount() < 1) {
+                sendNumericReply(411, ":No recipient given (PRIVMSG)");
+                return;
+            }
+            if (message.getParamCount() < 2) {
+                sendNumericReply(412, ":No text to send");
+                return;
+            }
+            handlePrivMsg(message.getParam(0), message.getParam(1));
+        }
+
+        private void handleQuitCommand(IrcMessage message) {
+            cleanup();
+        }
+
+        private void handlePongCommand(IrcMessage message) {
+            waitingForPong.set(false);
+        }
+
+        private void handleNickCommand(IrcMessage message) {
+            if (!isAuthenticated) {
+                sendNumericReply(484, ":Must authenticate first");
+                return;
+            }
+            if (message.getParamCount() < 1) {
+                sendNumericReply(431, ":No nickname given");
+                return;
+            }
+            String nick = message.getParam(0);
+            if (!isValidNick(nick)) {
+                sendNumericReply(432, nick + " :Erroneous nickname");
+                return;
             }
+            changeNick(nick);
+        }
+
+        // Synchronized because a login can also rename this client when it holds that account's name.
+        private synchronized boolean changeNick(String nick) {
+            String oldNick = username;
+            if (nick.equals(oldNick) || !claimNick(nick)) return false;
+            announceNickChange(oldNick, nick);
+            return true;
+        }
+
+        // Moves this client aside to a free Guest nick without the 433s a plain NICK attempt would send.
+        private synchronized boolean changeToGuestNick() {
+            for (int attempt = 0; attempt < MAX_GUEST_NICK_ATTEMPTS && !closed.get(); attempt++) {
+                String guest = "Guest" + guestNicks.incrementAndGet();
+                if (!nicks.isAvailable(NickRegistry.fold(guest), this) || links.findUser(guest) != null) continue;
+                String oldNick = username;
+                if (tryClaimNick(guest)) {
+                    announceNickChange(oldNick, guest);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void announceNickChange(String oldNick, String nick) {
+            if (member != null) {
+                member.setName(nick);
+            }
+            String nickMessage = ":" + oldNick + " NICK " + nick;
+            for (String channel : channels) {
+                channelShards.execute(channel, () -> broadcastToChannel(channel, nickMessage));
+            }
+            if (channels.isEmpty()) {
+                connection.send(":" + oldNick + " NICK " + nick);
+            }
+        }
+
+        private boolean isLoggedInAs(String account) {
+            User current = user;
+            return isAuthenticated && current != null && current.getUsername().equals(account);
+        }
+
+        // An account's name belongs to it: whoever merely holds it as a nick is renamed when the owner logs in.
+        private void reclaimAccountNick(String account) {
+            ClientHandler holder = nicks.find(account);
+            if (holder == null || holder == this || holder.isLoggedInAs(account)) return;
+            holder.sendServerMessage("Nick " + account + " belongs to a registered account that has just logged in.");
+            holder.changeToGuestNick();
+        }
+
+        private void handleWhoisCommand(IrcMessage message) {
+            if (!isAuthenticated) {
+                sendNumericReply(484, ":Must authenticate first");
+                return;
+            }
+            if (message.getParamCount() < 1) {
+                sendNumericReply(431, ":No nickname given");
+                return;
+            }
+            String nick = message.getParam(message.getParamCount() - 1);
+            ClientHandler target = nicks.find(nick);
+            RemoteUser remote = target == null ? links.findUser(nick) : null;
+            if (remote != null) {
+                sendNumericReply(311, remote.getNick() + " " + remote.getNick() + " " + remote.getServer() + " * :");
+                if (!remote.getChannels().isEmpty()) {
+                    sendNumericReply(319, remote.getNick() + " :" + String.join(" ", remote.getChannels()));
+                }
+                sendNumericReply(312, remote.getNick() + " " + remote.getServer() + " :Linked server");
+            } else if (target == null) {
+                sendNumericReply(401, nick + " :No such nick/channel");
+            } else {
+                String email = target.user != null ? target.user.getEmail() : "";
+                sendNumericReply(311, target.username + " " + target.username + " " +
+                        target.hostname + " * :" + email);
+                if (!target.channels.isEmpty()) {
+                    sendNumericReply(319, target.username + " :" + String.join(" ", target.channels));
+                }
+                sendNumericReply(312, target.username + " " + SERVER_NAME + " :" + SERVER_VERSION);
+                if (target.awayMessage != null) {
+                    sendNumericReply(301, target.username + " :" + target.awayMessage);
+                }
+                long idleSeconds = (System.currentTimeMillis() - target.lastMessageReceived.get()) / 1000;
+                sendNumericReply(317, target.username + " " + idleSeconds + " :seconds idle");
+            }
+            sendNumericReply(318, nick + " :End of /WHOIS list");
+        }
+
+        private boolean isValidNick(String nick) {
+            if (nick.isEmpty() || nick.length() > MAX_NICK_LENGTH) return false;
+            char first = nick.charAt(0);
+            return first != '#' && first != '&' && first != ':' && !Character.isDigit(first)
+                    && nick.indexOf('!') < 0 && nick.indexOf('@') < 0 && nick.indexOf(',') < 0;
+        }
+
+        // The registry is the single source of truth for who holds a nick; the key is folded once here.
+        // Linked servers are asked too, and hear about the nick in the same step.
+        private boolean claimNick(String nick) {
+            if (tryClaimNick(nick)) return true;
+            sendNumericReply(433, nick + " :Nickname is already in use");
+            return false;
+        }
+
+        private boolean tryClaimNick(String nick) {
+            String key = NickRegistry.fold(nick);
+            if (key.equals(nickKey) && nick.equals(username)) return true;
+            if (uid == null) {
+                uid = links.nextUid();
+            }
+            long claimedAt = System.currentTimeMillis();
+            boolean claimed = links.claimLocal(uid, nick, claimedAt, nickKey != null, () -> {
+                if (!nicks.claim(key, this)) return false;
+                username = nick;
+                nickTs = claimedAt;
+                return true;
+            });
+            if (!claimed) return false;
+            if (nickKey != null && !nickKey.equals(key)) {
+                nicks.release(nickKey, this);
+            }
+            nickKey = key;
+            localUids.put(uid, this);
+            return true;
+        }
+
+        private boolean isNickInUse(String nick) {
+            if (nicks.isAvailable(NickRegistry.fold(nick), this) && links.findUser(nick) == null) return false;
+            sendNumericReply(433, nick + " :Nickname is already in use");
+            return true;
+        }
+
+        // Logging in is refused only while the account is already logged in; a mere holder of the nick is moved aside.
+        private boolean isAccountInUse(String account) {
+            ClientHandler holder = nicks.find(account);
+            if ((holder == null || holder == this || !holder.isLoggedInAs(account)) && links.findUser(account) == null) return false;
+            sendNumericReply(433, account + " :Nickname is already in use");
+            return true;
+        }
+
+        private String channelParam(IrcMessage message, int index) {
+            String channel = message.getParam(index);
+            return channel.startsWith("#") ? channel : "#" + channel;
         }
 
         private void handleRegistration(String username, String password, String email) {
-            Optional<User> result = userDatabase.registerUser(username, password, email);
-            if (result.isPresent()) {
+            if (isNickInUse(username)) return;
+            submitAsyncAuthJob("REGISTER", () -> userDatabase.registerUserAsync(username, password, email)
+                    .thenApply(result -> () -> applyRegistration(username, result)));
+        }
+
+        private void handleAuthentication(String username, String password) {
+            if (isAccountInUse(username)) return;
+            submitAuthJob("AUTH", () -> {
+                Optional<User> result = userDatabase.authenticateUser(username, password);
+                return () -> applyAuthentication(username, result);
+            });
+        }
+
+        // The job hashes on the auth pool and returns the state change, which runs only once it completes.
+        // Later lines from this client are held back until then so they see the new state.
+        private void submitAuthJob(String command, Supplier<Runnable> job) {
+            submitAsyncAuthJob(command, () -> CompletableFuture.completedFuture(job.get()));
+        }
+
+        // Registrations finish when the write-behind flush lands, so the auth thread only hashes and hands off.
+        private void submitAsyncAuthJob(String command, Supplier<CompletableFuture<Runnable>> job) {
+            synchronized (deferredLines) {
+                authInFlight = true;
+                deferring = true;
+            }
+            long start = System.nanoTime();
+            CompletableFuture<Runnable> result;
+            try {
+                result = authExecutor.submit(job).thenCompose(Function.identity());
+            } catch (RejectedExecutionException e) {
+                sendNumericReply(263, command + " :Server load is temporarily too heavy. Please wait a while and try again.");
+                finishAuthJob();
+                return;
+            }
+            // Registrations complete on the write-behind flusher, which must not run this client's queued commands.
+            result.whenCompleteAsync((apply, error) -> {
+                metrics.recordAuth(System.nanoTime() - start);
+                if (error instanceof CompletionException && error.getCause() instanceof RejectedExecutionException) {
+                    sendNumericReply(263, command + " :Server load is temporarily too heavy. Please wait a while and try again.");
+                } else if (error != null) {
+                    error.printStackTrace();
+                    sendServerMessage("Authentication failed.");
+                } else if (!closed.get()) {
+                    apply.run();
+                }
+                finishAuthJob();
+            }, authCompletionExecutor);
+        }
+
+        // Classic ircd fakelag: a command over budget goes back to the head of the deferred queue and
+        // everything the client sends after it waits behind it until the bucket has a token again.
+        private boolean throttle(String line) {
+            if (floodControl == null) return false;
+            IrcCommand command = message.getCommand();
+            long now = System.nanoTime();
+            long wait = floodControl.tryAcquire(command, now);
+            if (wait == 0 && command == IrcCommand.PRIVMSG && isAuthenticated && message.getParamCount() > 0) {
+                TokenBucket channelBucket = channelFloodBuckets.get(message.getParam(0));
+                if (channelBucket != null && (wait = channelBucket.tryAcquire(now)) > 0) {
+                    floodControl.refund(command);
+                }
+            }
+            if (wait == 0) return false;
+            defer(line, Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+            return true;
+        }
+
+        private void defer(String line, long millis) {
+            synchronized (deferredLines) {
+                deferring = true;
+                penaltyPending = true;
+                deferredLines.addFirst(line);
+            }
+            livenessTimer.schedule(() -> penaltyExecutor.execute(this::endPenalty), millis, TimeUnit.MILLISECONDS);
+        }
+
+        // Client work for a channel shard. Only this client's own reader thread waits for room; an event
+        // loop or a shared executor replaying deferred lines serves other clients too, so there a full
+        // shard refuses the work and the caller defers the line or answers with RPL_TRYAGAIN.
+        private boolean reserveChannelSlot(String channel) {
+            if (Thread.currentThread() == reader) {
+                channelShards.reserve(channel);
+                return true;
+            }
+            return channelShards.tryReserve(channel);
+        }
+
+        private boolean submitToChannel(String channel, Runnable task) {
+            if (!reserveChannelSlot(channel)) return false;
+            channelShards.executeReserved(channel, task);
+            return true;
+        }
+
+        // Like fakelag: the refused line and everything the client sends after it wait, then are retried.
+        private void deferUntilShardHasRoom() {
+            defer(currentLine, SHARD_RETRY_MILLIS);
+        }
+
+        private void endPenalty() {
+            synchronized (deferredLines) {
+                penaltyPending = false;
+            }
+            if (!closed.get()) {
+                replayDeferredLines();
+            }
+        }
+
+        private void finishAuthJob() {
+            synchronized (deferredLines) {
+                authInFlight = false;
+            }
+            replayDeferredLines();
+        }
+
+        private void replayDeferredLines() {
+            while (true) {
+                String line;
+                synchronized (deferredLines) {
+                    if (authInFlight || penaltyPending) return;
+                    line = deferredLines.poll();
+                    if (line == null) {
+                        deferring = false;
+                        return;
+                    }
+                }
+                handleIRCMessage(line);
+            }
+        }
+
+        private void applyRegistration(String username, Optional<User> result) {
+            if (result.isPresent() && claimNick(username)) {
                 registered = true;
                 this.user = result.get();
                 this.username = username;
@@ -279,16 +1246,19 @@ public class IRCServer {
             }
         }
 
-        private void handleAuthentication(String username, String password) {
-            Optional<User> result = userDatabase.authenticateUser(username, password);
+        private void applyAuthentication(String username, Optional<User> result) {
             if (result.isPresent()) {
+                reclaimAccountNick(username);
+            }
+            if (result.isPresent() && claimNick(username)) {
                 isAuthenticated = true;
                 this.user = result.get();
                 this.username = username;
-                this.user.setOnline(true);
+                userDatabase.updatePresence(this.user, true);
                 sendServerMessage("Authentication successful.");
                 sendNumericReply(001, ":Welcome to IRC Network, " + username);
                 sendServerMessage("NickServ" + " " + username + " " + "You are now identified with NickServ");
+                connection.send(":" + SERVER_NAME + " RESUME TOKEN " + resumeTokens.issue(username));
             } else {
                 sendServerMessage("Authentication failed.");
             }
@@ -296,108 +1266,258 @@ public class IRCServer {
 
         private void handlePrivMsg(String target, String message) {
             if (target.startsWith("#")) {
-                if (chatRooms.containsKey(target)) {
-                    broadcastToChannel(target, ":" + username + " PRIVMSG " + target + " :" + message);
+                ChatRoom room = chatRooms.get(target);
+                if (room != null) {
+                    String nick = username;
+                    String senderUid = uid;
+                    boolean queued = submitToChannel(target, () -> {
+                        postToChannel(room, nick, message);
+                        links.relayToChannel(target, senderUid, message);
+                    });
+                    if (!queued) {
+                        deferUntilShardHasRoom();
+                    }
                 }
             } else {
-                clients.stream()
-                        .filter(c -> c.username.equals(target))
-                        .findFirst()
-                        .ifPresent(c -> c.out.println(":" + username + " PRIVMSG " + target + " :" + message));
+                ClientHandler recipient = nicks.find(target);
+                if (recipient != null) {
+                    recipient.connection.send(":" + username + " PRIVMSG " + target + " :" + message);
+                } else if (!links.sendPrivateMessage(uid, target, message)) {
+                    sendNumericReply(401, target + " :No such nick/channel");
+                }
             }
         }
 
-        private void sendEnhancedChannelList() {
-            sendNumericReply(321, "Channel :Users Members");
-
-            for (Map.Entry<String, ChatRoom> entry : chatRooms.entrySet()) {
-                String channel = entry.getKey();
-                Set<UserChannelInfo> users = channelUsers.get(channel);
-                String topic = channelTopics.getOrDefault(channel, "No topic set");
-
-                String usersList = users.stream()
-                        .map(info -> info.username + "(" + info.email + ")")
-                        .reduce((a, b) -> a + ", " + b)
-                        .orElse("No users");
-
-                sendNumericReply(322, channel + " " + users.size() + " :" + topic + " [" + usersList + "]");
-            }
-
-            sendNumericReply(323, ":End of /LIST");
+        private void sendEnhancedChannelList(ChannelFilter filter) {
+            sendNumericReply(321, "Channel :Users Name");
+            String nick = username.isEmpty() ? "*" : username;
+            new ChannelListing(chatRooms.values().iterator(), filter, connection,
+                    ":" + SERVER_NAME + " 322 " + nick + " ",
+                    ":" + SERVER_NAME + " 323 " + nick + " :End of /LIST").run();
         }
 
+        // The client's own channel set changes here, in command order; the room itself changes on its shard.
         private void joinChannel(String channelName) {
-            if (!chatRooms.containsKey(channelName)) {
-                createChannel(channelName, "Welcome to " + channelName);
+            if (channels.contains(channelName)) return;
+            if (!reserveChannelSlot(channelName)) {
+                deferUntilShardHasRoom();
+                return;
+            }
+            ChatRoom room = createChannel(channelName, "Welcome to " + channelName);
+            if (member == null) {
+                member = new ChatUser(username, user.getEmail(), connection);
             }
-
-            ChatRoom room = chatRooms.get(channelName);
             channels.add(channelName);
-
-            UserChannelInfo userInfo = new UserChannelInfo(
-                    username,
-                    user.getEmail(),
-                    user
-            );
-            channelUsers.get(channelName).add(userInfo);
-
-            room.addComponent(new ChatUser(username, out));
-
-            String joinMessage = ":" + username + "!" + username + "@" + socket.getInetAddress().getHostName() +
+            links.localJoin(uid, channelName);
+            ChatUser joining = member;
+            String joinMessage = ":" + username + "!" + username + "@" + hostname +
                     " JOIN " + channelName;
-            broadcastToChannel(channelName, joinMessage);
+            channelShards.executeReserved(channelName, () -> {
+                // The room looked up above may have been dropped by its last member leaving in the meantime.
+                ChatRoom current = chatRooms.get(channelName) == room ? room : createChannel(channelName, "Welcome to " + channelName);
+                if (!closed.get() && current.addComponent(joining)) {
+                    broadcastToChannel(channelName, joinMessage);
+                    sendJoinReplies(current);
+                }
+            });
+        }
 
-            String topic = channelTopics.getOrDefault(channelName, "No topic set");
+        private void sendJoinReplies(ChatRoom room) {
+            String channelName = room.getName();
+            String topic = room.getTopic() != null ? room.getTopic() : "No topic set";
             sendNumericReply(332, channelName + " :" + topic);
+            sendNames(room);
 
-            sendChannelNames(channelName);
+            int replay = serverConfig.getHistoryReplayOnJoin();
+            if (replay > 0 && room.getHistory() != null) {
+                sendHistory(channelName, room.getHistory().latest(replay));
+            }
         }
 
         private void partChannel(String channelName) {
-            if (chatRooms.containsKey(channelName)) {
-                ChatRoom room = chatRooms.get(channelName);
-                room.removeComponent(new ChatUser(username, out));
-                channels.remove(channelName);
-
-                Set<UserChannelInfo> users = channelUsers.get(channelName);
-                if (users != null) {
-                    users.removeIf(info -> info.username.equals(username));
-                }
+            partChannel(channelName, null);
+        }
 
-                broadcastToChannel(channelName, ":" + username + " PART " + channelName);
+        // A departing client's QUIT goes to the remaining members only; a PART is echoed to the client too.
+        private void partChannel(String channelName, String quitLine) {
+            ChatRoom room = chatRooms.get(channelName);
+            if (room == null || !channels.remove(channelName)) return;
+            if (quitLine == null) {
+                links.localPart(uid, channelName);
             }
+            ChatUser leaving = member;
+            String partMessage = ":" + username + " PART " + channelName;
+            channelShards.execute(channelName, () -> {
+                if (room.removeComponent(leaving)) {
+                    broadcastToChannel(channelName, quitLine == null ? partMessage : quitLine);
+                    dropIfEmpty(room);
+                    if (quitLine == null) {
+                        connection.send(partMessage);
+                    }
+                }
+            });
         }
 
         private void sendChannelNames(String channelName) {
-            Set<UserChannelInfo> users = channelUsers.get(channelName);
-            if (users != null) {
-                StringBuilder names = new StringBuilder();
-                users.forEach(info -> {
-                    names.append(info.username).append(" ");
-                });
-                sendNumericReply(353, "= " + channelName + " :" + names.toString());
-                sendNumericReply(366, channelName + " :End of /NAMES list");
+            ChatRoom room = chatRooms.get(channelName);
+            if (room != null) {
+                if (!submitToChannel(channelName, () -> sendNames(room))) {
+                    sendNumericReply(263, "NAMES :Server load is temporarily too heavy. Please wait a while and try again.");
+                }
             }
         }
 
+        private void sendNames(ChatRoom room) {
+            String channelName = room.getName();
+            StringBuilder names = new StringBuilder();
+            room.getUsers().forEach(member -> {
+                names.append(member.getName()).append(" ");
+            });
+            links.getRemoteNames(channelName).forEach(name -> names.append(name).append(" "));
+            sendNumericReply(353, "= " + channelName + " :" + names.toString());
+            sendNumericReply(366, channelName + " :End of /NAMES list");
+        }
+
         private void cleanup() {
+            cleanup(false);
+        }
+
+        private void cleanup(boolean flush) {
+            cleanup(flush, null);
+        }
+
+        // With flush, the socket is closed only once lines already queued, such as a KILL notice, are written.
+        // With a quit reason, channel members see the client QUIT with it rather than PART.
+        private void cleanup(boolean flush, String quitReason) {
+            if (!closed.compareAndSet(false, true)) return;
+            Timeout timeout = livenessTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
             if (user != null) {
-                user.setOnline(false);
+                userDatabase.updatePresence(user, false);
+            }
+            String quitLine = quitReason == null ? null : ":" + username + " QUIT :" + quitReason;
+            new HashSet<>(channels).forEach(channelName -> partChannel(channelName, quitLine));
+            if (nickKey != null) {
+                nicks.release(nickKey, this);
+            }
+            if (uid != null) {
+                links.localQuit(uid, quitReason == null ? "Quit" : quitReason);
+                localUids.remove(uid, this);
             }
-            new HashSet<>(channels).forEach(this::partChannel);
             clients.remove(this);
+            admission.release(address);
+            if (flush && connection.onDrained(this::closeConnection)) {
+                // A client that has stopped reading never drains; it gets as long as it would have to answer a PING.
+                livenessTimer.schedule(this::closeConnection, serverConfig.getPongTimeoutMillis(), TimeUnit.MILLISECONDS);
+                return;
+            }
+            closeConnection();
+        }
+
+        private void closeConnection() {
             try {
-                socket.close();
+                connection.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
     }
 
+    private static String latencySummary(Histogram.Snapshot snapshot) {
+        return "p50=" + TimeUnit.NANOSECONDS.toMicros(snapshot.p50()) + "us" +
+                " p90=" + TimeUnit.NANOSECONDS.toMicros(snapshot.p90()) + "us" +
+                " p99=" + TimeUnit.NANOSECONDS.toMicros(snapshot.p99()) + "us" +
+                " max=" + TimeUnit.NANOSECONDS.toMicros(snapshot.max()) + "us";
+    }
+
+    private void postToChannel(ChatRoom room, String nick, String message) {
+        Frame frame = Frame.of(":" + nick + " PRIVMSG " + room.getName() + " :" + message);
+        long start = System.nanoTime();
+        int recipients = room.postMessage(frame);
+        metrics.recordFanOut(room.getName(), recipients, System.nanoTime() - start);
+        logChannelLine(room.getName(), frame);
+        if (searchIndex != null) {
+            searchIndex.add(room.getName(), nick, System.currentTimeMillis(), message);
+        }
+    }
+
+    // Hands what linked servers send to local channels and users.
+    private class NetworkBridge implements LocalNetwork {
+        @Override
+        public List<LocalUser> localUsers() {
+            List<LocalUser> users = new ArrayList<>();
+            for (ClientHandler client : clients) {
+                LocalUser user = describe(client);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+            return users;
+        }
+
+        @Override
+        public LocalUser findLocal(String nick) {
+            ClientHandler client = nicks.find(nick);
+            return client == null ? null : describe(client);
+        }
+
+        private LocalUser describe(ClientHandler client) {
+            if (client.nickTs == 0 || client.closed.get()) return null;
+            return new LocalUser(client.uid, client.username, client.nickTs, List.copyOf(client.channels));
+        }
+
+        @Override
+        public void kill(String uid, String reason) {
+            ClientHandler client = localUids.get(uid);
+            if (client != null) {
+                client.connection.send(":" + SERVER_NAME + " KILL " + client.username + " :" + reason);
+                client.cleanup(true);
+            }
+        }
+
+        @Override
+        public void deliverToChannel(String channel, String nick, String text) {
+            ChatRoom room = chatRooms.get(channel);
+            if (room != null) {
+                // On the link's own reader thread, so a busy shard holds up only that link's traffic.
+                channelShards.executeWaiting(channel, () -> postToChannel(room, nick, text));
+            }
+        }
+
+        @Override
+        public boolean deliverPrivateMessage(String uid, String fromNick, String text) {
+            ClientHandler client = localUids.get(uid);
+            if (client == null) return false;
+            client.connection.send(":" + fromNick + " PRIVMSG " + client.username + " :" + text);
+            return true;
+        }
+
+        @Override
+        public void channelEvent(String channel, String line, boolean create) {
+            if (create) {
+                createChannel(channel, "Welcome to " + channel);
+            }
+            channelShards.execute(channel, () -> broadcastToChannel(channel, line));
+        }
+    }
+
+    // Channel output runs on the channel's shard only, which keeps its lines in one order for every member.
     private void broadcastToChannel(String channelName, String message) {
         ChatRoom room = chatRooms.get(channelName);
         if (room != null) {
-            room.sendMessage(message);
+            Frame frame = Frame.of(message);
+            long start = System.nanoTime();
+            int recipients = room.deliver(frame);
+            metrics.recordFanOut(channelName, recipients, System.nanoTime() - start);
+            logChannelLine(channelName, frame);
+        }
+    }
+
+    private void logChannelLine(String channelName, Frame frame) {
+        if (messageLog != null) {
+            messageLog.append(channelName, frame);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,696 @@
+package com.example.irc.Link;
+
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.Server.ServerConnection;
+import com.example.irc.MessageHandler.IrcMessage;
+import com.example.irc.User.NickRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Links this server to peers so channels and private messages span several nodes. Servers form a tree,
+ * as in classic IRC: a link that would close a loop is dropped. Users are known network-wide by a uid of
+ * the form {@code <counter>.<server>}; the wire protocol is
+ * <pre>
+ * SERVER &lt;name&gt; &lt;password&gt;          handshake, sent by both sides
+ * SID &lt;server&gt;                       a server behind the sending peer
+ * SQUIT &lt;server&gt;                     that server is gone, with all of its users
+ * UID &lt;uid&gt; &lt;nick&gt; &lt;nickTs&gt;           a user, in a burst or as it logs in
+ * :&lt;uid&gt; NICK &lt;nick&gt; &lt;nickTs&gt;
+ * SJOIN &lt;channel&gt; :&lt;uid&gt; [&lt;uid&gt; ...]   channel members, in a burst
+ * :&lt;uid&gt; JOIN|PART &lt;channel&gt;
+ * :&lt;uid&gt; QUIT :&lt;reason&gt;
+ * :&lt;uid&gt; PRIVMSG &lt;channel|uid&gt; :&lt;text&gt;
+ * KILL &lt;uid&gt; :&lt;reason&gt;
+ * EOB                                end of burst
+ * </pre>
+ * Channel messages are sent only over links that lead to members of the channel, and private messages
+ * only towards the recipient. When two users claim the same nick the one who took it first keeps it and
+ * the other is killed; with equal timestamps both go.
+ * <p>
+ * Membership changes, bursts and splits are serialised by one lock; relaying messages takes no lock.
+ * What those changes mean for local channels is handed to the {@link LocalNetwork} after the lock is
+ * released, so a slow channel never holds up nick claims and announcements from client threads. A peer
+ * line that is malformed is ignored rather than taken as a reason to drop the link.
+ * The link password travels in clear text, so links are meant for a trusted network.
+ */
+public class LinkManager {
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+    private static final int SJOIN_CHUNK_CHARS = 400;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+    private static final ServerLink[] NO_LINKS = new ServerLink[0];
+
+    private final String serverName;
+    private final byte[] password;
+    private final long reconnectMillis;
+    private final long maxSendQueueBytes;
+    private final LocalNetwork network;
+    private final ExecutorService writeExecutor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("irc-link-writer-", 0).daemon().factory());
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<ServerLink> links = new CopyOnWriteArrayList<>();
+    // Every remote server, mapped to the link it is reached through.
+    private final Map<String, ServerLink> servers = new ConcurrentHashMap<>();
+    private final Map<String, RemoteUser> users = new ConcurrentHashMap<>();
+    private final NickRegistry<RemoteUser> nicks = new NickRegistry<>();
+    private final Map<String, ChannelRoute> routes = new ConcurrentHashMap<>();
+    private final AtomicLong uids = new AtomicLong();
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    // Filled under the lock, delivered by unlockAndDeliver.
+    private final List<ChannelEvent> pendingEvents = new ArrayList<>();
+    private volatile boolean running = true;
+    private ServerSocket listener;
+
+    public record Stats(int links, int servers, int remoteUsers, int routedChannels, long relayed, long collisions) {
+    }
+
+    private record ChannelEvent(String channel, String line, boolean create) {
+    }
+
+    // The links that lead to remote members of one channel; counts are guarded by the manager's lock.
+    private static final class ChannelRoute {
+        private final Set<RemoteUser> members = ConcurrentHashMap.newKeySet();
+        private final Map<ServerLink, Integer> counts = new HashMap<>();
+        private volatile ServerLink[] links = NO_LINKS;
+
+        void add(RemoteUser user) {
+            members.add(user);
+            if (counts.merge(user.getVia(), 1, Integer::sum) == 1) {
+                links = counts.keySet().toArray(NO_LINKS);
+            }
+        }
+
+        boolean remove(RemoteUser user) {
+            members.remove(user);
+            if (counts.computeIfPresent(user.getVia(), (link, count) -> count > 1 ? count - 1 : null) == null) {
+                links = counts.keySet().toArray(NO_LINKS);
+            }
+            return members.isEmpty();
+        }
+    }
+
+    public LinkManager(String serverName, String password, long reconnectMillis, long maxSendQueueBytes, LocalNetwork network) {
+        this.serverName = serverName;
+        this.password = password.getBytes(StandardCharsets.UTF_8);
+        this.reconnectMillis = reconnectMillis;
+        this.maxSendQueueBytes = maxSendQueueBytes;
+        this.network = network;
+    }
+
+    public void listen(InetSocketAddress address) throws IOException {
+        listener = new ServerSocket();
+        listener.setReuseAddress(true);
+        listener.bind(address);
+        Thread.ofPlatform().name("irc-link-acceptor").daemon().start(() -> {
+            try {
+                while (running) {
+                    Socket socket = listener.accept();
+                    Thread.ofPlatform().name("irc-link-" + socket.getRemoteSocketAddress()).daemon()
+                            .start(() -> serve(socket, false));
+                }
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    public int getLocalPort() {
+        return listener == null ? -1 : listener.getLocalPort();
+    }
+
+    /**
+     * Keeps a link to {@code host:port} up, reconnecting after a split until the manager is closed.
+     */
+    public void connect(String peer) {
+        int colon = peer.lastIndexOf(':');
+        InetSocketAddress address = new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1)));
+        Thread.ofPlatform().name("irc-link-" + peer).daemon().start(() -> {
+            while (running) {
+                Socket socket = new Socket();
+                try {
+                    socket.connect(address, HANDSHAKE_TIMEOUT_MILLIS);
+                    serve(socket, true);
+                } catch (IOException e) {
+                    closeQuietly(socket);
+                    if (running) {
+                        System.out.println("Cannot link to " + peer + ": " + e.getMessage());
+                    }
+                }
+                try {
+                    Thread.sleep(reconnectMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the direct link to {@code server}; returns false when there is none.
+     */
+    public boolean squit(String server) {
+        for (ServerLink link : links) {
+            if (link.getPeer().equals(server)) {
+                link.close();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void close() {
+        running = false;
+        if (listener != null) {
+            try {
+                listener.close();
+            } catch (IOException ignored) {
+            }
+        }
+        links.forEach(ServerLink::close);
+        writeExecutor.shutdown();
+    }
+
+    private void serve(Socket socket, boolean outbound) {
+        ServerLink link = null;
+        boolean rejected = false;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            ServerConnection connection = new ServerConnection(socket, writeExecutor, maxSendQueueBytes, Integer.MAX_VALUE);
+            if (outbound) {
+                connection.send(handshake());
+            }
+            IrcMessage message = new IrcMessage();
+            String line = connection.receive();
+            String peer = line == null ? null : verify(message, line);
+            if (peer == null) {
+                connection.send("ERROR :Closing Link: (Bad link credentials)");
+                closeAfterDrain(connection);
+                rejected = true;
+                return;
+            }
+            if (!outbound) {
+                connection.send(handshake());
+            }
+            socket.setSoTimeout(0);
+            ServerLink candidate = new ServerLink(peer, connection);
+            if (!establish(candidate)) {
+                connection.send("ERROR :Closing Link: (Server " + peer + " already exists)");
+                closeAfterDrain(connection);
+                rejected = true;
+                return;
+            }
+            link = candidate;
+            System.out.println("Linked to server " + peer);
+            while ((line = connection.receive()) != null) {
+                link.received();
+                if (message.parse(line, MAX_LINE_BYTES) == IrcMessage.ParseResult.OK) {
+                    handle(link, message, line);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                System.out.println("Server link error: " + e);
+            }
+        } finally {
+            if (link != null) {
+                split(link);
+            } else if (!rejected) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private String handshake() {
+        return "SERVER " + serverName + " " + new String(password, StandardCharsets.UTF_8);
+    }
+
+    private String verify(IrcMessage message, String line) {
+        if (message.parse(line) != IrcMessage.ParseResult.OK || !message.getCommandName().equalsIgnoreCase("SERVER")
+                || message.getParamCount() < 2) {
+            return null;
+        }
+        // A blank password never authenticates, so an unconfigured node cannot be joined by anyone who reaches it.
+        boolean accepted = password.length > 0
+                && MessageDigest.isEqual(password, message.getParam(1).getBytes(StandardCharsets.UTF_8));
+        return accepted ? message.getParam(0) : null;
+    }
+
+    private static void closeAfterDrain(ServerConnection connection) {
+        if (!connection.onDrained(() -> closeQuietly(connection::close))) {
+            closeQuietly(connection::close);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private boolean establish(ServerLink link) {
+        lock.lock();
+        try {
+            String peer = link.getPeer();
+            if (!running || peer.equals(serverName) || servers.containsKey(peer)) return false;
+            servers.put(peer, link);
+            sendBurst(link);
+            broadcast("SID " + peer, null);
+            links.add(link);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Everything this side knows, except what came from the peer itself.
+    private void sendBurst(ServerLink link) {
+        servers.forEach((server, via) -> {
+            if (via != link) {
+                link.send("SID " + server);
+            }
+        });
+        Map<String, List<String>> members = new HashMap<>();
+        for (LocalNetwork.LocalUser user : network.localUsers()) {
+            link.send("UID " + user.uid() + " " + user.nick() + " " + user.nickTs());
+            for (String channel : user.channels()) {
+                members.computeIfAbsent(channel, key -> new ArrayList<>()).add(user.uid());
+            }
+        }
+        for (RemoteUser user : users.values()) {
+            if (user.getVia() == link) continue;
+            link.send("UID " + user.getUid() + " " + user.getNick() + " " + user.getNickTs());
+            for (String channel : user.getChannels()) {
+                members.computeIfAbsent(channel, key -> new ArrayList<>()).add(user.getUid());
+            }
+        }
+        members.forEach((channel, uids) -> sendJoins(link, channel, uids));
+        link.send("EOB");
+    }
+
+    private static void sendJoins(ServerLink link, String channel, List<String> uids) {
+        StringBuilder chunk = new StringBuilder();
+        for (String uid : uids) {
+            if (chunk.length() > SJOIN_CHUNK_CHARS) {
+                link.send("SJOIN " + channel + " :" + chunk);
+                chunk.setLength(0);
+            }
+            if (!chunk.isEmpty()) {
+                chunk.append(' ');
+            }
+            chunk.append(uid);
+        }
+        if (!chunk.isEmpty()) {
+            link.send("SJOIN " + channel + " :" + chunk);
+        }
+    }
+
+    // A netsplit: every server and user behind the link is gone, and the other peers are told so.
+    private void split(ServerLink link) {
+        lock.lock();
+        try {
+            if (!links.remove(link)) return;
+            String reason = serverName + " " + link.getPeer();
+            for (Iterator<Map.Entry<String, ServerLink>> it = servers.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, ServerLink> server = it.next();
+                if (server.getValue() == link) {
+                    it.remove();
+                    broadcast("SQUIT " + server.getKey(), null);
+                }
+            }
+            for (RemoteUser user : users.values()) {
+                if (user.getVia() == link) {
+                    removeUser(user, reason);
+                }
+            }
+        } finally {
+            unlockAndDeliver();
+        }
+        link.close();
+        System.out.println("Lost link to server " + link.getPeer());
+    }
+
+    private void handle(ServerLink link, IrcMessage message, String line) {
+        String command = message.getCommandName().toUpperCase();
+        if (command.equals("PRIVMSG")) {
+            onPrivmsg(link, message, line);
+            return;
+        }
+        if (message.getParamCount() < requiredParams(command)) {
+            ignore(link, line);
+            return;
+        }
+        lock.lock();
+        try {
+            switch (command) {
+                case "SID" -> onServer(link, message.getParam(0), line);
+                case "SQUIT" -> onSquit(link, message.getParam(0), line);
+                case "UID" -> onUid(link, message.getParam(0), message.getParam(1), Long.parseLong(message.getParam(2)), line);
+                case "NICK" -> onNick(link, message.getPrefix(), message.getParam(0), Long.parseLong(message.getParam(1)), line);
+                case "SJOIN" -> onJoin(link, message.getParam(1).split(" "), message.getParam(0));
+                case "JOIN" -> onJoin(link, new String[]{message.getPrefix()}, message.getParam(0));
+                case "PART" -> onPart(link, message.getPrefix(), message.getParam(0), line);
+                case "QUIT" -> onQuit(link, message.getPrefix(), message.getParamCount() > 0 ? message.getParam(0) : "", line);
+                case "KILL" -> onKill(link, message.getParam(0), message.getParamCount() > 1 ? message.getParam(1) : "", line);
+                case "EOB" -> link.markSynced();
+                case "ERROR" -> System.out.println("Server " + link.getPeer() + " closed the link: " + line);
+                default -> {
+                }
+            }
+        } catch (NumberFormatException e) {
+            ignore(link, line);
+        } finally {
+            unlockAndDeliver();
+        }
+    }
+
+    private static int requiredParams(String command) {
+        return switch (command) {
+            case "SID", "SQUIT", "JOIN", "PART", "KILL" -> 1;
+            case "NICK", "SJOIN" -> 2;
+            case "UID" -> 3;
+            default -> 0;
+        };
+    }
+
+    private static void ignore(ServerLink link, String line) {
+        System.out.println("Ignoring malformed line from " + link.getPeer() + ": " + line);
+    }
+
+    private void queueChannelEvent(String channel, String line, boolean create) {
+        pendingEvents.add(new ChannelEvent(channel, line, create));
+    }
+
+    // Only the outermost unlock delivers, so nothing reaches the channels while the lock is still held.
+    private void unlockAndDeliver() {
+        List<ChannelEvent> events = List.of();
+        if (lock.getHoldCount() == 1 && !pendingEvents.isEmpty()) {
+            events = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+        }
+        lock.unlock();
+        for (ChannelEvent event : events) {
+            network.channelEvent(event.channel(), event.line(), event.create());
+        }
+    }
+
+    private void onServer(ServerLink link, String server, String line) {
+        if (server.equals(serverName) || servers.containsKey(server)) {
+            System.out.println("Link loop through " + link.getPeer() + " (" + server + "), dropping the link");
+            link.close();
+            return;
+        }
+        servers.put(server, link);
+        broadcast(line, link);
+    }
+
+    private void onSquit(ServerLink link, String server, String line) {
+        if (servers.get(server) != link) return;
+        servers.remove(server);
+        for (RemoteUser user : users.values()) {
+            if (user.getServer().equals(server)) {
+                removeUser(user, "*.net *.split");
+            }
+        }
+        broadcast(line, link);
+    }
+
+    private void onUid(ServerLink link, String uid, String nick, long nickTs, String line) {
+        String server = uid.substring(uid.indexOf('.') + 1);
+        if (servers.get(server) != link || users.containsKey(uid)) return;
+        if (!resolveCollision(link, uid, nick, nickTs, null)) return;
+        RemoteUser user = new RemoteUser(uid, server, link, nick, nickTs);
+        users.put(uid, user);
+        nicks.claim(NickRegistry.fold(nick), user);
+        broadcast(line, link);
+    }
+
+    private void onNick(ServerLink link, String uid, String nick, long nickTs, String line) {
+        RemoteUser user = sender(link, uid);
+        if (user == null || !resolveCollision(link, uid, nick, nickTs, user)) return;
+        String oldNick = user.getNick();
+        nicks.release(NickRegistry.fold(oldNick), user);
+        nicks.claim(NickRegistry.fold(nick), user);
+        user.rename(nick, nickTs);
+        for (String channel : user.getChannels()) {
+            queueChannelEvent(channel, ":" + oldNick + " NICK " + nick, false);
+        }
+        broadcast(line, link);
+    }
+
+    /**
+     * Decides whether a user arriving over {@code link} with {@code nick} may have it. Whoever took the nick
+     * later is killed; on a tie both are. Returns false when the arriving user lost.
+     */
+    private boolean resolveCollision(ServerLink link, String uid, String nick, long nickTs, RemoteUser renaming) {
+        RemoteUser remote = nicks.find(nick);
+        LocalNetwork.LocalUser local = remote == null ? network.findLocal(nick) : null;
+        if (remote == null && local == null || remote != null && remote == renaming) return true;
+        collisions.increment();
+        long holderTs = remote != null ? remote.getNickTs() : local.nickTs();
+        if (nickTs <= holderTs) {
+            if (remote != null) {
+                kill(remote, "Nick collision");
+            } else {
+                network.kill(local.uid(), "Nick collision");
+            }
+        }
+        if (nickTs < holderTs) return true;
+        if (renaming != null) {
+            kill(renaming, "Nick collision");
+        } else {
+            link.send("KILL " + uid + " :Nick collision");
+        }
+        return false;
+    }
+
+    private void kill(RemoteUser user, String reason) {
+        removeUser(user, "Killed (" + reason + ")");
+        broadcast("KILL " + user.getUid() + " :" + reason, null);
+    }
+
+    private void onJoin(ServerLink link, String[] uids, String channel) {
+        List<RemoteUser> joined = new ArrayList<>();
+        List<String> joinedUids = new ArrayList<>();
+        for (String uid : uids) {
+            RemoteUser user = sender(link, uid);
+            if (user == null || !user.join(channel)) continue;
+            routes.computeIfAbsent(channel, key -> new ChannelRoute()).add(user);
+            joined.add(user);
+            joinedUids.add(uid);
+        }
+        if (joined.isEmpty()) return;
+        for (ServerLink other : links) {
+            if (other != link) {
+                sendJoins(other, channel, joinedUids);
+            }
+        }
+        for (RemoteUser user : joined) {
+            queueChannelEvent(channel, ":" + user.getNick() + "!" + user.getNick() + "@" + user.getServer() +
+                    " JOIN " + channel, true);
+        }
+    }
+
+    private void onPart(ServerLink link, String uid, String channel, String line) {
+        RemoteUser user = sender(link, uid);
+        if (user == null || !user.part(channel)) return;
+        leave(user, channel);
+        queueChannelEvent(channel, ":" + user.getNick() + " PART " + channel, false);
+        broadcast(line, link);
+    }
+
+    private void onQuit(ServerLink link, String uid, String reason, String line) {
+        RemoteUser user = sender(link, uid);
+        if (user == null) return;
+        removeUser(user, reason);
+        broadcast(line, link);
+    }
+
+    private void onKill(ServerLink link, String uid, String reason, String line) {
+        RemoteUser user = users.get(uid);
+        if (user != null) {
+            removeUser(user, "Killed (" + reason + ")");
+            broadcast(line, link);
+        } else if (uid.endsWith("." + serverName)) {
+            network.kill(uid, reason);
+        }
+    }
+
+    private void onPrivmsg(ServerLink link, IrcMessage message, String line) {
+        RemoteUser user = sender(link, message.getPrefix());
+        if (user == null || message.getParamCount() < 2) return;
+        String target = message.getParam(0);
+        String text = message.getParam(1);
+        if (target.startsWith("#")) {
+            network.deliverToChannel(target, user.getNick(), text);
+            relay(target, line, link);
+            return;
+        }
+        RemoteUser recipient = users.get(target);
+        if (recipient == null) {
+            network.deliverPrivateMessage(target, user.getNick(), text);
+        } else if (recipient.getVia() != link) {
+            recipient.getVia().send(line);
+            relayed.increment();
+        }
+    }
+
+    // A message about a remote user counts only when it arrives from the direction that user is in.
+    private RemoteUser sender(ServerLink link, String uid) {
+        RemoteUser user = uid == null ? null : users.get(uid);
+        return user != null && user.getVia() == link ? user : null;
+    }
+
+    private void removeUser(RemoteUser user, String reason) {
+        if (!users.remove(user.getUid(), user)) return;
+        nicks.release(NickRegistry.fold(user.getNick()), user);
+        for (String channel : user.getChannels()) {
+            leave(user, channel);
+            queueChannelEvent(channel, ":" + user.getNick() + " QUIT :" + reason, false);
+        }
+    }
+
+    private void leave(RemoteUser user, String channel) {
+        ChannelRoute route = routes.get(channel);
+        if (route != null && route.remove(user)) {
+            routes.remove(channel, route);
+        }
+    }
+
+    private void relay(String channel, String line, ServerLink except) {
+        ChannelRoute route = routes.get(channel);
+        if (route == null) return;
+        Frame frame = null;
+        for (ServerLink link : route.links) {
+            if (link == except) continue;
+            if (frame == null) {
+                frame = Frame.of(line);
+            }
+            link.send(frame);
+            relayed.increment();
+        }
+    }
+
+    private void broadcast(String line, ServerLink except) {
+        if (links.isEmpty()) return;
+        Frame frame = Frame.of(line);
+        for (ServerLink link : links) {
+            if (link != except) {
+                link.send(frame);
+            }
+        }
+    }
+
+    public String nextUid() {
+        return Long.toString(uids.incrementAndGet(), 36) + "." + serverName;
+    }
+
+    /**
+     * Claims {@code nick} for a local user unless a remote user holds it, and announces the new user or
+     * nick to every peer. {@code claim} takes the nick locally and records it; it runs under the same
+     * lock as bursts, so a burst either includes the nick or is followed by the announcement.
+     */
+    public boolean claimLocal(String uid, String nick, long nickTs, boolean rename, BooleanSupplier claim) {
+        lock.lock();
+        try {
+            if (nicks.find(nick) != null || !claim.getAsBoolean()) return false;
+            broadcast(rename ? ":" + uid + " NICK " + nick + " " + nickTs : "UID " + uid + " " + nick + " " + nickTs, null);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void localJoin(String uid, String channel) {
+        announce(":" + uid + " JOIN " + channel);
+    }
+
+    public void localPart(String uid, String channel) {
+        announce(":" + uid + " PART " + channel);
+    }
+
+    public void localQuit(String uid, String reason) {
+        announce(":" + uid + " QUIT :" + reason);
+    }
+
+    // Local membership changes are announced under the lock so none falls between a burst and the link going live.
+    private void announce(String line) {
+        if (links.isEmpty() && !lock.isLocked()) return;
+        lock.lock();
+        try {
+            broadcast(line, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Relays a local user's channel message to the links that lead to other members of the channel.
+     */
+    public void relayToChannel(String channel, String uid, String text) {
+        if (routes.containsKey(channel)) {
+            relay(channel, ":" + uid + " PRIVMSG " + channel + " :" + text, null);
+        }
+    }
+
+    /**
+     * Sends a local user's private message towards a remote {@code nick}; returns false when nobody has it.
+     */
+    public boolean sendPrivateMessage(String uid, String nick, String text) {
+        RemoteUser recipient = nicks.find(nick);
+        if (recipient == null) return false;
+        recipient.getVia().send(":" + uid + " PRIVMSG " + recipient.getUid() + " :" + text);
+        relayed.increment();
+        return true;
+    }
+
+    public RemoteUser findUser(String nick) {
+        return nicks.find(nick);
+    }
+
+    public List<String> getRemoteNames(String channel) {
+        ChannelRoute route = routes.get(channel);
+        if (route == null) return List.of();
+        List<String> names = new ArrayList<>();
+        for (RemoteUser user : route.members) {
+            names.add(user.getNick());
+        }
+        return names;
+    }
+
+    public List<ServerLink.Info> getLinks() {
+        List<ServerLink.Info> info = new ArrayList<>();
+        for (ServerLink link : links) {
+            info.add(link.info());
+        }
+        return info;
+    }
+
+    public Stats getStats() {
+        return new Stats(links.size(), servers.size(), users.size(), routes.size(), relayed.sum(), collisions.sum());
+    }
+}
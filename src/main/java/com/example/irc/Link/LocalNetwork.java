@@ -0,0 +1,38 @@
+package com.example.irc.Link;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * What a {@link LinkManager} needs from the server it runs in: the local users to announce in a burst,
+ * and delivery of what peers send to local channels and users.
+ */
+public interface LocalNetwork {
+
+    record LocalUser(String uid, String nick, long nickTs, Collection<String> channels) {
+    }
+
+    List<LocalUser> localUsers();
+
+    /**
+     * The local holder of {@code nick}, or null when no local user has it.
+     */
+    LocalUser findLocal(String nick);
+
+    /**
+     * Disconnects a local user, for example the loser of a nick collision.
+     */
+    void kill(String uid, String reason);
+
+    /**
+     * A remote user's channel message, delivered to local members the same way as a local one.
+     */
+    void deliverToChannel(String channel, String nick, String text);
+
+    boolean deliverPrivateMessage(String uid, String fromNick, String text);
+
+    /**
+     * Sends a remote user's JOIN, PART, NICK or QUIT line to the channel's local members.
+     */
+    void channelEvent(String channel, String line, boolean create);
+}
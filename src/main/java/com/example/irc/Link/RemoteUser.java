@@ -0,0 +1,64 @@
+package com.example.irc.Link;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A user connected to another server, as seen from here: the link that leads to it and the channels
+ * it is in. The uid never changes, so peers refer to the user by uid and a nick change cannot be
+ * confused with another user taking the old nick.
+ */
+public class RemoteUser {
+    private final String uid;
+    private final String server;
+    private final ServerLink via;
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+    private volatile String nick;
+    private volatile long nickTs;
+
+    RemoteUser(String uid, String server, ServerLink via, String nick, long nickTs) {
+        this.uid = uid;
+        this.server = server;
+        this.via = via;
+        this.nick = nick;
+        this.nickTs = nickTs;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public String getNick() {
+        return nick;
+    }
+
+    public long getNickTs() {
+        return nickTs;
+    }
+
+    public Set<String> getChannels() {
+        return Collections.unmodifiableSet(channels);
+    }
+
+    ServerLink getVia() {
+        return via;
+    }
+
+    boolean join(String channel) {
+        return channels.add(channel);
+    }
+
+    boolean part(String channel) {
+        return channels.remove(channel);
+    }
+
+    void rename(String nick, long nickTs) {
+        this.nick = nick;
+        this.nickTs = nickTs;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.irc.Link;
+
+import com.example.irc.Connection.Frame;
+import com.example.irc.Connection.Server.ServerConnection;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An established connection to a peer server. Lines are read on the link's own thread; writes are
+ * queued on a bounded {@link ServerConnection}, and a peer that falls that far behind is dropped,
+ * which the rest of the network sees as a netsplit.
+ */
+public class ServerLink {
+    private final String peer;
+    private final ServerConnection connection;
+    private final long connectedAt = System.currentTimeMillis();
+    private final LongAdder linesIn = new LongAdder();
+    private final LongAdder linesOut = new LongAdder();
+    private volatile boolean synced;
+
+    public record Info(String peer, boolean synced, long queuedBytes, long linesOut, long linesIn, long connectedMillis) {
+    }
+
+    ServerLink(String peer, ServerConnection connection) {
+        this.peer = peer;
+        this.connection = connection;
+    }
+
+    public String getPeer() {
+        return peer;
+    }
+
+    void send(String line) {
+        send(Frame.of(line));
+    }
+
+    void send(Frame frame) {
+        linesOut.increment();
+        connection.send(frame);
+    }
+
+    void received() {
+        linesIn.increment();
+    }
+
+    // Set once the peer's burst has been read in full.
+    void markSynced() {
+        synced = true;
+    }
+
+    void close() {
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    Info info() {
+        return new Info(peer, synced, connection.getQueuedBytes(), linesOut.sum(), linesIn.sum(),
+                System.currentTimeMillis() - connectedAt);
+    }
+}
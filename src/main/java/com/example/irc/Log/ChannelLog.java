@@ -0,0 +1,146 @@
+package com.example.irc.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * The segments of one channel, oldest first. The log writer appends and history queries scan under
+ * the same lock. Timestamps are kept non-decreasing so the time index stays sorted even when lines
+ * were queued slightly out of order.
+ */
+class ChannelLog {
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexInterval;
+    private final long segmentRollMillis;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextSeq = 1;
+    private long lastTimestamp;
+    private boolean dirty;
+
+    ChannelLog(Path directory, int segmentBytes, int indexInterval, long segmentRollMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        this.segmentRollMillis = segmentRollMillis;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> logs = files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+            for (int i = 0; i < logs.size(); i++) {
+                // Only the newest segment is appended to, so only it stays mapped.
+                segments.add(i == logs.size() - 1
+                        ? Segment.open(logs.get(i), indexInterval)
+                        : Segment.openSealed(logs.get(i), indexInterval));
+            }
+        }
+        for (Segment segment : segments) {
+            if (!segment.isEmpty()) {
+                nextSeq = segment.getLastSeq() + 1;
+                lastTimestamp = segment.getLastTimestamp();
+            }
+        }
+    }
+
+    long append(long timestamp, ByteBuffer line) throws IOException {
+        if (Segment.RECORD_HEADER + line.remaining() > segmentBytes) return 0;
+        lock.lock();
+        try {
+            timestamp = Math.max(timestamp, lastTimestamp);
+            Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (active == null || shouldRoll(active, timestamp) || !active.append(nextSeq, timestamp, line)) {
+                if (active != null) {
+                    active.seal();
+                }
+                active = Segment.create(directory, nextSeq, segmentBytes, indexInterval);
+                segments.add(active);
+                active.append(nextSeq, timestamp, line);
+            }
+            lastTimestamp = timestamp;
+            dirty = true;
+            return nextSeq++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean shouldRoll(Segment active, long timestamp) {
+        return !active.isEmpty() && timestamp - active.getFirstTimestamp() >= segmentRollMillis;
+    }
+
+    List<MessageLog.Record> scan(long from, long to, int limit) {
+        List<MessageLog.Record> records = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                if (records.size() >= limit) break;
+                segment.scan(from, to, limit, records);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        return records;
+    }
+
+    void force() {
+        lock.lock();
+        try {
+            if (!dirty || segments.isEmpty()) return;
+            segments.get(segments.size() - 1).force();
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes segments whose newest record is older than {@code cutoff}. Returns how many were removed.
+     */
+    int deleteBefore(long cutoff) {
+        int deleted = 0;
+        lock.lock();
+        try {
+            Iterator<Segment> iterator = segments.iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next();
+                if (segment.isEmpty() || segment.getLastTimestamp() >= cutoff) break;
+                segment.delete();
+                iterator.remove();
+                deleted++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        return deleted;
+    }
+
+    int mappedSegmentCount() {
+        lock.lock();
+        try {
+            return (int) segments.stream().filter(Segment::isMapped).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.irc.Log;
+
+import com.example.irc.Connection.Frame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Durable append-only log of channel traffic, one directory of memory-mapped segments per channel.
+ * Broadcasting threads only offer the already encoded frame to a bounded queue; a single writer thread
+ * drains it in batches, appends, forces the mapped pages every flush interval and deletes segments
+ * that have aged out of retention. When the queue is full the line is counted as dropped rather than
+ * slowing the broadcast down.
+ */
+public class MessageLog {
+    private static final int MAX_BATCH = 1024;
+    private static final long RETENTION_CHECK_MILLIS = 60_000;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexInterval;
+    private final long segmentRollMillis;
+    private final long retentionMillis;
+    private final long flushIntervalMillis;
+    private final BlockingQueue<Pending> queue;
+    private final Map<String, ChannelLog> channels = new ConcurrentHashMap<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private record Pending(String channel, long timestamp, Frame frame) {
+    }
+
+    public record Record(long seq, long timestamp, ByteBuffer line) {
+    }
+
+    public record Stats(long appended, long dropped, int queued) {
+    }
+
+    public MessageLog(Path directory, int segmentBytes, int indexInterval, long segmentRollMillis,
+                      long retentionMillis, long flushIntervalMillis, int queueCapacity) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        this.segmentRollMillis = segmentRollMillis;
+        this.retentionMillis = retentionMillis;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Files.createDirectories(directory);
+        try (Stream<Path> dirs = Files.list(directory)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                channels.put(dir.getFileName().toString(), openLog(dir));
+            }
+        }
+        this.writer = Thread.ofPlatform().name("irc-message-log").daemon().unstarted(this::writeLoop);
+        this.writer.start();
+    }
+
+    /**
+     * Queues {@code frame} for {@code channel} without blocking. Returns false if the line was dropped.
+     */
+    public boolean append(String channel, Frame frame) {
+        if (queue.offer(new Pending(channel, System.currentTimeMillis(), frame))) return true;
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Up to {@code limit} lines of {@code channel} with {@code from <= timestamp <= to}, oldest first.
+     * Lines still waiting in the queue are not included.
+     */
+    public List<Record> scan(String channel, long from, long to, int limit) {
+        ChannelLog log = channels.get(directoryName(channel));
+        if (log == null) return Collections.emptyList();
+        try {
+            return log.scan(from, to, limit);
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(appended.sum(), dropped.sum(), queue.size());
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        long lastFlush = System.currentTimeMillis();
+        long lastRetentionCheck = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastFlush >= flushIntervalMillis) {
+                channels.values().forEach(ChannelLog::force);
+                lastFlush = now;
+            }
+            if (now - lastRetentionCheck >= Math.min(RETENTION_CHECK_MILLIS, retentionMillis)) {
+                deleteExpired(now - retentionMillis);
+                lastRetentionCheck = now;
+            }
+        }
+        channels.values().forEach(ChannelLog::force);
+    }
+
+    private void write(List<Pending> batch) {
+        for (Pending pending : batch) {
+            try {
+                String name = directoryName(pending.channel);
+                ChannelLog log = channels.get(name);
+                if (log == null) {
+                    log = openLog(directory.resolve(name));
+                    channels.put(name, log);
+                }
+                if (log.append(pending.timestamp, pending.frame.buffer()) > 0) {
+                    appended.increment();
+                } else {
+                    dropped.increment();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace();
+                dropped.increment();
+            }
+        }
+    }
+
+    void deleteExpired(long cutoff) {
+        for (ChannelLog log : channels.values()) {
+            try {
+                log.deleteBefore(cutoff);
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private ChannelLog openLog(Path dir) throws IOException {
+        return new ChannelLog(dir, segmentBytes, indexInterval, segmentRollMillis);
+    }
+
+    // Channel names may hold characters that are not safe in file names.
+    private static String directoryName(String channel) {
+        return URLEncoder.encode(channel, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stops accepting work, writes whatever is still queued and forces it to disk.
+     */
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
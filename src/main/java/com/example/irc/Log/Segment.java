@@ -0,0 +1,272 @@
+package com.example.irc.Log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * One memory-mapped log file plus its sparse index. Records are {@code length, seq, timestamp, bytes};
+ * the length is written last, so a record cut short by a crash reads as the end of the segment. The index
+ * holds a {@code timestamp, seq, position} entry for the first record and then one every
+ * {@code indexInterval} bytes. Only the segment being appended to is mapped: once it is sealed it drops
+ * its buffers, leaving the mapping to the garbage collector, and scans of it read the file into heap
+ * buffers. Otherwise a busy server would hold a mapping per segment ever written and run into the
+ * process's map count.
+ * Not thread-safe; {@link ChannelLog} serializes access.
+ */
+class Segment {
+    static final int RECORD_HEADER = Integer.BYTES + 2 * Long.BYTES;
+    private static final int INDEX_ENTRY = 2 * Long.BYTES + Integer.BYTES;
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private final long baseSeq;
+    private final Path logPath;
+    private final Path indexPath;
+    private final int indexInterval;
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private int writePosition;
+    private int indexCount;
+    private int bytesSinceIndex;
+    private long lastSeq;
+    private long firstTimestamp;
+    private long lastTimestamp;
+
+    private Segment(long baseSeq, Path logPath, Path indexPath, int segmentBytes, int indexInterval) throws IOException {
+        this.baseSeq = baseSeq;
+        this.logPath = logPath;
+        this.indexPath = indexPath;
+        this.indexInterval = indexInterval;
+        this.data = map(logPath, segmentBytes);
+        this.index = map(indexPath, (segmentBytes / indexInterval + 1) * INDEX_ENTRY);
+        this.lastSeq = baseSeq - 1;
+    }
+
+    static Segment create(Path directory, long baseSeq, int segmentBytes, int indexInterval) throws IOException {
+        return new Segment(baseSeq, directory.resolve(fileName(baseSeq, ".log")),
+                directory.resolve(fileName(baseSeq, ".index")), segmentBytes, indexInterval);
+    }
+
+    /**
+     * Maps an existing segment and finds its end by walking forward from the last index entry.
+     */
+    static Segment open(Path logPath, int indexInterval) throws IOException {
+        String name = logPath.getFileName().toString();
+        long baseSeq = Long.parseLong(name.substring(0, name.length() - ".log".length()));
+        Segment segment = new Segment(baseSeq, logPath, logPath.resolveSibling(fileName(baseSeq, ".index")),
+                (int) Files.size(logPath), indexInterval);
+        segment.recover();
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment that will only be read: recovers its end, then drops the mapping.
+     */
+    static Segment openSealed(Path logPath, int indexInterval) throws IOException {
+        Segment segment = open(logPath, indexInterval);
+        segment.seal();
+        return segment;
+    }
+
+    static String fileName(long baseSeq, String suffix) {
+        return String.format("%020d%s", baseSeq, suffix);
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Log segment ends early at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private void recover() {
+        while (indexCount < index.capacity() / INDEX_ENTRY && index.getLong(indexCount * INDEX_ENTRY + Long.BYTES) != 0) {
+            indexCount++;
+        }
+        if (indexCount == 0) return;
+        firstTimestamp = index.getLong(0);
+        int position = index.getInt((indexCount - 1) * INDEX_ENTRY + 2 * Long.BYTES);
+        while (position + RECORD_HEADER <= data.capacity()) {
+            int length = data.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER + length > data.capacity()) break;
+            lastSeq = data.getLong(position + Integer.BYTES);
+            lastTimestamp = data.getLong(position + Integer.BYTES + Long.BYTES);
+            position += RECORD_HEADER + length;
+            bytesSinceIndex += RECORD_HEADER + length;
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Returns false when the record does not fit, in which case the caller rolls to a new segment.
+     */
+    boolean append(long seq, long timestamp, ByteBuffer line) {
+        int length = line.remaining();
+        if (writePosition + RECORD_HEADER + length > data.capacity()) return false;
+        if (indexCount == 0 || bytesSinceIndex >= indexInterval) {
+            int entry = indexCount * INDEX_ENTRY;
+            index.putLong(entry, timestamp);
+            index.putInt(entry + 2 * Long.BYTES, writePosition);
+            index.putLong(entry + Long.BYTES, seq);
+            indexCount++;
+            bytesSinceIndex = 0;
+        }
+        data.putLong(writePosition + Integer.BYTES, seq);
+        data.putLong(writePosition + Integer.BYTES + Long.BYTES, timestamp);
+        data.put(writePosition + RECORD_HEADER, line, line.position(), length);
+        data.putInt(writePosition, length);
+        if (isEmpty()) {
+            firstTimestamp = timestamp;
+        }
+        writePosition += RECORD_HEADER + length;
+        bytesSinceIndex += RECORD_HEADER + length;
+        lastSeq = seq;
+        lastTimestamp = timestamp;
+        return true;
+    }
+
+    /**
+     * Adds records with {@code from <= timestamp <= to} to {@code out}, starting at the index entry just before {@code from}.
+     */
+    void scan(long from, long to, int limit, List<MessageLog.Record> out) throws IOException {
+        if (isEmpty() || lastTimestamp < from || firstTimestamp > to) return;
+        if (data != null) {
+            scan(data, index, from, to, limit, out);
+            return;
+        }
+        scanSealed(from, to, limit, out);
+    }
+
+    // Reads the records a chunk at a time, so a scan costs a buffer rather than a mapping or the whole file.
+    private void scanSealed(long from, long to, int limit, List<MessageLog.Record> out) throws IOException {
+        try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.READ);
+             FileChannel idx = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer sealedIndex = ByteBuffer.allocate(indexCount * INDEX_ENTRY);
+            readFully(idx, sealedIndex, 0);
+            int position = sealedIndex.getInt(floorIndexEntry(sealedIndex, from) * INDEX_ENTRY + 2 * Long.BYTES);
+            ByteBuffer chunk = ByteBuffer.allocate(0);
+            int chunkStart = position;
+            while (out.size() < limit && position < writePosition) {
+                if (position + RECORD_HEADER > chunkStart + chunk.limit()) {
+                    chunk = read(log, chunk, position, RECORD_HEADER);
+                    chunkStart = position;
+                }
+                int offset = position - chunkStart;
+                int length = chunk.getInt(offset);
+                if (offset + RECORD_HEADER + length > chunk.limit()) {
+                    chunk = read(log, chunk, position, RECORD_HEADER + length);
+                    chunkStart = position;
+                    offset = 0;
+                }
+                long seq = chunk.getLong(offset + Integer.BYTES);
+                long timestamp = chunk.getLong(offset + Integer.BYTES + Long.BYTES);
+                if (timestamp > to) return;
+                if (timestamp >= from) {
+                    ByteBuffer line = ByteBuffer.allocate(length);
+                    line.put(0, chunk, offset + RECORD_HEADER, length);
+                    out.add(new MessageLog.Record(seq, timestamp, line.asReadOnlyBuffer()));
+                }
+                position += RECORD_HEADER + length;
+            }
+        }
+    }
+
+    // Refills from position, at least needed bytes and up to a chunk, reusing the buffer when it is big enough.
+    private ByteBuffer read(FileChannel log, ByteBuffer chunk, int position, int needed) throws IOException {
+        ByteBuffer buffer = chunk.capacity() >= needed ? chunk : ByteBuffer.allocate(Math.max(needed, READ_CHUNK));
+        buffer.clear().limit(Math.min(buffer.capacity(), writePosition - position));
+        readFully(log, buffer, position);
+        return buffer;
+    }
+
+    private void scan(ByteBuffer data, ByteBuffer index, long from, long to, int limit, List<MessageLog.Record> out) {
+        int position = index.getInt(floorIndexEntry(index, from) * INDEX_ENTRY + 2 * Long.BYTES);
+        while (out.size() < limit && position < writePosition) {
+            int length = data.getInt(position);
+            long seq = data.getLong(position + Integer.BYTES);
+            long timestamp = data.getLong(position + Integer.BYTES + Long.BYTES);
+            if (timestamp > to) return;
+            if (timestamp >= from) {
+                ByteBuffer line = ByteBuffer.allocate(length);
+                line.put(0, data, position + RECORD_HEADER, length);
+                out.add(new MessageLog.Record(seq, timestamp, line.asReadOnlyBuffer()));
+            }
+            position += RECORD_HEADER + length;
+        }
+    }
+
+    // Last entry whose timestamp is before from, so a scan starting there cannot skip a matching record.
+    private int floorIndexEntry(ByteBuffer index, long from) {
+        int low = 0;
+        int high = indexCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (index.getLong(mid * INDEX_ENTRY) < from) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    boolean isEmpty() {
+        return lastSeq < baseSeq;
+    }
+
+    long getBaseSeq() {
+        return baseSeq;
+    }
+
+    long getLastSeq() {
+        return lastSeq;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    void force() {
+        if (data == null) return;
+        data.force();
+        index.force();
+    }
+
+    /**
+     * Forces the segment once nothing more will be appended to it and lets go of its mapping.
+     */
+    void seal() {
+        if (data == null) return;
+        force();
+        data = null;
+        index = null;
+    }
+
+    boolean isMapped() {
+        return data != null;
+    }
+
+    void delete() throws IOException {
+        seal();
+        Files.deleteIfExists(logPath);
+        Files.deleteIfExists(indexPath);
+    }
+}
@@ -323,6 +323,11 @@ public class ClientMessageHandler extends MessageHandler {
         String timestamp = LocalDateTime.now().format(timeFormatter);
         messageCallback.onServerMessage(timestamp + " ← " + message);
 
+        // Message tags, such as those on replayed history, carry nothing the client uses.
+        if (message.startsWith("@") && message.indexOf(' ') > 0) {
+            message = message.substring(message.indexOf(' ') + 1);
+        }
+
         if (message.startsWith("PING")) {
             handlePing(message);
             return;
@@ -330,6 +335,15 @@ public class ClientMessageHandler extends MessageHandler {
 
         String[] parts = message.split(" ");
 
+        if (parts.length > 3 && parts[1].equals("RESUME") && parts[2].equals("TOKEN")) {
+            messageCallback.onResumeToken(parts[3]);
+            return;
+        }
+        if (parts.length > 2 && parts[1].equals("FAIL") && parts[2].equals("RESUME")) {
+            messageCallback.onResumeFailed();
+            return;
+        }
+
         if (parts.length > 1 && parts[1].matches("\\d{3}")) {
             int numeric = Integer.parseInt(parts[1]);
             Consumer<String[]> handler = numericCommandHandlers.get(numeric);
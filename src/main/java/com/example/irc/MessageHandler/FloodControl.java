@@ -0,0 +1,50 @@
+package com.example.irc.MessageHandler;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-connection rate limits, one {@link TokenBucket} per class of command. Commands outside the
+ * limited classes (login, PONG, QUIT and the like) are never delayed.
+ */
+public class FloodControl {
+    public enum CommandClass {
+        MESSAGE,
+        MEMBERSHIP,
+        QUERY,
+        UNLIMITED
+    }
+
+    public record Budget(double perSecond, int burst) {
+    }
+
+    private final Map<CommandClass, TokenBucket> buckets = new EnumMap<>(CommandClass.class);
+
+    public FloodControl(Map<CommandClass, Budget> budgets) {
+        budgets.forEach((commandClass, budget) -> buckets.put(commandClass, new TokenBucket(budget.perSecond(), budget.burst())));
+    }
+
+    public static CommandClass classify(IrcCommand command) {
+        return switch (command) {
+            case PRIVMSG -> CommandClass.MESSAGE;
+            case JOIN, PART, NICK -> CommandClass.MEMBERSHIP;
+            case LIST, NAMES, WHOIS, CHATHISTORY, SEARCH, STATS -> CommandClass.QUERY;
+            default -> CommandClass.UNLIMITED;
+        };
+    }
+
+    /**
+     * Returns 0 once {@code command} may run, or the nanoseconds the client has to wait for it.
+     */
+    public long tryAcquire(IrcCommand command, long nowNanos) {
+        TokenBucket bucket = buckets.get(classify(command));
+        return bucket == null ? 0 : bucket.tryAcquire(nowNanos);
+    }
+
+    public void refund(IrcCommand command) {
+        TokenBucket bucket = buckets.get(classify(command));
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+}
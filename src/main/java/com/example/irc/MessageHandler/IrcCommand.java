@@ -0,0 +1,72 @@
+package com.example.irc.MessageHandler;
+
+public enum IrcCommand {
+    REGISTER,
+    AUTH,
+    JOIN,
+    PART,
+    LIST,
+    NAMES,
+    PRIVMSG,
+    QUIT,
+    PONG,
+    NICK,
+    WHOIS,
+    RESUME,
+    CHATHISTORY,
+    SEARCH,
+    STATS,
+    CONNECT,
+    SQUIT,
+    UNKNOWN;
+
+    private static final int TABLE_SIZE = 64;
+    private static final IrcCommand[] TABLE = new IrcCommand[TABLE_SIZE];
+
+    static {
+        for (IrcCommand command : values()) {
+            if (command == UNKNOWN) continue;
+            int slot = hash(command.name(), 0, command.name().length()) & (TABLE_SIZE - 1);
+            while (TABLE[slot] != null) {
+                slot = (slot + 1) & (TABLE_SIZE - 1);
+            }
+            TABLE[slot] = command;
+        }
+    }
+
+    /**
+     * Case-insensitive lookup of {@code text[start, end)} without materialising the command name.
+     */
+    public static IrcCommand lookup(CharSequence text, int start, int end) {
+        int slot = hash(text, start, end) & (TABLE_SIZE - 1);
+        IrcCommand candidate;
+        while ((candidate = TABLE[slot]) != null) {
+            if (candidate.matches(text, start, end)) {
+                return candidate;
+            }
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+        return UNKNOWN;
+    }
+
+    private boolean matches(CharSequence text, int start, int end) {
+        String name = name();
+        if (name.length() != end - start) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != toUpper(text.charAt(start + i))) return false;
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + toUpper(text.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char toUpper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.irc.MessageHandler;
+
+/**
+ * Reusable flyweight over one RFC 1459 line: {@code [':' prefix SPACE] command *14(SPACE middle) [SPACE ':' trailing]}.
+ * Parsing only records offsets into the line; strings are created when a handler asks for a part.
+ * An instance belongs to a single connection and is overwritten by the next {@link #parse}.
+ */
+public final class IrcMessage {
+    public static final int MAX_LINE_BYTES = 512;
+    public static final int MAX_PARAMS = 15;
+    private static final int CRLF_BYTES = 2;
+
+    public enum ParseResult {
+        OK,
+        EMPTY,
+        TOO_LONG,
+        MALFORMED
+    }
+
+    private final int[] paramStart = new int[MAX_PARAMS];
+    private final int[] paramEnd = new int[MAX_PARAMS];
+    private CharSequence line;
+    private int prefixStart;
+    private int prefixEnd;
+    private int commandStart;
+    private int commandEnd;
+    private int paramCount;
+    private int end;
+    private boolean trailing;
+    private boolean trailingColon;
+    private IrcCommand command;
+
+    public ParseResult parse(CharSequence input) {
+        return parse(input, MAX_LINE_BYTES);
+    }
+
+    /**
+     * Parses with a different line limit, for server links whose lines carry prefixes clients never send.
+     */
+    public ParseResult parse(CharSequence input, int maxLineBytes) {
+        line = input;
+        prefixStart = prefixEnd = commandStart = commandEnd = paramCount = 0;
+        trailing = trailingColon = false;
+        command = IrcCommand.UNKNOWN;
+
+        end = input.length();
+        while (end > 0 && (input.charAt(end - 1) == '\n' || input.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        if (exceedsLineLimit(input, end, maxLineBytes)) {
+            return ParseResult.TOO_LONG;
+        }
+
+        int pos = skipSpaces(0, end);
+        if (pos == end) {
+            return ParseResult.EMPTY;
+        }
+
+        if (input.charAt(pos) == ':') {
+            prefixStart = pos + 1;
+            prefixEnd = nextSpace(prefixStart, end);
+            pos = skipSpaces(prefixEnd, end);
+            if (prefixEnd == prefixStart || pos == end) {
+                return ParseResult.MALFORMED;
+            }
+        }
+
+        commandStart = pos;
+        commandEnd = nextSpace(pos, end);
+        command = IrcCommand.lookup(input, commandStart, commandEnd);
+        pos = commandEnd;
+
+        while ((pos = skipSpaces(pos, end)) < end) {
+            boolean colon = input.charAt(pos) == ':';
+            if (colon || paramCount == MAX_PARAMS - 1) {
+                paramStart[paramCount] = colon ? pos + 1 : pos;
+                paramEnd[paramCount] = end;
+                paramCount++;
+                trailing = true;
+                trailingColon = colon;
+                break;
+            }
+            paramStart[paramCount] = pos;
+            pos = nextSpace(pos, end);
+            paramEnd[paramCount] = pos;
+            paramCount++;
+        }
+        return ParseResult.OK;
+    }
+
+    public IrcCommand getCommand() {
+        return command;
+    }
+
+    public String getCommandName() {
+        return line.subSequence(commandStart, commandEnd).toString();
+    }
+
+    public boolean hasPrefix() {
+        return prefixEnd > prefixStart;
+    }
+
+    public String getPrefix() {
+        return hasPrefix() ? line.subSequence(prefixStart, prefixEnd).toString() : null;
+    }
+
+    public int getParamCount() {
+        return paramCount;
+    }
+
+    public String getParam(int index) {
+        if (index < 0 || index >= paramCount) {
+            throw new IndexOutOfBoundsException("No parameter " + index + " in " + paramCount);
+        }
+        return line.subSequence(paramStart[index], paramEnd[index]).toString();
+    }
+
+    /**
+     * The rest of the line from parameter {@code index} on, exactly as sent, including spaces and any
+     * ':' before it. For arguments such as passwords that may contain spaces without a ':' prefix.
+     */
+    public String getRawParams(int index) {
+        if (index < 0 || index >= paramCount) {
+            throw new IndexOutOfBoundsException("No parameter " + index + " in " + paramCount);
+        }
+        int start = paramStart[index];
+        if (trailingColon && index == paramCount - 1) {
+            start--;
+        }
+        return line.subSequence(start, end).toString();
+    }
+
+    public char getParamChar(int index, int offset) {
+        return line.charAt(paramStart[index] + offset);
+    }
+
+    public int getParamLength(int index) {
+        return paramEnd[index] - paramStart[index];
+    }
+
+    public boolean hasTrailing() {
+        return trailing;
+    }
+
+    private int skipSpaces(int pos, int end) {
+        while (pos < end && line.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int nextSpace(int pos, int end) {
+        while (pos < end && line.charAt(pos) != ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    // The limit counts UTF-8 bytes including CRLF, so non-ASCII characters weigh more than one.
+    private static boolean exceedsLineLimit(CharSequence input, int end, int maxLineBytes) {
+        int limit = maxLineBytes - CRLF_BYTES;
+        if (end > limit) {
+            return true;
+        }
+        int bytes = end;
+        for (int i = 0; i < end; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x80) {
+                bytes += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+                if (bytes > limit) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
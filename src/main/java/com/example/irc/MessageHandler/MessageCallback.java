@@ -8,4 +8,10 @@ public interface MessageCallback {
     void sendServerCommand(String command);
     void closeConnection();
     void reconnectToServer(String host, int port);
+
+    default void onResumeToken(String token) {
+    }
+
+    default void onResumeFailed() {
+    }
 }
@@ -0,0 +1,45 @@
+package com.example.irc.MessageHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket held as one timestamp, the time at which the bucket would be full again (the GCRA form).
+ * Taking a token is a single CAS on that timestamp, so many threads can share a bucket without locking.
+ */
+public class TokenBucket {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param perSecond tokens added per second
+     * @param burst     tokens the bucket holds when full
+     */
+    public TokenBucket(double perSecond, int burst) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Takes a token and returns 0, or returns how many nanoseconds remain until one is available
+     * without taking anything.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long wait = next - burstNanos - nowNanos;
+            if (wait > 0) return wait;
+            if (fullAt.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    /**
+     * Returns a token taken by {@link #tryAcquire} that ended up unused.
+     */
+    public void refund() {
+        fullAt.addAndGet(-intervalNanos);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.irc.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram in the HDR style: every power of two is split into {@value #SUB_BUCKETS} buckets,
+ * so any recorded value is reported to within 12.5% across the whole long range. Recording is a bucket
+ * index computed from the leading zero count and a few atomic adds; it never allocates.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public record Snapshot(long count, long sum, long mean, long p50, long p90, long p99, long p999, long max) {
+    }
+
+    /**
+     * The bucket counts at one moment, so a later {@link #since} can report only what came after.
+     */
+    public static final class Mark {
+        private final long[] counts;
+        private final long sum;
+
+        private Mark(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Highest value that lands in the bucket, as HDR reports it.
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Percentiles from a copy of the buckets; concurrent recording may skew a snapshot slightly, never
+     * corrupt it.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return summarize(copy, total, sum.sum(), max.get());
+    }
+
+    public Mark mark() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Mark(copy, sum.sum());
+    }
+
+    /**
+     * Percentiles of the values recorded after {@code earlier} was taken. The all-time max cannot be
+     * split, so the max here is the top of the highest bucket that gained values, capped by the real max.
+     */
+    public Snapshot since(Mark earlier) {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i) - earlier.counts[i];
+            total += copy[i];
+            if (copy[i] > 0) highest = i;
+        }
+        long maxValue = highest < 0 ? 0 : Math.min(upperBound(highest), max.get());
+        return summarize(copy, total, sum.sum() - earlier.sum, maxValue);
+    }
+
+    private static Snapshot summarize(long[] counts, long total, long sumValue, long maxValue) {
+        return new Snapshot(total, sumValue, total == 0 ? 0 : sumValue / total,
+                percentile(counts, total, 0.50, maxValue), percentile(counts, total, 0.90, maxValue),
+                percentile(counts, total, 0.99, maxValue), percentile(counts, total, 0.999, maxValue), maxValue);
+    }
+
+    private static long percentile(long[] counts, long total, double percentile, long max) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.irc.Metrics;
+
+import com.example.irc.IRCServer;
+import com.example.irc.ServerConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link ServerMetrics} in the Prometheus text format at {@code /metrics}. Uses the JDK's HTTP
+ * server on its own port so scraping works without pulling a web stack into the IRC process.
+ */
+@Component
+public class MetricsEndpoint {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ServerMetrics metrics;
+    private final ServerConfig serverConfig;
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    @Autowired
+    public MetricsEndpoint(IRCServer ircServer, ServerConfig serverConfig) {
+        this(ircServer.getMetrics(), serverConfig);
+    }
+
+    public MetricsEndpoint(ServerMetrics metrics, ServerConfig serverConfig) {
+        this.metrics = metrics;
+        this.serverConfig = serverConfig;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!serverConfig.isMetricsEnabled()) return;
+        httpServer = HttpServer.create(new InetSocketAddress(serverConfig.getMetricsBindAddress(), serverConfig.getMetricsPort()), 16);
+        executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("irc-metrics-http").daemon().factory());
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/metrics", this::scrape);
+        httpServer.start();
+        System.out.println("Metrics endpoint listening on " + httpServer.getAddress());
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public int getLocalPort() {
+        return httpServer == null ? -1 : httpServer.getAddress().getPort();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.irc.Metrics;
+
+import com.example.irc.MessageHandler.IrcCommand;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Everything the server measures about itself. Histograms and per-channel counters are created up front
+ * (commands here, channels when the channel is created) so the recording calls are lookups and atomic adds.
+ * Gauges are read only when someone asks for a report.
+ */
+public class ServerMetrics {
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<IrcCommand, Histogram> commandNanos = new EnumMap<>(IrcCommand.class);
+    private final Map<String, ChannelFanOut> channels = new ConcurrentHashMap<>();
+    private final Histogram fanOutRecipients = new Histogram();
+    private final Histogram fanOutNanos = new Histogram();
+    private final Histogram authNanos = new Histogram();
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+
+    /**
+     * Fan-out totals for one channel; recipients and nanos divided by messages give the averages.
+     */
+    public static class ChannelFanOut {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder recipients = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public long getMessages() {
+            return messages.sum();
+        }
+
+        public long getRecipients() {
+            return recipients.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+    }
+
+    public ServerMetrics() {
+        for (IrcCommand command : IrcCommand.values()) {
+            commandNanos.put(command, new Histogram());
+        }
+    }
+
+    /**
+     * Registers a gauge; call while the server is being set up, before reports are taken.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public void addChannel(String channel) {
+        channels.putIfAbsent(channel, new ChannelFanOut());
+    }
+
+    public void removeChannel(String channel) {
+        channels.remove(channel);
+    }
+
+    public void recordCommand(IrcCommand command, long nanos) {
+        commandNanos.get(command).record(nanos);
+    }
+
+    public void recordAuth(long nanos) {
+        authNanos.record(nanos);
+    }
+
+    public void recordFanOut(String channel, int recipients, long nanos) {
+        fanOutRecipients.record(recipients);
+        fanOutNanos.record(nanos);
+        ChannelFanOut fanOut = channels.get(channel);
+        if (fanOut != null) {
+            fanOut.messages.increment();
+            fanOut.recipients.add(recipients);
+            fanOut.nanos.add(nanos);
+            if (nanos > fanOut.maxNanos.get()) {
+                fanOut.maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+    }
+
+    public long getUptimeMillis() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    public Map<IrcCommand, Histogram> getCommandLatency() {
+        return commandNanos;
+    }
+
+    public Map<String, ChannelFanOut> getChannelFanOut() {
+        return channels;
+    }
+
+    public Histogram getFanOutRecipients() {
+        return fanOutRecipients;
+    }
+
+    public Histogram getFanOutNanos() {
+        return fanOutNanos;
+    }
+
+    public Histogram getAuthLatency() {
+        return authNanos;
+    }
+
+    public Map<String, Long> readGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Prometheus text exposition format. Latencies are exported in seconds, as Prometheus expects.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# TYPE irc_uptime_seconds gauge\n");
+        out.append("irc_uptime_seconds ").append(TimeUnit.MILLISECONDS.toSeconds(getUptimeMillis())).append('\n');
+        readGauges().forEach((name, value) -> {
+            String metric = "irc_" + name.replace('.', '_');
+            out.append("# TYPE ").append(metric).append(" gauge\n");
+            out.append(metric).append(' ').append(value).append('\n');
+        });
+
+        out.append("# TYPE irc_command_latency_seconds summary\n");
+        commandNanos.forEach((command, histogram) -> {
+            if (histogram.getCount() > 0) {
+                summary(out, "irc_command_latency_seconds", "{command=\"" + command + "\"", histogram.snapshot(), true);
+            }
+        });
+        out.append("# TYPE irc_auth_latency_seconds summary\n");
+        summary(out, "irc_auth_latency_seconds", "{", authNanos.snapshot(), true);
+        out.append("# TYPE irc_fanout_latency_seconds summary\n");
+        summary(out, "irc_fanout_latency_seconds", "{", fanOutNanos.snapshot(), true);
+        out.append("# TYPE irc_fanout_recipients summary\n");
+        summary(out, "irc_fanout_recipients", "{", fanOutRecipients.snapshot(), false);
+
+        out.append("# TYPE irc_channel_messages_total counter\n");
+        channels.forEach((channel, fanOut) -> channelLine(out, "irc_channel_messages_total", channel).append(fanOut.getMessages()).append('\n'));
+        out.append("# TYPE irc_channel_recipients_total counter\n");
+        channels.forEach((channel, fanOut) -> channelLine(out, "irc_channel_recipients_total", channel).append(fanOut.getRecipients()).append('\n'));
+        out.append("# TYPE irc_channel_fanout_seconds_total counter\n");
+        channels.forEach((channel, fanOut) -> channelLine(out, "irc_channel_fanout_seconds_total", channel).append(seconds(fanOut.getNanos())).append('\n'));
+        return out.toString();
+    }
+
+    // labels is the opening of the label set, e.g. {command="JOIN" or just {.
+    private static void summary(StringBuilder out, String name, String labels, Histogram.Snapshot snapshot, boolean nanos) {
+        String separator = labels.length() > 1 ? "," : "";
+        quantile(out, name, labels + separator, "0.5", snapshot.p50(), nanos);
+        quantile(out, name, labels + separator, "0.9", snapshot.p90(), nanos);
+        quantile(out, name, labels + separator, "0.99", snapshot.p99(), nanos);
+        quantile(out, name, labels + separator, "0.999", snapshot.p999(), nanos);
+        String closed = labels.length() > 1 ? labels + "}" : "";
+        out.append(name).append("_sum").append(closed).append(' ')
+                .append(nanos ? seconds(snapshot.sum()) : String.valueOf(snapshot.sum())).append('\n');
+        out.append(name).append("_count").append(closed).append(' ').append(snapshot.count()).append('\n');
+    }
+
+    private static void quantile(StringBuilder out, String name, String labels, String quantile, long value, boolean nanos) {
+        out.append(name).append(labels).append("quantile=\"").append(quantile).append("\"} ")
+                .append(nanos ? seconds(value) : String.valueOf(value)).append('\n');
+    }
+
+    private static StringBuilder channelLine(StringBuilder out, String name, String channel) {
+        return out.append(name).append("{channel=\"").append(channel.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"} ");
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.irc.Search;
+
+/**
+ * Read access shared by the segment being filled and the frozen ones. Document ids are local to the
+ * segment and posting lists are sorted ascending.
+ */
+interface DocSource {
+    int docCount();
+
+    int[] postings(String term);
+
+    long minTimestamp();
+
+    long maxTimestamp();
+
+    long timestamp(int doc);
+
+    String channel(int doc);
+
+    String nick(int doc);
+
+    String text(int doc);
+}
@@ -0,0 +1,232 @@
+package com.example.irc.Search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable part of the index. Terms are sorted for binary search and each posting list is stored as
+ * varint-encoded gaps between document ids, which for chat text is mostly one or two bytes per posting.
+ */
+final class IndexSegment implements DocSource {
+    private final String[] terms;
+    private final int[] docFrequencies;
+    private final int[] postingOffsets;
+    private final byte[] postings;
+    private final long[] timestamps;
+    private final String[] channels;
+    private final String[] nicks;
+    private final int[] textOffsets;
+    private final byte[] text;
+    private final String[] names;
+
+    private IndexSegment(String[] terms, int[] docFrequencies, int[] postingOffsets, byte[] postings,
+                         long[] timestamps, String[] channels, String[] nicks, int[] textOffsets, byte[] text) {
+        this.terms = terms;
+        this.docFrequencies = docFrequencies;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+        this.timestamps = timestamps;
+        this.channels = channels;
+        this.nicks = nicks;
+        this.textOffsets = textOffsets;
+        this.text = text;
+        Set<String> distinct = new HashSet<>();
+        for (int i = 0; i < channels.length; i++) {
+            distinct.add(channels[i]);
+            distinct.add(nicks[i]);
+        }
+        this.names = distinct.toArray(new String[0]);
+    }
+
+    static IndexSegment freeze(SegmentBuilder builder) {
+        int count = builder.count;
+        String[] terms = builder.terms.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] docFrequencies = new int[terms.length];
+        int[] postingOffsets = new int[terms.length + 1];
+        Bytes postings = new Bytes(count * 8);
+        for (int t = 0; t < terms.length; t++) {
+            SegmentBuilder.Postings list = builder.terms.get(terms[t]);
+            docFrequencies[t] = list.size;
+            postingOffsets[t] = postings.size;
+            int previous = -1;
+            for (int i = 0; i < list.size; i++) {
+                postings.writeVarint(list.docs[i] - previous);
+                previous = list.docs[i];
+            }
+        }
+        postingOffsets[terms.length] = postings.size;
+        return new IndexSegment(terms, docFrequencies, postingOffsets, postings.toArray(),
+                Arrays.copyOf(builder.timestamps, count), Arrays.copyOf(builder.channels, count),
+                Arrays.copyOf(builder.nicks, count), Arrays.copyOf(builder.textOffsets, count + 1),
+                Arrays.copyOf(builder.text, builder.textLength));
+    }
+
+    /**
+     * Concatenates adjacent segments, oldest first, shifting each one's document ids past the previous ones.
+     */
+    static IndexSegment merge(List<IndexSegment> segments) {
+        TreeSet<String> union = new TreeSet<>();
+        int count = 0;
+        int textLength = 0;
+        for (IndexSegment segment : segments) {
+            union.addAll(Arrays.asList(segment.terms));
+            count += segment.docCount();
+            textLength += segment.text.length;
+        }
+
+        String[] terms = union.toArray(new String[0]);
+        int[] docFrequencies = new int[terms.length];
+        int[] postingOffsets = new int[terms.length + 1];
+        Bytes postings = new Bytes(segments.stream().mapToInt(segment -> segment.postings.length).sum());
+        int[] cursors = new int[segments.size()];
+        for (int t = 0; t < terms.length; t++) {
+            postingOffsets[t] = postings.size;
+            int previous = -1;
+            int base = 0;
+            for (int s = 0; s < segments.size(); s++) {
+                IndexSegment segment = segments.get(s);
+                int cursor = cursors[s];
+                if (cursor < segment.terms.length && segment.terms[cursor].equals(terms[t])) {
+                    for (int doc : segment.decode(cursor)) {
+                        postings.writeVarint(base + doc - previous);
+                        previous = base + doc;
+                    }
+                    docFrequencies[t] += segment.docFrequencies[cursor];
+                    cursors[s]++;
+                }
+                base += segment.docCount();
+            }
+        }
+        postingOffsets[terms.length] = postings.size;
+
+        long[] timestamps = new long[count];
+        String[] channels = new String[count];
+        String[] nicks = new String[count];
+        int[] textOffsets = new int[count + 1];
+        byte[] text = new byte[textLength];
+        int doc = 0;
+        int textBase = 0;
+        for (IndexSegment segment : segments) {
+            int n = segment.docCount();
+            System.arraycopy(segment.timestamps, 0, timestamps, doc, n);
+            System.arraycopy(segment.channels, 0, channels, doc, n);
+            System.arraycopy(segment.nicks, 0, nicks, doc, n);
+            for (int i = 0; i < n; i++) {
+                textOffsets[doc + i] = textBase + segment.textOffsets[i];
+            }
+            System.arraycopy(segment.text, 0, text, textBase, segment.text.length);
+            doc += n;
+            textBase += segment.text.length;
+        }
+        textOffsets[count] = textBase;
+        return new IndexSegment(terms, docFrequencies, postingOffsets, postings.toArray(),
+                timestamps, channels, nicks, textOffsets, text);
+    }
+
+    /**
+     * Rough heap footprint, used to keep the whole index under its memory limit.
+     */
+    long sizeBytes() {
+        long termBytes = 0;
+        for (String term : terms) {
+            termBytes += 48 + term.length();
+        }
+        return termBytes + 8L * terms.length + postings.length + text.length + 24L * timestamps.length;
+    }
+
+    /**
+     * The distinct channel and nick strings the segment refers to.
+     */
+    String[] names() {
+        return names;
+    }
+
+    private int[] decode(int term) {
+        int[] docs = new int[docFrequencies[term]];
+        int position = postingOffsets[term];
+        int previous = -1;
+        for (int i = 0; i < docs.length; i++) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position++];
+                gap |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += gap;
+            docs[i] = previous;
+        }
+        return docs;
+    }
+
+    @Override
+    public int docCount() {
+        return timestamps.length;
+    }
+
+    @Override
+    public int[] postings(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index < 0 ? new int[0] : decode(index);
+    }
+
+    @Override
+    public long minTimestamp() {
+        return timestamps.length == 0 ? Long.MAX_VALUE : timestamps[0];
+    }
+
+    @Override
+    public long maxTimestamp() {
+        return timestamps.length == 0 ? Long.MIN_VALUE : timestamps[timestamps.length - 1];
+    }
+
+    @Override
+    public long timestamp(int doc) {
+        return timestamps[doc];
+    }
+
+    @Override
+    public String channel(int doc) {
+        return channels[doc];
+    }
+
+    @Override
+    public String nick(int doc) {
+        return nicks[doc];
+    }
+
+    @Override
+    public String text(int doc) {
+        return new String(text, textOffsets[doc], textOffsets[doc + 1] - textOffsets[doc], StandardCharsets.UTF_8);
+    }
+
+    private static final class Bytes {
+        private byte[] bytes;
+        private int size;
+
+        Bytes(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void writeVarint(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
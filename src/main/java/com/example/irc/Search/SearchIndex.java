@@ -0,0 +1,373 @@
+package com.example.irc.Search;
+
+import com.example.irc.User.NickRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Incremental inverted index over channel messages. Senders only queue the message; one indexer thread
+ * tokenizes it into a growing {@link SegmentBuilder}, which is frozen into a compressed
+ * {@link IndexSegment} once it holds {@code segmentDocs} messages. A background thread merges runs of
+ * {@value #MERGE_FACTOR} similarly sized segments so a query touches few of them, and the oldest
+ * segments are dropped whenever the index grows past its memory limit. The limit also covers the
+ * builder, counted at the size it reached before its last freeze, and the interned channel and nick
+ * strings, which are dropped with the last segment that refers to them.
+ */
+public class SearchIndex {
+    static final int MERGE_FACTOR = 4;
+    private static final int MAX_MERGED_SEGMENTS = 64;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 32;
+
+    private final long maxBytes;
+    private final int segmentDocs;
+    private final BlockingQueue<Pending> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, String> interned = new ConcurrentHashMap<>();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("irc-search-merge").daemon().factory());
+    private final AtomicInteger pendingMerges = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private final Thread indexer;
+    private volatile boolean running = true;
+    private volatile List<IndexSegment> segments = List.of();
+    private SegmentBuilder active;
+    private long activeBytes;
+    private long internedBytes;
+    private long lastTimestamp;
+
+    private record Pending(String channel, String nick, long timestamp, String text) {
+    }
+
+    public record Hit(long timestamp, String channel, String nick, String text) {
+    }
+
+    /**
+     * {@code channels} and {@code nick} may be null to match any; {@code text} must contain at least one term,
+     * and every term has to appear in a hit.
+     */
+    public record Query(Set<String> channels, String nick, long from, long to, String text, int limit) {
+    }
+
+    public record Stats(long indexed, long dropped, long merges, int segments, long bytes, int queued) {
+    }
+
+    public SearchIndex(long maxBytes, int segmentDocs, int queueCapacity) {
+        this.maxBytes = maxBytes;
+        this.segmentDocs = segmentDocs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.active = new SegmentBuilder(segmentDocs);
+        this.indexer = Thread.ofPlatform().name("irc-search-indexer").daemon().unstarted(this::indexLoop);
+        this.indexer.start();
+    }
+
+    /**
+     * Queues a message for indexing without blocking. Returns false if it was dropped.
+     */
+    public boolean add(String channel, String nick, long timestamp, String text) {
+        if (queue.offer(new Pending(channel, nick, timestamp, text))) {
+            accepted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void indexLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending pending = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (pending != null) {
+                    try {
+                        index(pending.channel, pending.nick, pending.timestamp, pending.text);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                        dropped.increment();
+                    }
+                    processed.increment();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    // Called by the indexer thread only; tests and benchmarks call it directly instead of starting a load through add().
+    void index(String channel, String nick, long timestamp, String text) {
+        List<String> terms = terms(text);
+        boolean froze = false;
+        lock.lock();
+        try {
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            active.add(lastTimestamp, intern(channel), intern(nick), text, terms);
+            if (active.isFull()) {
+                activeBytes = active.sizeBytes();
+                List<IndexSegment> next = new ArrayList<>(segments);
+                next.add(IndexSegment.freeze(active));
+                segments = evictOverLimit(next);
+                active = new SegmentBuilder(segmentDocs);
+                froze = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        indexed.increment();
+        if (froze) {
+            scheduleMerge();
+        }
+    }
+
+    // Under the lock, by the indexer thread.
+    private String intern(String value) {
+        String existing = interned.putIfAbsent(value, value);
+        if (existing != null) return existing;
+        internedBytes += internedSize(value);
+        return value;
+    }
+
+    private static long internedSize(String value) {
+        return 48 + 32 + value.length();
+    }
+
+    /**
+     * Lowercased runs of letters and digits, each once, in order of first appearance.
+     */
+    static List<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                }
+            } else if (term.length() > 0) {
+                if (term.length() >= MIN_TERM_LENGTH) {
+                    terms.add(term.toString());
+                }
+                term.setLength(0);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Newest matches first, at most {@code query.limit()} of them.
+     */
+    public List<Hit> search(Query query) {
+        List<String> terms = terms(query.text());
+        if (terms.isEmpty() || query.limit() <= 0) return Collections.emptyList();
+        String nick = query.nick() != null ? NickRegistry.fold(query.nick()) : null;
+        List<Hit> hits = new ArrayList<>();
+        List<IndexSegment> frozen;
+        lock.lock();
+        try {
+            collect(active, terms, query, nick, hits);
+            frozen = segments;
+        } finally {
+            lock.unlock();
+        }
+        for (int i = frozen.size() - 1; i >= 0 && hits.size() < query.limit(); i--) {
+            collect(frozen.get(i), terms, query, nick, hits);
+        }
+        return hits;
+    }
+
+    private static void collect(DocSource source, List<String> terms, Query query, String nick, List<Hit> hits) {
+        if (source.docCount() == 0 || source.maxTimestamp() < query.from() || source.minTimestamp() > query.to()) return;
+        int[][] lists = new int[terms.size()][];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = source.postings(terms.get(i));
+            if (lists[i].length == 0) return;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        int[] matches = lists[0];
+        int matchCount = matches.length;
+        for (int i = 1; i < lists.length && matchCount > 0; i++) {
+            matchCount = intersect(matches, matchCount, lists[i]);
+        }
+        for (int i = matchCount - 1; i >= 0 && hits.size() < query.limit(); i--) {
+            int doc = matches[i];
+            long timestamp = source.timestamp(doc);
+            if (timestamp > query.to()) continue;
+            if (timestamp < query.from()) return;
+            if (query.channels() != null && !query.channels().contains(source.channel(doc))) continue;
+            if (nick != null && !nick.equals(NickRegistry.fold(source.nick(doc)))) continue;
+            hits.add(new Hit(timestamp, source.channel(doc), source.nick(doc), source.text(doc)));
+        }
+    }
+
+    // Keeps in matches[0, count) only the ids also present in other; both are sorted.
+    private static int intersect(int[] matches, int count, int[] other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.length; i++) {
+            while (j < other.length && other[j] < matches[i]) {
+                j++;
+            }
+            if (j < other.length && other[j] == matches[i]) {
+                matches[kept++] = matches[i];
+            }
+        }
+        return kept;
+    }
+
+    private void scheduleMerge() {
+        pendingMerges.incrementAndGet();
+        merger.execute(() -> {
+            try {
+                while (mergeOnce()) {
+                    merges.increment();
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                pendingMerges.decrementAndGet();
+            }
+        });
+    }
+
+    // Merges the newest run of MERGE_FACTOR segments that share a size tier. Returns false when there is none.
+    private boolean mergeOnce() {
+        List<IndexSegment> snapshot = segments;
+        int runEnd = -1;
+        for (int end = snapshot.size(); end >= MERGE_FACTOR; end--) {
+            int tier = tier(snapshot.get(end - 1));
+            boolean sameTier = true;
+            for (int i = end - MERGE_FACTOR; i < end - 1 && sameTier; i++) {
+                sameTier = tier(snapshot.get(i)) == tier;
+            }
+            if (sameTier && tier < tier(MAX_MERGED_SEGMENTS * segmentDocs)) {
+                runEnd = end;
+                break;
+            }
+        }
+        if (runEnd < 0) return false;
+
+        List<IndexSegment> run = snapshot.subList(runEnd - MERGE_FACTOR, runEnd);
+        IndexSegment merged = IndexSegment.merge(run);
+        lock.lock();
+        try {
+            List<IndexSegment> current = segments;
+            int start = indexOf(current, run.get(0));
+            if (start < 0 || start + MERGE_FACTOR > current.size()
+                    || !current.subList(start, start + MERGE_FACTOR).equals(run)) {
+                return true;
+            }
+            List<IndexSegment> next = new ArrayList<>(current.subList(0, start));
+            next.add(merged);
+            next.addAll(current.subList(start + MERGE_FACTOR, current.size()));
+            segments = evictOverLimit(next);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private static int indexOf(List<IndexSegment> list, IndexSegment segment) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == segment) return i;
+        }
+        return -1;
+    }
+
+    private int tier(IndexSegment segment) {
+        return tier(segment.docCount());
+    }
+
+    private int tier(int docs) {
+        int tier = 0;
+        for (long size = segmentDocs; size < docs; size *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    // Under the lock. Interned strings count until the segments using them are dropped, then the table is rebuilt.
+    private List<IndexSegment> evictOverLimit(List<IndexSegment> next) {
+        long total = activeBytes + internedBytes;
+        for (IndexSegment segment : next) {
+            total += segment.sizeBytes();
+        }
+        int drop = 0;
+        while (total > maxBytes && drop < next.size()) {
+            total -= next.get(drop++).sizeBytes();
+        }
+        List<IndexSegment> kept = List.copyOf(next.subList(drop, next.size()));
+        if (drop > 0) {
+            retainInterned(kept);
+        }
+        return kept;
+    }
+
+    private void retainInterned(List<IndexSegment> kept) {
+        Set<String> live = active.names();
+        for (IndexSegment segment : kept) {
+            live.addAll(Arrays.asList(segment.names()));
+        }
+        interned.keySet().retainAll(live);
+        long bytes = 0;
+        for (String value : interned.keySet()) {
+            bytes += internedSize(value);
+        }
+        internedBytes = bytes;
+    }
+
+    public Stats getStats() {
+        List<IndexSegment> current = segments;
+        long bytes = 0;
+        for (IndexSegment segment : current) {
+            bytes += segment.sizeBytes();
+        }
+        lock.lock();
+        try {
+            bytes += activeBytes + internedBytes;
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(indexed.sum(), dropped.sum(), merges.sum(), current.size(), bytes, queue.size());
+    }
+
+    int internedCount() {
+        return interned.size();
+    }
+
+    /**
+     * Waits until queued messages are indexed and no merge is running. For tests and benchmarks.
+     */
+    void awaitIdle() throws InterruptedException {
+        while (processed.sum() < accepted.sum() || pendingMerges.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    public void close() {
+        running = false;
+        merger.shutdownNow();
+        try {
+            indexer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.irc.Search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The newest, still growing part of the index. Only the indexer thread adds to it; {@link SearchIndex}
+ * guards concurrent reads with its lock.
+ */
+class SegmentBuilder implements DocSource {
+    private static final int[] NO_DOCS = new int[0];
+
+    final Map<String, Postings> terms = new HashMap<>();
+    long[] timestamps;
+    String[] channels;
+    String[] nicks;
+    int[] textOffsets;
+    byte[] text;
+    int textLength;
+    int count;
+
+    static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) return;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    SegmentBuilder(int capacity) {
+        timestamps = new long[capacity];
+        channels = new String[capacity];
+        nicks = new String[capacity];
+        textOffsets = new int[capacity + 1];
+        text = new byte[capacity * 32];
+    }
+
+    int add(long timestamp, String channel, String nick, String message, List<String> messageTerms) {
+        int doc = count++;
+        timestamps[doc] = timestamp;
+        channels[doc] = channel;
+        nicks[doc] = nick;
+        byte[] encoded = message.getBytes(StandardCharsets.UTF_8);
+        if (textLength + encoded.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + encoded.length));
+        }
+        System.arraycopy(encoded, 0, text, textLength, encoded.length);
+        textOffsets[doc] = textLength;
+        textLength += encoded.length;
+        textOffsets[doc + 1] = textLength;
+        for (String term : messageTerms) {
+            terms.computeIfAbsent(term, key -> new Postings()).add(doc);
+        }
+        return doc;
+    }
+
+    Set<String> names() {
+        Set<String> names = new HashSet<>();
+        for (int doc = 0; doc < count; doc++) {
+            names.add(channels[doc]);
+            names.add(nicks[doc]);
+        }
+        return names;
+    }
+
+    /**
+     * Rough heap footprint including the preallocated arrays, counted like {@link IndexSegment#sizeBytes()}.
+     */
+    long sizeBytes() {
+        long termBytes = 0;
+        for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+            termBytes += 48 + entry.getKey().length() + 32 + 4L * entry.getValue().docs.length;
+        }
+        return termBytes + text.length + 24L * timestamps.length + 4L * textOffsets.length;
+    }
+
+    boolean isFull() {
+        return count == timestamps.length;
+    }
+
+    @Override
+    public int docCount() {
+        return count;
+    }
+
+    @Override
+    public int[] postings(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? NO_DOCS : Arrays.copyOf(postings.docs, postings.size);
+    }
+
+    @Override
+    public long minTimestamp() {
+        return count == 0 ? Long.MAX_VALUE : timestamps[0];
+    }
+
+    @Override
+    public long maxTimestamp() {
+        return count == 0 ? Long.MIN_VALUE : timestamps[count - 1];
+    }
+
+    @Override
+    public long timestamp(int doc) {
+        return timestamps[doc];
+    }
+
+    @Override
+    public String channel(int doc) {
+        return channels[doc];
+    }
+
+    @Override
+    public String nick(int doc) {
+        return nicks[doc];
+    }
+
+    @Override
+    public String text(int doc) {
+        return new String(text, textOffsets[doc], textOffsets[doc + 1] - textOffsets[doc], StandardCharsets.UTF_8);
+    }
+}
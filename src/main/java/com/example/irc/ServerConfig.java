@@ -5,25 +5,122 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "irc.server")
 @Data
 public class ServerConfig {
     private int defaultPort;
+    private Transport transport = Transport.BLOCKING;
+    private int eventLoopThreads = Runtime.getRuntime().availableProcessors();
+    private int channelShards = Runtime.getRuntime().availableProcessors();
+    private int channelShardQueueCapacity = 16384;
+    private int fanoutParallelThreshold = 10000;
+    private int fanoutPartitionSize = 1024;
+    private int fanoutThreads = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads;
+    private int acceptBacklog = 1024;
+    private int acceptorThreads = 1;
+    private int maxConnections = 10000;
+    private int maxConnectionsPerIp = 32;
+    private long pingIntervalMillis = 30000;
+    private long pongTimeoutMillis = 10000;
+    private long sendQueueMaxBytes = 1024 * 1024;
+    private int sendQueueMaxMessages = 10000;
+    private int dnsResolverThreads = 4;
+    private long dnsTimeoutMillis = 2000;
+    private long dnsCacheTtlMillis = 3600000;
+    private int dnsCacheMaxEntries = 10000;
+    private int authThreads = Runtime.getRuntime().availableProcessors();
+    private int authQueueCapacity = 1000;
+    private long resumeTokenTtlMillis = 600000;
+    private int resumeTokenMaxEntries = 100000;
+    private long userFlushIntervalMillis = 100;
+    private int userFlushBatchSize = 500;
+    private int historyMaxLines = 500;
+    private int historyMaxBytes = 256 * 1024;
+    private long historyGlobalMaxBytes = 64L * 1024 * 1024;
+    private boolean historyOffHeap;
+    private int historyReplayOnJoin;
+    private boolean messageLogEnabled;
+    private String messageLogDirectory = "data/message-log";
+    private int messageLogSegmentBytes = 16 * 1024 * 1024;
+    private int messageLogIndexIntervalBytes = 4096;
+    private long messageLogSegmentRollMillis = 3600000;
+    private long messageLogRetentionMillis = 7L * 24 * 3600000;
+    private long messageLogFlushIntervalMillis = 1000;
+    private int messageLogQueueCapacity = 65536;
+    private boolean searchEnabled = true;
+    private long searchMaxBytes = 64L * 1024 * 1024;
+    private int searchSegmentDocs = 65536;
+    private int searchQueueCapacity = 65536;
+    private boolean floodControlEnabled = true;
+    private double floodMessagesPerSecond = 5;
+    private int floodMessageBurst = 20;
+    private double floodMembershipPerSecond = 1;
+    private int floodMembershipBurst = 10;
+    private double floodQueriesPerSecond = 2;
+    private int floodQueryBurst = 10;
+    private double floodChannelMessagesPerSecond = 50;
+    private int floodChannelMessageBurst = 200;
+    private List<String> operators = new ArrayList<>();
+    private boolean metricsEnabled = true;
+    private String metricsBindAddress = "127.0.0.1";
+    private int metricsPort = 9464;
+    private String serverName = "MyIRCServer";
+    private boolean linkEnabled;
+    private String linkBindAddress = "127.0.0.1";
+    private int linkPort = 7000;
+    private String linkPassword = "";
+    private List<String> linkPeers = new ArrayList<>();
+    private long linkReconnectMillis = 5000;
+    private long linkSendQueueMaxBytes = 64L * 1024 * 1024;
+
+    public enum Transport {
+        BLOCKING,
+        NIO
+    }
 
     @Builder
     public static class ServerConfigBuilder {
         private int port;
+        private Transport transport;
+        private int eventLoopThreads;
+        private boolean virtualThreads;
 
         public ServerConfigBuilder port(int port) {
             this.port = port;
             return this;
         }
 
+        public ServerConfigBuilder transport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public ServerConfigBuilder eventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+            return this;
+        }
+
+        public ServerConfigBuilder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
         public ServerConfig build() {
             ServerConfig config = new ServerConfig();
             config.defaultPort = this.port > 0 ? this.port : 6667;
+            if (this.transport != null) {
+                config.transport = this.transport;
+            }
+            if (this.eventLoopThreads > 0) {
+                config.eventLoopThreads = this.eventLoopThreads;
+            }
+            config.virtualThreads = this.virtualThreads;
             return config;
         }
     }
-}
\ No newline at end of file
+}
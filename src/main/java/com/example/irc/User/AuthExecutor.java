@@ -0,0 +1,103 @@
+package com.example.irc.User;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and the account lookups around it on a fixed pool with a bounded queue, so a
+ * reconnect storm queues up or is turned away instead of occupying every connection thread.
+ * Tracks how long jobs wait in the queue separately from how long they take to run.
+ */
+public class AuthExecutor {
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+
+    public record Stats(long submitted, long rejected, long completed, int queued,
+                        long avgQueueWaitMicros, long maxQueueWaitMicros,
+                        long avgServiceMicros, long maxServiceMicros) {
+    }
+
+    public AuthExecutor(int threads, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("irc-auth-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues {@code job}, or throws {@link RejectedExecutionException} straight away when the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> job) {
+        long enqueued = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanos, maxQueueWaitNanos, started - enqueued);
+                T value = null;
+                RuntimeException failure = null;
+                try {
+                    value = job.get();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                record(serviceNanos, maxServiceNanos, System.nanoTime() - started);
+                completed.increment();
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return result;
+    }
+
+    /**
+     * Runs a continuation of an earlier job on the pool. Like {@link #submit}, a full queue throws
+     * {@link RejectedExecutionException}; running it on the caller would put hashing back on whatever
+     * thread completed the earlier job.
+     */
+    public void execute(Runnable continuation) {
+        try {
+            executor.execute(continuation);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Stats getStats() {
+        long done = Math.max(1, completed.sum());
+        return new Stats(submitted.sum(), rejected.sum(), completed.sum(), executor.getQueue().size(),
+                TimeUnit.NANOSECONDS.toMicros(queueWaitNanos.sum() / done),
+                TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMicros(serviceNanos.sum() / done),
+                TimeUnit.NANOSECONDS.toMicros(maxServiceNanos.get()));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
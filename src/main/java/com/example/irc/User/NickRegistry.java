@@ -0,0 +1,66 @@
+package com.example.irc.User;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent index of connected nicknames, keyed by their RFC 1459 case-folded form.
+ * Callers fold a nick once with {@link #fold} and keep the key for later release.
+ */
+public class NickRegistry<T> {
+    private final Map<String, T> owners = new ConcurrentHashMap<>();
+
+    /**
+     * RFC 1459 case mapping: {@code A-Z [ ] \ ^} fold to {@code a-z { } | ~}.
+     * Returns {@code nick} itself when it is already folded.
+     */
+    public static String fold(String nick) {
+        int i = 0;
+        while (i < nick.length() && !isUpper(nick.charAt(i))) {
+            i++;
+        }
+        if (i == nick.length()) {
+            return nick;
+        }
+        char[] folded = nick.toCharArray();
+        for (; i < folded.length; i++) {
+            if (isUpper(folded[i])) {
+                folded[i] += 'a' - 'A';
+            }
+        }
+        return new String(folded);
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= '^';
+    }
+
+    /**
+     * Claims {@code key} for {@code owner}. Succeeds when the nick is free or already held by the same owner.
+     */
+    public boolean claim(String key, T owner) {
+        T current = owners.putIfAbsent(key, owner);
+        return current == null || current == owner;
+    }
+
+    public void release(String key, T owner) {
+        owners.remove(key, owner);
+    }
+
+    public T get(String key) {
+        return owners.get(key);
+    }
+
+    public T find(String nick) {
+        return owners.get(fold(nick));
+    }
+
+    public boolean isAvailable(String key, T owner) {
+        T current = owners.get(key);
+        return current == null || current == owner;
+    }
+
+    public int size() {
+        return owners.size();
+    }
+}
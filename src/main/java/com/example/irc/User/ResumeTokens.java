@@ -0,0 +1,121 @@
+package com.example.irc.User;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Short-lived, single-use tokens that let a reconnecting client skip BCrypt. A token carries the
+ * username, expiry and a nonce, signed with HMAC-SHA256 under a key generated at startup. Outstanding
+ * nonces are kept in a bounded store, so a token is accepted once and only while it is still held.
+ */
+public class ResumeTokens {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int NONCE_BYTES = 16;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Long> outstanding = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ResumeTokens(long ttlMillis, int maxEntries) {
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public String issue(String username) {
+        byte[] nonceBytes = new byte[NONCE_BYTES];
+        random.nextBytes(nonceBytes);
+        String nonce = encode(nonceBytes);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String payload = encode(username.getBytes(StandardCharsets.UTF_8)) + "." + expiresAt + "." + nonce;
+
+        lock.lock();
+        try {
+            evict(System.currentTimeMillis());
+            outstanding.put(nonce, expiresAt);
+        } finally {
+            lock.unlock();
+        }
+        return payload + "." + encode(sign(payload));
+    }
+
+    /**
+     * Returns the username the token was issued to and consumes it, or null when the token is forged,
+     * expired, already used or evicted.
+     */
+    public String redeem(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) return null;
+        String payload = token.substring(0, signatureStart);
+        String[] parts = payload.split("\\.");
+        if (parts.length != 3) return null;
+
+        byte[] signature;
+        byte[] username;
+        long expiresAt;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(signatureStart + 1));
+            username = Base64.getUrlDecoder().decode(parts[0]);
+            expiresAt = Long.parseLong(parts[1]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) return null;
+        if (expiresAt <= System.currentTimeMillis()) return null;
+
+        lock.lock();
+        try {
+            if (outstanding.remove(parts[2]) == null) return null;
+        } finally {
+            lock.unlock();
+        }
+        return new String(username, StandardCharsets.UTF_8);
+    }
+
+    int getOutstandingCount() {
+        lock.lock();
+        try {
+            return outstanding.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Entries are in issue order and share one TTL, so expired ones are always at the head.
+    private void evict(long now) {
+        Iterator<Long> expiries = outstanding.values().iterator();
+        while (expiries.hasNext()) {
+            long expiresAt = expiries.next();
+            if (expiresAt > now && outstanding.size() < maxEntries) break;
+            expiries.remove();
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
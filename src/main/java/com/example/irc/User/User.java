@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users")
@@ -28,6 +29,8 @@ public class User implements Serializable {
     @Column(nullable = false)
     private String email;
 
-    @Transient
+    @Column(nullable = false, columnDefinition = "boolean default false")
     private boolean isOnline;
+
+    private LocalDateTime lastSeen;
 }
@@ -0,0 +1,125 @@
+package com.example.irc.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of user records in front of {@link UserRepository}, keyed by the RFC 1459 folded
+ * username. Unknown names are cached too, for a shorter time, so repeated failed logins do not reach
+ * the database. Entries remember the exact username they were loaded for, because the repository
+ * itself is case-sensitive.
+ */
+public class UserCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Map<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Entry(String username, User user, long expiresAt) {
+    }
+
+    public record Stats(long hits, long negativeHits, long misses, int size) {
+    }
+
+    public UserCache(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached record for {@code username}, loading it on a miss. The loader runs outside
+     * the lock, so two threads missing on the same name may both load it.
+     */
+    public Optional<User> get(String username, Function<String, Optional<User>> loader) {
+        String key = NickRegistry.fold(username);
+        long now = System.currentTimeMillis();
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (entry != null && entry.expiresAt > now && entry.username.equals(username)) {
+            if (entry.user != null) {
+                hits.increment();
+            } else {
+                negativeHits.increment();
+            }
+            return Optional.ofNullable(entry.user);
+        }
+
+        misses.increment();
+        Optional<User> loaded = loader.apply(username);
+        store(username, loaded.orElse(null));
+        return loaded;
+    }
+
+    /**
+     * True when a live positive entry exists for exactly {@code username}; never loads.
+     */
+    public boolean isKnown(String username) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(NickRegistry.fold(username));
+            return entry != null && entry.user != null && entry.username.equals(username)
+                    && entry.expiresAt > System.currentTimeMillis();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(User user) {
+        store(user.getUsername(), user);
+    }
+
+    public void invalidate(String username) {
+        lock.lock();
+        try {
+            entries.remove(NickRegistry.fold(username));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(String username, User user) {
+        long ttl = user != null ? ttlMillis : negativeTtlMillis;
+        Entry entry = new Entry(username, user, System.currentTimeMillis() + ttl);
+        lock.lock();
+        try {
+            String key = NickRegistry.fold(username);
+            Entry current = entries.get(key);
+            // A miss that raced with registration must not hide the user it just missed.
+            if (user == null && current != null && current.user != null && current.username.equals(username)) {
+                return;
+            }
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -4,10 +4,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class UserDatabaseSingleton {
     private static volatile UserDatabaseSingleton instance;
+    private static final ReentrantLock instanceLock = new ReentrantLock();
     private final UserService userService;
 
     @Autowired
@@ -18,29 +21,44 @@ public class UserDatabaseSingleton {
     public static UserDatabaseSingleton getInstance(UserService userService) {
         UserDatabaseSingleton result = instance;
         if (result == null) {
-            synchronized (UserDatabaseSingleton.class) {
+            instanceLock.lock();
+            try {
                 result = instance;
                 if (result == null) {
                     instance = result = new UserDatabaseSingleton(userService);
                 }
+            } finally {
+                instanceLock.unlock();
             }
         }
         return result;
     }
 
     public Optional<User> registerUser(String username, String password, String email) {
+        return registerUserAsync(username, password, email).join();
+    }
+
+    public CompletableFuture<Optional<User>> registerUserAsync(String username, String password, String email) {
         User newUser = User.builder()
                 .username(username)
                 .password(password)
                 .email(email)
                 .build();
-        return userService.registerUser(newUser);
+        return userService.registerUserAsync(newUser);
+    }
+
+    public void updatePresence(User user, boolean online) {
+        userService.updatePresence(user, online);
     }
 
     public Optional<User> authenticateUser(String username, String password) {
         return userService.authenticateUser(username, password);
     }
 
+    public Optional<User> findUser(String username) {
+        return userService.findUser(username);
+    }
+
     public Optional<User> updateUser(String oldUsername, String newUsername) {
         return userService.updateUser(oldUsername, newUsername);
     }
@@ -2,42 +2,113 @@ package com.example.irc.User;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 public class UserService {
+    private static final int CACHE_MAX_ENTRIES = 10000;
+    private static final long CACHE_TTL_MILLIS = 10 * 60 * 1000;
+    private static final long CACHE_NEGATIVE_TTL_MILLIS = 30 * 1000;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
+    private final UserWriteBehind writeBehind;
 
-    @Autowired
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+        this(userRepository, passwordEncoder, newCache(), null);
+    }
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserCache userCache) {
+        this(userRepository, passwordEncoder, userCache, null);
+    }
+
+    @Autowired
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserWriteBehind writeBehind) {
+        this(userRepository, passwordEncoder, newCache(), writeBehind);
+    }
+
+    /**
+     * Without a {@link UserWriteBehind}, registrations are saved straight through the repository and presence is not stored.
+     */
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       UserCache userCache, UserWriteBehind writeBehind) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
+        this.writeBehind = writeBehind;
+    }
+
+    private static UserCache newCache() {
+        return new UserCache(CACHE_MAX_ENTRIES, CACHE_TTL_MILLIS, CACHE_NEGATIVE_TTL_MILLIS);
     }
 
     public Optional<User> registerUser(User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
-            return Optional.empty();
+        return registerUserAsync(user).join();
+    }
+
+    /**
+     * Hashes the password on the calling thread and completes once the row is written. A taken username
+     * is detected by the unique constraint; only a name the cache already knows is rejected up front.
+     */
+    public CompletableFuture<Optional<User>> registerUserAsync(User user) {
+        if (userCache.isKnown(user.getUsername())) {
+            return CompletableFuture.completedFuture(Optional.empty());
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return Optional.of(userRepository.save(user));
+        if (writeBehind == null) {
+            try {
+                return CompletableFuture.completedFuture(Optional.of(cacheRegistered(userRepository.save(user))));
+            } catch (DataIntegrityViolationException e) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+        }
+        return writeBehind.register(user)
+                .thenApply(saved -> Optional.ofNullable(saved).map(this::cacheRegistered));
+    }
+
+    private User cacheRegistered(User user) {
+        userCache.put(user);
+        return user;
+    }
+
+    public void updatePresence(User user, boolean online) {
+        LocalDateTime now = LocalDateTime.now();
+        user.setOnline(online);
+        user.setLastSeen(now);
+        if (writeBehind != null) {
+            writeBehind.updatePresence(user.getUsername(), online, now);
+        }
     }
 
     public Optional<User> authenticateUser(String username, String password) {
-        return userRepository.findByUsername(username)
+        return findUser(username)
                 .filter(user -> passwordEncoder.matches(password, user.getPassword()));
     }
 
+    public Optional<User> findUser(String username) {
+        return userCache.get(username, userRepository::findByUsername);
+    }
+
     public Optional<User> updateUser(String oldUsername, String newUsername) {
+        userCache.invalidate(oldUsername);
+        userCache.invalidate(newUsername);
         userRepository.findByUsername(oldUsername)
                 .map(u -> {
                     u.setUsername(newUsername);
                     return userRepository.save(u);
                 });
-        return userRepository.findByUsername(newUsername);
+        return findUser(newUsername);
+    }
+
+    public UserCache.Stats getCacheStats() {
+        return userCache.getStats();
     }
 }
@@ -0,0 +1,226 @@
+package com.example.irc.User;
+
+import com.example.irc.ServerConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues new registrations and presence changes and writes them as JDBC batches, either every flush
+ * interval or as soon as a batch fills up. Presence updates for the same user coalesce, so a crash loses
+ * at most one interval of presence data. Duplicate usernames are caught by the unique constraint: a batch
+ * that fails is retried row by row and only the offending registrations complete empty.
+ */
+@Component
+public class UserWriteBehind {
+    private static final String INSERT_USER =
+            "INSERT INTO users (username, password, email, is_online, last_seen) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_PRESENCE =
+            "UPDATE users SET is_online = ?, last_seen = ? WHERE username = ?";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final JdbcTemplate jdbc;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private List<PendingRegistration> registrations = new ArrayList<>();
+    private Map<String, Presence> presence = new LinkedHashMap<>();
+
+    private record PendingRegistration(User user, CompletableFuture<User> result) {
+    }
+
+    private record Presence(boolean online, LocalDateTime lastSeen) {
+    }
+
+    @Autowired
+    public UserWriteBehind(JdbcTemplate jdbc, ServerConfig serverConfig) {
+        this(jdbc, serverConfig.getUserFlushIntervalMillis(), serverConfig.getUserFlushBatchSize());
+    }
+
+    public UserWriteBehind(JdbcTemplate jdbc, long flushIntervalMillis, int batchSize) {
+        this.jdbc = jdbc;
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("irc-user-writer").daemon().factory());
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Completes with the saved user, or with null when the username is already taken.
+     */
+    public CompletableFuture<User> register(User user) {
+        CompletableFuture<User> result = new CompletableFuture<>();
+        int pending;
+        lock.lock();
+        try {
+            registrations.add(new PendingRegistration(user, result));
+            pending = registrations.size();
+        } finally {
+            lock.unlock();
+        }
+        requestFlushIfFull(pending);
+        return result;
+    }
+
+    public void updatePresence(String username, boolean online, LocalDateTime lastSeen) {
+        int pending;
+        lock.lock();
+        try {
+            presence.put(username, new Presence(online, lastSeen));
+            pending = presence.size();
+        } finally {
+            lock.unlock();
+        }
+        requestFlushIfFull(pending);
+    }
+
+    private void requestFlushIfFull(int pending) {
+        if (pending >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    void flush() {
+        flushRequested.set(false);
+        List<PendingRegistration> newUsers;
+        Map<String, Presence> updates;
+        lock.lock();
+        try {
+            if (registrations.isEmpty() && presence.isEmpty()) return;
+            newUsers = registrations;
+            updates = presence;
+            registrations = new ArrayList<>();
+            presence = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+
+        // Registrations go first so presence for a user registered in the same interval finds its row.
+        for (int from = 0; from < newUsers.size(); from += batchSize) {
+            insertUsers(newUsers.subList(from, Math.min(newUsers.size(), from + batchSize)));
+        }
+        try {
+            updatePresence(updates);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void insertUsers(List<PendingRegistration> batch) {
+        try {
+            jdbc.execute((ConnectionCallback<Void>) connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    insertBatch(connection, batch);
+                } catch (BatchUpdateException e) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                    batch.forEach(registration -> insertOne(connection, registration));
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            batch.forEach(registration -> registration.result.completeExceptionally(e));
+        }
+    }
+
+    private void insertBatch(Connection connection, List<PendingRegistration> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
+            for (PendingRegistration registration : batch) {
+                bind(statement, registration.user);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            List<Long> ids = new ArrayList<>(batch.size());
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getLong(1));
+                }
+            }
+            // Completing before commit would let a caller see a user that a failed commit then drops.
+            connection.commit();
+            for (int i = 0; i < batch.size(); i++) {
+                User user = batch.get(i).user;
+                if (i < ids.size()) {
+                    user.setId(ids.get(i));
+                }
+                batch.get(i).result.complete(user);
+            }
+        }
+    }
+
+    private void insertOne(Connection connection, PendingRegistration registration) {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
+            bind(statement, registration.user);
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                if (keys.next()) {
+                    registration.user.setId(keys.getLong(1));
+                }
+            }
+            registration.result.complete(registration.user);
+        } catch (SQLException e) {
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                registration.result.complete(null);
+            } else {
+                registration.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getUsername());
+        statement.setString(2, user.getPassword());
+        statement.setString(3, user.getEmail());
+        statement.setBoolean(4, user.isOnline());
+        statement.setTimestamp(5, user.getLastSeen() == null ? null : Timestamp.valueOf(user.getLastSeen()));
+    }
+
+    private void updatePresence(Map<String, Presence> updates) {
+        if (updates.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(updates.size());
+        updates.forEach((username, state) -> rows.add(new Object[]{
+                state.online, state.lastSeen == null ? null : Timestamp.valueOf(state.lastSeen), username}));
+        jdbc.batchUpdate(UPDATE_PRESENCE, rows, batchSize, (statement, row) -> {
+            statement.setBoolean(1, (Boolean) row[0]);
+            statement.setTimestamp(2, (Timestamp) row[1]);
+            statement.setString(3, (String) row[2]);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,3 @@
+-- users.is_online became a real column; older databases get it with a default so existing rows stay valid.
+-- Runs before Hibernate's ddl-auto=update on every start, so it must stay idempotent.
+ALTER TABLE IF EXISTS users ADD COLUMN IF NOT EXISTS is_online boolean NOT NULL DEFAULT false;
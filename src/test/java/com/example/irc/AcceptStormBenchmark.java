@@ -0,0 +1,176 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens a burst of connections against a server capped below the burst size and reports how fast they are
+ * accepted and how quickly the surplus hears RPL_TRYAGAIN.
+ * Run with {@code mvn test -Pbenchmark -Dtest=AcceptStormBenchmark}.
+ */
+@Tag("benchmark")
+class AcceptStormBenchmark {
+    private static final int BURST = Integer.getInteger("irc.bench.burst", 10_000);
+    private static final int MAX_CONNECTIONS = Integer.getInteger("irc.bench.maxConnections", 2_000);
+    private static final int CONNECTORS = Integer.getInteger("irc.bench.connectors", 16);
+
+    @Test
+    void acceptStorm() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-18s %8s %10s %10s %10s %10s %12s %12s %12s",
+                "mode", "burst", "accepts/s", "admitted", "rejected", "failed", "reject p50", "reject p99", "reject max"));
+        report.add(run("blocking", ServerConfig.Transport.BLOCKING, 1));
+        report.add(run("nio-1-acceptor", ServerConfig.Transport.NIO, 1));
+        report.add(run("nio-2-acceptors", ServerConfig.Transport.NIO, 2));
+        report.forEach(System.out::println);
+    }
+
+    private String run(String mode, ServerConfig.Transport transport, int acceptors) throws Exception {
+        ServerConfig config = IrcTestSupport.config(transport);
+        config.setAcceptorThreads(acceptors);
+        config.setMaxConnections(MAX_CONNECTIONS);
+        config.setAcceptBacklog(4096);
+        IRCServer server = IrcTestSupport.startServer(config);
+        InetSocketAddress address = new InetSocketAddress("localhost", server.getLocalPort());
+
+        List<SocketChannel> open = new ArrayList<>(BURST);
+        RejectionReader reader = new RejectionReader();
+        Thread readerThread = new Thread(reader, "bench-rejection-reader");
+        readerThread.start();
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            CountDownLatch done = new CountDownLatch(CONNECTORS);
+            long start = System.nanoTime();
+            for (int t = 0; t < CONNECTORS; t++) {
+                int first = t;
+                new Thread(() -> {
+                    for (int i = first; i < BURST; i += CONNECTORS) {
+                        long connectStart = System.nanoTime();
+                        try {
+                            SocketChannel channel = SocketChannel.open(address);
+                            synchronized (open) {
+                                open.add(channel);
+                            }
+                            reader.watch(channel, connectStart);
+                        } catch (IOException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }).start();
+            }
+            done.await();
+            long burstNanos = System.nanoTime() - start;
+
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (server.getAdmissionStats().admitted() + server.getAdmissionStats().rejectedServerFull()
+                    < BURST - failed.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(200);
+            long[] latencies = reader.latencies();
+            Arrays.sort(latencies);
+
+            return String.format("%-18s %8d %10d %10d %10d %10d %12s %12s %12s",
+                    mode, BURST, (long) ((BURST - failed.get()) / (burstNanos / 1e9)),
+                    server.getAdmissionStats().admitted(), server.getAdmissionStats().rejectedServerFull(), failed.get(),
+                    micros(latencies, 0.50), micros(latencies, 0.99), micros(latencies, 1.0));
+        } finally {
+            reader.stop();
+            readerThread.join();
+            for (SocketChannel channel : open) {
+                channel.close();
+            }
+            server.stopServer();
+        }
+    }
+
+    private static String micros(long[] sorted, double percentile) {
+        if (sorted.length == 0) return "-";
+        int index = (int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)));
+        return sorted[index] / 1_000 + " us";
+    }
+
+    // Watches every connection and timestamps the moment a rejection reply arrives.
+    private static class RejectionReader implements Runnable {
+        private final Selector selector;
+        private final Queue<Object[]> pending = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer buffer = ByteBuffer.allocate(512);
+        private final List<Long> latencies = new ArrayList<>();
+        private volatile boolean running = true;
+
+        RejectionReader() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void watch(SocketChannel channel, long connectStart) {
+            pending.add(new Object[]{channel, connectStart});
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(50);
+                    Object[] next;
+                    while ((next = pending.poll()) != null) {
+                        SocketChannel channel = (SocketChannel) next[0];
+                        channel.configureBlocking(false);
+                        channel.register(selector, SelectionKey.OP_READ, next[1]);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        read(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            long now = System.nanoTime();
+            buffer.clear();
+            int read;
+            try {
+                read = ((SocketChannel) key.channel()).read(buffer);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read > 0 && StandardCharsets.UTF_8.decode(buffer.flip()).toString().contains(" 263 ")) {
+                synchronized (latencies) {
+                    latencies.add(now - (Long) key.attachment());
+                }
+            }
+            key.cancel();
+        }
+
+        long[] latencies() {
+            synchronized (latencies) {
+                return latencies.stream().mapToLong(Long::longValue).toArray();
+            }
+        }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+        }
+    }
+}
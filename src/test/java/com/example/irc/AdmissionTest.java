@@ -0,0 +1,62 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionTest {
+    private IRCServer server;
+
+    @AfterEach
+    void tearDown() {
+        server.stopServer();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerConfig.Transport.class)
+    void rejectsConnectionsOverThePerAddressLimit(ServerConfig.Transport transport) throws Exception {
+        ServerConfig config = IrcTestSupport.config(transport);
+        config.setMaxConnectionsPerIp(2);
+        config.setAcceptorThreads(2);
+        server = IrcTestSupport.startServer(config);
+
+        try (IrcTestSupport.TestClient first = connect();
+             IrcTestSupport.TestClient second = connect()) {
+            try (IrcTestSupport.TestClient rejected = new IrcTestSupport.TestClient(server.getLocalPort())) {
+                String reply = rejected.readLine();
+                assertTrue(reply.contains(" 263 * CONNECT :Too many connections"), reply);
+                assertTrue(rejected.readLine().startsWith("ERROR :Closing Link"));
+                assertNull(rejected.readLine());
+            }
+            assertEquals(1, server.getAdmissionStats().rejectedHostFull());
+
+            first.close();
+            awaitOpenConnections(1);
+            try (IrcTestSupport.TestClient third = connect()) {
+                assertEquals(2, server.getAdmissionStats().open());
+            }
+        }
+    }
+
+    private IrcTestSupport.TestClient connect() throws IOException, InterruptedException {
+        IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort());
+        // A LIST round trip shows the server has admitted the connection.
+        client.send("LIST");
+        client.readUntilContains(" 323 ");
+        return client;
+    }
+
+    private void awaitOpenConnections(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (server.getAdmissionStats().open() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, server.getAdmissionStats().open());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelHistoryTest {
+
+    @Test
+    void fetchesLatestBeforeAndAfterById() {
+        ChannelHistory history = new ChannelHistory(100, 64 * 1024, false, new HistoryBudget(1024 * 1024));
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, history.append(Frame.of("line " + i), i));
+        }
+
+        assertEquals(List.of("line 9", "line 10"), text(history.latest(2)));
+        assertEquals(List.of("line 3", "line 4"), text(history.before(5, 2)));
+        assertEquals(List.of("line 6", "line 7", "line 8"), text(history.after(5, 3)));
+        assertEquals(List.of("line 1"), text(history.before(2, 10)));
+        assertTrue(history.after(10, 5).isEmpty());
+        assertEquals("line 10\r\n".length(), history.latest(1).get(0).line().remaining());
+    }
+
+    @Test
+    void dropsOldestLinesWhenLineOrByteLimitIsReached() {
+        ChannelHistory byLines = new ChannelHistory(3, 64 * 1024, false, new HistoryBudget(1024 * 1024));
+        for (int i = 1; i <= 5; i++) {
+            byLines.append(Frame.of("line " + i), i);
+        }
+        assertEquals(List.of("line 3", "line 4", "line 5"), text(byLines.latest(10)));
+        assertEquals(List.of("line 4"), text(byLines.after(3, 1)));
+
+        // 4 KiB of 100-byte frames holds 40 lines; the ring wraps and keeps the newest.
+        ChannelHistory byBytes = new ChannelHistory(1000, 4 * 1024, true, new HistoryBudget(1024 * 1024));
+        for (int i = 0; i < 500; i++) {
+            byBytes.append(Frame.of(String.format("%098d", i)), i);
+        }
+        List<ChannelHistory.Entry> kept = byBytes.latest(1000);
+        assertEquals(40, kept.size());
+        assertEquals(500, kept.get(kept.size() - 1).id());
+        assertEquals(String.format("%098d", 460), text(kept).get(0));
+        assertEquals(4 * 1024, byBytes.capacityBytes());
+    }
+
+    @Test
+    void sharedBudgetStopsGrowthButKeepsExistingHistory() {
+        HistoryBudget budget = new HistoryBudget(20 * 1024);
+        ChannelHistory first = new ChannelHistory(10, 64 * 1024, false, budget);
+        ChannelHistory second = new ChannelHistory(10, 64 * 1024, false, budget);
+        for (int i = 0; i < 10; i++) {
+            first.append(Frame.of("x".repeat(1000)), i);
+        }
+        assertTrue(first.capacityBytes() > 4 * 1024);
+        assertTrue(budget.getReservedBytes() <= 20 * 1024);
+
+        long stored = second.append(Frame.of("x".repeat(6000)), 0);
+        assertEquals(0, stored);
+        assertEquals(0, second.size());
+        assertEquals(10, first.size());
+    }
+
+    @Test
+    void reservesTheIndexAsItGrowsAndReleasesEverythingWhenDropped() {
+        HistoryBudget budget = new HistoryBudget(1024 * 1024);
+        ChannelHistory history = new ChannelHistory(100_000, 64 * 1024, false, budget);
+        history.append(Frame.of("first"), 0);
+        assertTrue(budget.getReservedBytes() < 8 * 1024);
+        assertEquals(history.reservedBytes(), budget.getReservedBytes());
+
+        for (int i = 1; i <= 1000; i++) {
+            history.append(Frame.of("line " + i), i);
+        }
+        assertEquals(1001, history.size());
+        assertEquals("line 1000", text(history.latest(1)).get(0));
+        assertEquals(List.of("first", "line 1"), text(history.before(3, 10)));
+        assertEquals(history.reservedBytes(), budget.getReservedBytes());
+
+        history.release();
+        assertEquals(0, budget.getReservedBytes());
+        assertEquals(0, history.append(Frame.of("after release"), 2000));
+        assertTrue(history.latest(10).isEmpty());
+    }
+
+    private static List<String> text(List<ChannelHistory.Entry> entries) {
+        return entries.stream()
+                .map(entry -> StandardCharsets.UTF_8.decode(entry.line()).toString().stripTrailing())
+                .toList();
+    }
+}
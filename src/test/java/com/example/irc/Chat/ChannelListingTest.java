@@ -0,0 +1,131 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelListingTest {
+
+    @Test
+    void streamsLargeListingALineAFrameAndPausesUntilDrained() {
+        List<ChatRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            rooms.add(new ChatRoom("#channel-" + i, "topic " + i));
+        }
+        PausingConnection connection = new PausingConnection();
+
+        new ChannelListing(rooms.iterator(), ChannelFilter.ALL, connection, ":srv 322 me ", ":srv 323 me :End").run();
+
+        List<String> lines = new ArrayList<>();
+        int pauses = 0;
+        while (connection.pending != null) {
+            pauses++;
+            assertTrue(connection.queuedBytes >= ChannelListing.MAX_QUEUED_BYTES
+                    || connection.frames.size() >= ChannelListing.MAX_QUEUED_LINES);
+            assertTrue(connection.frames.size() <= ChannelListing.MAX_QUEUED_LINES);
+            lines.addAll(connection.drain());
+        }
+        lines.addAll(connection.drain());
+
+        assertTrue(pauses > 10);
+        assertEquals(100_001, lines.size());
+        assertEquals(":srv 322 me #channel-0 0 :topic 0", lines.get(0));
+        assertEquals(":srv 323 me :End", lines.get(lines.size() - 1));
+        assertFalse(lines.stream().anyMatch(line -> line.isEmpty() || line.contains("\r\n")));
+    }
+
+    @Test
+    void filtersByUserCountNameAndTopic() {
+        ChatRoom busy = new ChatRoom("#Java", "all about JVMs");
+        busy.addComponent(new ChatUser("a", new PausingConnection()));
+        busy.addComponent(new ChatUser("b", new PausingConnection()));
+        ChatRoom quiet = new ChatRoom("#javascript", "browsers");
+
+        assertTrue(ChannelFilter.parse(">1").matches(busy));
+        assertFalse(ChannelFilter.parse(">1").matches(quiet));
+        assertTrue(ChannelFilter.parse("<1").matches(quiet));
+        assertTrue(ChannelFilter.parse("#JAVA*").matches(quiet));
+        assertFalse(ChannelFilter.parse("#java*,!#javas*").matches(quiet));
+        assertTrue(ChannelFilter.parse("T:*jvm*").matches(busy));
+        assertFalse(ChannelFilter.parse("T:*jvm*").matches(quiet));
+        assertTrue(ChannelFilter.matchesMask("#a?c*", "#abcdef"));
+        assertFalse(ChannelFilter.matchesMask("#a?c", "#abcd"));
+    }
+
+    @Test
+    void listEntryIsRenderedAgainOnlyAfterChanges() {
+        ChatRoom room = new ChatRoom("#cache", "first");
+        String entry = room.getListEntry();
+        assertTrue(entry == room.getListEntry());
+
+        room.setTopic("second");
+        assertEquals("#cache 0 :second", room.getListEntry());
+        room.addComponent(new ChatUser("a", new PausingConnection()));
+        assertEquals("#cache 1 :second", room.getListEntry());
+    }
+
+    // Holds frames as if the socket were not writable until the test drains them.
+    private static final class PausingConnection implements Connection {
+        private final List<String> frames = new ArrayList<>();
+        private long queuedBytes;
+        private Runnable pending;
+
+        @Override
+        public void send(String message) {
+            send(Frame.of(message));
+        }
+
+        @Override
+        public void send(Frame frame) {
+            frames.add(frame.toString());
+            queuedBytes += frame.length();
+        }
+
+        @Override
+        public long getQueuedBytes() {
+            return queuedBytes;
+        }
+
+        @Override
+        public int getQueuedMessages() {
+            return frames.size();
+        }
+
+        @Override
+        public boolean onDrained(Runnable task) {
+            assertNull(pending);
+            pending = task;
+            return true;
+        }
+
+        List<String> drain() {
+            List<String> lines = new ArrayList<>();
+            lines.addAll(frames);
+            frames.clear();
+            queuedBytes = 0;
+            Runnable task = pending;
+            pending = null;
+            if (task != null) {
+                task.run();
+            }
+            return lines;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+}
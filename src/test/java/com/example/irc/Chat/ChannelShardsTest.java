@@ -0,0 +1,139 @@
+package com.example.irc.Chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelShardsTest {
+
+    @Test
+    void runsOneChannelsTasksInSubmissionOrderOnOneThread() throws Exception {
+        ChannelShards shards = new ChannelShards(4, 1024);
+        // Only the shard touches these, so plain collections are enough.
+        List<int[]> seen = new ArrayList<>();
+        Set<Thread> threads = new HashSet<>();
+        List<Thread> submitters = new ArrayList<>();
+        for (int submitter = 0; submitter < 4; submitter++) {
+            int id = submitter;
+            submitters.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    int sequence = i;
+                    shards.execute("#ordered", () -> {
+                        seen.add(new int[]{id, sequence});
+                        threads.add(Thread.currentThread());
+                    });
+                }
+            }));
+        }
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        await(shards, "#ordered");
+
+        assertEquals(4000, seen.size());
+        assertEquals(1, threads.size());
+        int[] next = new int[4];
+        for (int[] entry : seen) {
+            assertEquals(next[entry[0]]++, entry[1]);
+        }
+        shards.shutdown();
+    }
+
+    @Test
+    void spreadsChannelsOverShards() throws Exception {
+        ChannelShards shards = new ChannelShards(4, 1024);
+        Map<String, Thread> owners = new ConcurrentHashMap<>();
+        for (int i = 0; i < 64; i++) {
+            String channel = "#channel" + i;
+            shards.execute(channel, () -> owners.put(channel, Thread.currentThread()));
+            await(shards, channel);
+        }
+        assertEquals(4, new HashSet<>(owners.values()).size());
+        assertTrue(owners.values().stream().allMatch(thread -> thread.getName().startsWith("irc-channel-")));
+        shards.shutdown();
+    }
+
+    @Test
+    void fullShardRefusesTryExecuteButStillTakesBookkeeping() throws Exception {
+        ChannelShards shards = new ChannelShards(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(shards.tryExecute("#busy", () -> awaitQuietly(release)));
+        assertTrue(shards.tryExecute("#busy", () -> { }));
+        AtomicInteger ran = new AtomicInteger();
+        assertFalse(shards.tryExecute("#busy", ran::incrementAndGet));
+        assertEquals(1, shards.getThrottled());
+        shards.execute("#busy", ran::incrementAndGet);
+
+        release.countDown();
+        await(shards, "#busy");
+        assertEquals(1, ran.get());
+        assertTrue(shards.tryExecute("#busy", ran::incrementAndGet));
+        await(shards, "#busy");
+        assertEquals(2, ran.get());
+        shards.shutdown();
+    }
+
+    @Test
+    void waitingSubmittersWaitWhileTheShardQueueIsFull() throws Exception {
+        ChannelShards shards = new ChannelShards(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        shards.executeWaiting("#busy", () -> awaitQuietly(release));
+        shards.executeWaiting("#busy", () -> { });
+        AtomicInteger ran = new AtomicInteger();
+        Thread submitter = Thread.ofPlatform().start(() -> shards.executeWaiting("#busy", ran::incrementAndGet));
+        submitter.join(200);
+        assertTrue(submitter.isAlive());
+        assertEquals(1, shards.getThrottled());
+
+        release.countDown();
+        submitter.join(10_000);
+        assertFalse(submitter.isAlive());
+        await(shards, "#busy");
+        assertEquals(1, ran.get());
+        shards.shutdown();
+    }
+
+    @Test
+    void shardThreadsQueuePastTheLimitRatherThanWaitOnThemselves() throws Exception {
+        ChannelShards shards = new ChannelShards(1, 1);
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        shards.execute("#self", () -> {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(shards.tryExecute("#self", ran::incrementAndGet));
+                shards.executeWaiting("#self", ran::incrementAndGet);
+            }
+            shards.execute("#self", done::countDown);
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(20, ran.get());
+        assertEquals(0, shards.getThrottled());
+        shards.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(ChannelShards shards, String channel) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        shards.execute(channel, done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+}
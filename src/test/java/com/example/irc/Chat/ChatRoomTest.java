@@ -0,0 +1,91 @@
+package com.example.irc.Chat;
+
+import com.example.irc.Connection.Connection;
+import com.example.irc.Connection.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatRoomTest {
+
+    @Test
+    void removesMemberByConnectionEvenWithNewInstance() {
+        ChatRoom room = new ChatRoom("#test", "topic");
+        RecordingConnection connection = new RecordingConnection();
+        room.addComponent(new ChatUser("alice", connection));
+
+        assertFalse(room.addComponent(new ChatUser("alice", connection)));
+        assertTrue(room.removeComponent(new ChatUser("renamed", connection)));
+        assertEquals(0, room.getUserCount());
+
+        room.sendMessage("hello");
+        assertTrue(connection.lines.isEmpty());
+    }
+
+    @Test
+    void broadcastsSeeMembershipChangesAfterSnapshot() {
+        ChatRoom room = new ChatRoom("#test");
+        RecordingConnection first = new RecordingConnection();
+        RecordingConnection second = new RecordingConnection();
+        room.addComponent(new ChatUser("first", first));
+        room.sendMessage("one");
+
+        room.addComponent(new ChatUser("second", second));
+        room.sendMessage("two");
+        room.removeComponent(new ChatUser("first", first));
+        room.sendMessage("three");
+
+        assertEquals(List.of("one", "two"), first.lines);
+        assertEquals(List.of("two", "three"), second.lines);
+    }
+
+    @Test
+    void parallelFanOutReachesEveryMemberInOrder() {
+        ParallelFanOut fanOut = new ParallelFanOut(4, 10, 3);
+        ChatRoom room = new ChatRoom("#large", null, null, fanOut);
+        List<RecordingConnection> connections = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            RecordingConnection connection = new RecordingConnection();
+            room.addComponent(new ChatUser("user" + i, connection));
+            connections.add(connection);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("line " + i);
+            assertEquals(50, room.deliver(Frame.of("line " + i)));
+        }
+        fanOut.shutdown();
+
+        for (RecordingConnection connection : connections) {
+            assertEquals(expected, connection.lines);
+        }
+    }
+
+    private static final class RecordingConnection implements Connection {
+        private final List<String> lines = new ArrayList<>();
+
+        @Override
+        public void send(String message) {
+            lines.add(message);
+        }
+
+        @Override
+        public void send(Frame frame) {
+            lines.add(frame.toString());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandHandlingTest {
+    private IRCServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = IrcTestSupport.startServer(IrcTestSupport.config(ServerConfig.Transport.NIO));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stopServer();
+    }
+
+    @Test
+    void rejectsBarePrivmsgBeforeAuthenticationWithoutDroppingClient() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            client.send("PRIVMSG");
+            assertTrue(client.readLine().contains(" 461 "));
+
+            client.send("JOIN #main");
+            assertTrue(client.readLine().contains(" 484 "));
+        }
+    }
+
+    @Test
+    void rejectsLinesOverTheProtocolLimit() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-long")) {
+            client.send("PRIVMSG #main :" + "x".repeat(600));
+            assertTrue(client.readUntilContains(" 417 ").contains("too long"));
+        }
+    }
+
+    @Test
+    void acceptsLowercaseCommandsAndExtraSpaces() throws IOException {
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-alice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-bob")) {
+            alice.send("privmsg   cmd-bob   :hi  there");
+            assertEquals(":cmd-alice PRIVMSG cmd-bob :hi  there", bob.readUntilContains("PRIVMSG"));
+        }
+    }
+
+    @Test
+    void passwordsMayContainSpaces() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            client.send("REGISTER cmd-spaced correct horse battery");
+            client.readUntilContains("successfully registered");
+            // QUIT frees the nick before the socket closes, so the logins below are not refused with 433.
+            client.send("QUIT");
+            assertThrows(IOException.class, () -> client.readUntil(line -> false));
+        }
+        try (IrcTestSupport.TestClient wrong = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            wrong.send("AUTH cmd-spaced correct");
+            wrong.readUntilContains("Authentication failed.");
+        }
+        try (IrcTestSupport.TestClient right = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            right.send("AUTH cmd-spaced correct horse battery");
+            right.readUntilContains("Authentication successful.");
+        }
+    }
+
+    @Test
+    void routesDirectMessagesByCaseFoldedNickAndFreesNickOnDisconnect() throws IOException {
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(server.getLocalPort()).register("Nick[Alice]")) {
+            try (IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(server.getLocalPort()).register("nick-bob")) {
+                bob.send("PRIVMSG NICK{alice} :hello");
+                assertEquals(":nick-bob PRIVMSG NICK{alice} :hello", alice.readUntilContains("PRIVMSG"));
+
+                alice.send("NICK NICK-BOB");
+                assertTrue(alice.readUntilContains(" 433 ").contains("already in use"));
+                alice.send("WHOIS nick-BOB");
+                assertTrue(alice.readUntilContains(" 311 ").contains(" nick-bob nick-bob "));
+            }
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            String reply;
+            do {
+                alice.send("NICK nick-bob");
+                reply = alice.readUntil(line -> line.contains(" NICK ") || line.contains(" 433 "));
+            } while (reply.contains(" 433 ") && System.currentTimeMillis() < deadline);
+            assertEquals(":Nick[Alice] NICK nick-bob", reply);
+
+            alice.send("PRIVMSG nobody-here :hi");
+            assertTrue(alice.readUntilContains(" 401 ").contains("nobody-here"));
+        }
+    }
+
+    @Test
+    void accountOwnerLogsInWhileSomeoneElseHoldsTheNick() throws IOException {
+        new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-owner").close();
+        try (IrcTestSupport.TestClient squatter = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-squatter")) {
+            long deadline = System.currentTimeMillis() + 5_000;
+            String reply;
+            do {
+                squatter.send("NICK cmd-owner");
+                reply = squatter.readUntil(line -> line.contains(" NICK ") || line.contains(" 433 "));
+            } while (reply.contains(" 433 ") && System.currentTimeMillis() < deadline);
+            assertEquals(":cmd-squatter NICK cmd-owner", reply);
+
+            // The first Guest nick is taken, so the squatter is moved to the next one without hearing a 433.
+            try (IrcTestSupport.TestClient guest = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-guest-holder");
+                 IrcTestSupport.TestClient owner = new IrcTestSupport.TestClient(server.getLocalPort())) {
+                guest.send("NICK Guest1");
+                guest.readUntilContains(" NICK Guest1");
+                owner.send("AUTH cmd-owner secret");
+                owner.readUntilContains("Authentication successful");
+                assertEquals(":cmd-owner NICK Guest2", squatter.readUntil(line -> line.contains(" NICK ") || line.contains(" 433 ")));
+
+                // A second login while the owner is on is still refused.
+                try (IrcTestSupport.TestClient again = new IrcTestSupport.TestClient(server.getLocalPort())) {
+                    again.send("AUTH cmd-owner secret");
+                    assertTrue(again.readUntilContains(" 433 ").contains("already in use"));
+                }
+            }
+        }
+    }
+
+    @Test
+    void listAppliesElistFilters() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-lister")) {
+            client.send("JOIN #listed");
+            client.readUntilContains(" 366 ");
+
+            client.send("LIST #list*,>0");
+            assertEquals(":MyIRCServer 322 cmd-lister #listed 1 :Welcome to #listed", client.readUntilContains(" 322 "));
+            assertTrue(client.readLine().contains(" 323 "));
+
+            client.send("LIST !#listed,T:*help*");
+            assertTrue(client.readUntilContains(" 322 ").contains(" #help 0 "));
+            assertTrue(client.readLine().contains(" 323 "));
+        }
+    }
+
+    @Test
+    void everyMemberSeesConcurrentSendersInTheSameOrder() throws Exception {
+        List<IrcTestSupport.TestClient> members = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                IrcTestSupport.TestClient member = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-order" + i);
+                member.send("JOIN #ordered");
+                member.readUntilContains(" 366 ");
+                members.add(member);
+            }
+            members.get(0).readUntilContains("cmd-order2!");
+            members.get(1).readUntilContains("cmd-order2!");
+            List<Thread> senders = new ArrayList<>();
+            for (IrcTestSupport.TestClient member : members) {
+                senders.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        // Within the flood burst, so nothing is held back by fakelag.
+                        for (int i = 0; i < 20; i++) {
+                            member.send("PRIVMSG #ordered :" + i);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            List<List<String>> received = new ArrayList<>();
+            for (IrcTestSupport.TestClient member : members) {
+                List<String> lines = new ArrayList<>();
+                while (lines.size() < 60) {
+                    lines.add(member.readUntilContains(" PRIVMSG #ordered "));
+                }
+                received.add(lines);
+            }
+            assertEquals(received.get(0), received.get(1));
+            assertEquals(received.get(0), received.get(2));
+        } finally {
+            for (IrcTestSupport.TestClient member : members) {
+                member.close();
+            }
+        }
+    }
+
+    @Test
+    void joinDoesNotWaitForSlowReverseDns() throws Exception {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.BLOCKING);
+        config.setDnsTimeoutMillis(200);
+        IRCServer slowDnsServer = IrcTestSupport.startServer(config, address -> {
+            Thread.sleep(5_000);
+            return "never.example";
+        });
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(slowDnsServer.getLocalPort()).register("cmd-dns")) {
+            long start = System.nanoTime();
+            client.send("JOIN #dns");
+            assertEquals(":cmd-dns!cmd-dns@127.0.0.1 JOIN #dns", client.readUntilContains(" JOIN "));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        } finally {
+            slowDnsServer.stopServer();
+        }
+    }
+
+    @Test
+    void commandsSentDuringAuthenticationWaitForItsResult() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            client.send("REGISTER cmd-eager secret");
+            client.send("JOIN #eager");
+            client.send("PRIVMSG #eager :first words");
+
+            client.readUntilContains("successfully registered");
+            assertTrue(client.readUntilContains(" JOIN ").endsWith("JOIN #eager"));
+            assertEquals(":cmd-eager PRIVMSG #eager :first words", client.readUntilContains(" PRIVMSG "));
+        }
+    }
+
+    @Test
+    void resumeTokenReplacesPasswordOnReconnect() throws IOException {
+        String token;
+        try (IrcTestSupport.TestClient first = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-resume")) {
+            first.send("AUTH cmd-resume secret");
+            token = first.readUntilContains(" RESUME TOKEN ").split(" ")[3];
+
+            // The first session is still open, so resuming takes it over.
+            try (IrcTestSupport.TestClient second = new IrcTestSupport.TestClient(server.getLocalPort())) {
+                second.send("RESUME " + token);
+                assertTrue(second.readUntilContains(" 001 ").contains("cmd-resume"));
+                assertTrue(second.readUntilContains(" RESUME TOKEN ").split(" ")[3].length() > 20);
+            }
+        }
+
+        try (IrcTestSupport.TestClient replay = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            replay.send("RESUME " + token);
+            assertTrue(replay.readLine().contains("FAIL RESUME INVALID_TOKEN"));
+        }
+    }
+
+    @Test
+    void chatHistoryServesRecentLinesAndReplaysThemOnJoin() throws IOException {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setHistoryReplayOnJoin(2);
+        IRCServer historyServer = IrcTestSupport.startServer(config);
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(historyServer.getLocalPort()).register("cmd-hist-a")) {
+            alice.send("JOIN #history");
+            alice.readUntilContains(" BATCH -");
+            for (int i = 1; i <= 3; i++) {
+                alice.send("PRIVMSG #history :line " + i);
+                alice.readUntilContains(":line " + i);
+            }
+
+            alice.send("CHATHISTORY BEFORE #history msgid=3 5");
+            assertTrue(alice.readUntilContains(" BATCH +").endsWith(" chathistory #history"));
+            assertTrue(alice.readLine().matches("@batch=h\\d+;msgid=1;time=\\S+Z :cmd-hist-a PRIVMSG #history :line 1"));
+            String second = alice.readLine();
+            assertTrue(second.contains(";msgid=2;") && second.endsWith(":line 2"));
+            assertTrue(alice.readLine().contains(" BATCH -"));
+
+            try (IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(historyServer.getLocalPort()).register("cmd-hist-b")) {
+                bob.send("JOIN #history");
+                bob.readUntilContains(" BATCH +");
+                assertTrue(bob.readLine().endsWith(":line 2"));
+                assertTrue(bob.readLine().endsWith(":line 3"));
+                assertTrue(bob.readLine().contains(" BATCH -"));
+            }
+
+            alice.send("CHATHISTORY LATEST #nowhere * 10");
+            assertTrue(alice.readUntilContains(" FAIL ").contains("FAIL CHATHISTORY INVALID_TARGET #nowhere"));
+
+            try (IrcTestSupport.TestClient outsider = new IrcTestSupport.TestClient(historyServer.getLocalPort()).register("cmd-hist-c")) {
+                outsider.send("CHATHISTORY LATEST #history * 10");
+                assertTrue(outsider.readUntilContains(" FAIL ").contains("FAIL CHATHISTORY INVALID_TARGET #history"));
+                outsider.send("CHATHISTORY BETWEEN #history timestamp=2020-01-01T00:00:00Z timestamp=2099-01-01T00:00:00Z 10");
+                assertTrue(outsider.readUntilContains(" FAIL ").contains("FAIL CHATHISTORY INVALID_TARGET #history"));
+            }
+        } finally {
+            historyServer.stopServer();
+        }
+    }
+
+    @Test
+    void channelIsDroppedWhenItsLastMemberLeaves() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-ephemeral")) {
+            client.send("JOIN #cmd-ephemeral");
+            client.readUntilContains(" 366 ");
+            client.send("PART #cmd-ephemeral");
+            client.readUntilContains(" PART #cmd-ephemeral");
+            client.send("LIST");
+            // Channels that exist from startup stay even when empty.
+            boolean main = false;
+            String line;
+            while (!(line = client.readLine()).contains(" 323 ")) {
+                assertFalse(line.contains("#cmd-ephemeral"));
+                main |= line.contains(" #main ");
+            }
+            assertTrue(main);
+        }
+    }
+
+    @Test
+    void searchFindsChannelMessagesByWordsAndNick() throws IOException, InterruptedException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-searcher")) {
+            client.send("JOIN #searched");
+            client.readUntilContains(" 366 ");
+            client.send("PRIVMSG #searched :deploy finished without errors");
+            client.send("PRIVMSG #searched :lunch anyone");
+            client.readUntilContains(":lunch anyone");
+
+            String found;
+            long deadline = System.currentTimeMillis() + 5_000;
+            do {
+                Thread.sleep(20);
+                client.send("SEARCH #searched nick=CMD-SEARCHER :Deploy errors");
+                client.readUntilContains(" BATCH +");
+                found = client.readLine();
+            } while (found.contains(" BATCH -") && System.currentTimeMillis() < deadline);
+
+            assertTrue(found.startsWith("@batch="));
+            assertTrue(found.endsWith(" :cmd-searcher PRIVMSG #searched :deploy finished without errors"));
+            assertTrue(client.readLine().contains(" BATCH -"));
+
+            for (String option : List.of("bogus=1", "nick", "limit")) {
+                client.send("SEARCH * " + option + " :deploy");
+                assertTrue(client.readUntilContains(" FAIL ").contains("FAIL SEARCH INVALID_PARAMS"), option);
+            }
+
+            try (IrcTestSupport.TestClient outsider = new IrcTestSupport.TestClient(server.getLocalPort()).register("cmd-search-outsider")) {
+                outsider.send("SEARCH #searched :deploy");
+                assertTrue(outsider.readUntilContains(" FAIL ").contains("FAIL SEARCH INVALID_TARGET #searched"));
+                outsider.send("SEARCH * :deploy");
+                outsider.readUntilContains(" BATCH +");
+                assertTrue(outsider.readLine().contains(" BATCH -"));
+            }
+        }
+    }
+
+    @Test
+    void statsReportsCommandLatencyAndGaugesToOperatorsOnly() throws IOException {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setOperators(List.of("cmd-oper", "cmd-offline-oper"));
+        IRCServer statsServer = IrcTestSupport.startServer(config);
+        try (IrcTestSupport.TestClient oper = new IrcTestSupport.TestClient(statsServer.getLocalPort()).register("cmd-oper");
+             IrcTestSupport.TestClient user = new IrcTestSupport.TestClient(statsServer.getLocalPort()).register("cmd-nonoper")) {
+            user.send("STATS m");
+            assertTrue(user.readUntilContains(" 481 ").contains("not an IRC operator"));
+            // Taking an operator's nick while they are away does not make you one.
+            user.send("NICK cmd-offline-oper");
+            user.readUntilContains(" NICK cmd-offline-oper");
+            user.send("STATS m");
+            assertTrue(user.readUntilContains(" 481 ").contains("not an IRC operator"));
+
+            oper.send("JOIN #main");
+            oper.readUntilContains(" 366 ");
+            oper.send("PRIVMSG #main :measured");
+            oper.readUntilContains(":measured");
+
+            oper.send("STATS m");
+            assertTrue(oper.readUntilContains(" 212 cmd-oper JOIN ").matches(".* JOIN 1 :p50=\\d+us p90=\\d+us p99=\\d+us max=\\d+us"));
+            oper.readUntilContains(" 219 cmd-oper m ");
+
+            oper.send("STATS f");
+            assertTrue(oper.readUntilContains(" 249 cmd-oper :#main ").contains("messages=2 avgRecipients=1"));
+            oper.readUntilContains(" 219 cmd-oper f ");
+
+            oper.send("STATS z");
+            assertEquals(":MyIRCServer 249 cmd-oper :clients.connected 2", oper.readUntilContains("clients.connected"));
+            assertEquals(":MyIRCServer 249 cmd-oper :clients.authenticated 2", oper.readLine());
+        } finally {
+            statsServer.stopServer();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.irc.Connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncHostResolverTest {
+    private AsyncHostResolver resolver;
+
+    @AfterEach
+    void tearDown() {
+        resolver.shutdown();
+    }
+
+    @Test
+    void cachesResultsAndSharesConcurrentLookups() throws Exception {
+        FakeResolver fake = new FakeResolver(100);
+        resolver = new AsyncHostResolver(fake, 2, 5_000, 60_000, 100);
+        InetAddress address = InetAddress.getByName("10.0.0.1");
+
+        CompletableFuture<String> first = resolver.resolve(address);
+        CompletableFuture<String> second = resolver.resolve(address);
+        assertEquals("host-10.0.0.1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("host-10.0.0.1", second.get(5, TimeUnit.SECONDS));
+        assertTrue(resolver.resolve(address).isDone());
+        assertEquals(1, fake.calls.get());
+    }
+
+    @Test
+    void fallsBackToIpOnTimeoutOrFailure() throws Exception {
+        FakeResolver slow = new FakeResolver(2_000);
+        resolver = new AsyncHostResolver(slow, 1, 50, 60_000, 100);
+
+        long start = System.nanoTime();
+        assertEquals("10.0.0.2", resolver.resolve(InetAddress.getByName("10.0.0.2")).get(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+
+        resolver.shutdown();
+        resolver = new AsyncHostResolver(address -> {
+            throw new java.net.UnknownHostException();
+        }, 1, 1_000, 60_000, 100);
+        assertEquals("10.0.0.3", resolver.resolve(InetAddress.getByName("10.0.0.3")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void boundsCacheSize() throws Exception {
+        resolver = new AsyncHostResolver(new FakeResolver(0), 2, 1_000, 60_000, 10);
+        for (int i = 0; i < 50; i++) {
+            resolver.resolve(InetAddress.getByName("10.0.1." + i)).get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(resolver.getCacheSize() <= 10);
+    }
+
+    private static final class FakeResolver implements HostResolver {
+        private final long latencyMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FakeResolver(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public String reverseLookup(InetAddress address) throws Exception {
+            calls.incrementAndGet();
+            Thread.sleep(latencyMillis);
+            return "host-" + address.getHostAddress();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.irc.Connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FrameTest {
+
+    @Test
+    void encodesUtf8WithCrlf() {
+        Frame frame = Frame.of(":nick PRIVMSG #chan :héllo");
+        ByteBuffer buffer = frame.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        assertEquals(":nick PRIVMSG #chan :héllo\r\n", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(":nick PRIVMSG #chan :héllo", frame.toString());
+    }
+
+    @Test
+    void recipientsShareBytesButNotPositions() {
+        Frame frame = Frame.of("PING :server");
+        ByteBuffer first = frame.buffer();
+        ByteBuffer second = frame.buffer();
+        first.position(first.limit());
+
+        assertSame(first.array(), second.array());
+        assertEquals(frame.length(), second.remaining());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.irc.Connection.Server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+    private static final InetAddress FIRST = InetAddress.getLoopbackAddress();
+    private static final InetAddress SECOND = address(10, 0, 0, 2);
+
+    @Test
+    void enforcesPerAddressAndGlobalLimits() {
+        AdmissionControl admission = new AdmissionControl("test", 3, 2);
+        assertEquals(AdmissionControl.Verdict.ADMITTED, admission.tryAdmit(FIRST));
+        assertEquals(AdmissionControl.Verdict.ADMITTED, admission.tryAdmit(FIRST));
+        assertEquals(AdmissionControl.Verdict.HOST_FULL, admission.tryAdmit(FIRST));
+        assertEquals(AdmissionControl.Verdict.ADMITTED, admission.tryAdmit(SECOND));
+        assertEquals(AdmissionControl.Verdict.SERVER_FULL, admission.tryAdmit(SECOND));
+
+        admission.release(FIRST);
+        assertEquals(AdmissionControl.Verdict.ADMITTED, admission.tryAdmit(FIRST));
+        assertEquals(new AdmissionControl.Stats(3, 4, 1, 1, 2), admission.getStats());
+
+        admission.release(FIRST);
+        admission.release(FIRST);
+        admission.release(SECOND);
+        assertEquals(new AdmissionControl.Stats(0, 4, 1, 1, 0), admission.getStats());
+    }
+
+    @Test
+    void zeroDisablesALimit() {
+        AdmissionControl admission = new AdmissionControl("test", 0, 0);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(AdmissionControl.Verdict.ADMITTED, admission.tryAdmit(FIRST));
+        }
+        assertEquals(1_000, admission.getStats().open());
+    }
+
+    @Test
+    void rejectionRepliesAreIndependentCopies() {
+        AdmissionControl admission = new AdmissionControl("irc.test", 1, 0);
+        ByteBuffer first = admission.rejection(AdmissionControl.Verdict.SERVER_FULL);
+        first.position(first.limit());
+        String reply = StandardCharsets.UTF_8.decode(admission.rejection(AdmissionControl.Verdict.SERVER_FULL)).toString();
+        assertTrue(reply.startsWith(":irc.test 263 * CONNECT :"), reply);
+        assertTrue(reply.contains("\r\nERROR :Closing Link"), reply);
+    }
+
+    private static InetAddress address(int a, int b, int c, int d) {
+        try {
+            return InetAddress.getByAddress(new byte[]{(byte) a, (byte) b, (byte) c, (byte) d});
+        } catch (java.net.UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares platform and virtual client threads on the blocking transport.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ExecutionModeBenchmark}.
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmark {
+    private static final int CONNECTIONS = Integer.getInteger("irc.bench.connections", 2_000);
+    private static final int ROUND_TRIPS = Integer.getInteger("irc.bench.roundTrips", 5_000);
+
+    @Test
+    void compareExecutionModes() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-16s %12s %10s %14s %14s %10s %10s %10s",
+                "mode", "connections", "threads", "heap B/conn", "rss KiB/conn", "p50 us", "p99 us", "max us"));
+        report.add(run("platform-threads", false));
+        report.add(run("virtual-threads", true));
+        report.forEach(System.out::println);
+    }
+
+    private String run(String mode, boolean virtualThreads) throws Exception {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.BLOCKING);
+        config.setVirtualThreads(virtualThreads);
+        config.setFloodControlEnabled(false);
+        IRCServer server = IrcTestSupport.startServer(config);
+        List<Socket> idle = new ArrayList<>(CONNECTIONS);
+        try {
+            int threadsBefore = Thread.activeCount();
+            long heapBefore = usedHeap();
+            long rssBefore = residentKiB();
+
+            for (int i = 0; i < CONNECTIONS; i++) {
+                idle.add(new Socket("localhost", server.getLocalPort()));
+            }
+            while (server.getClientCount() < CONNECTIONS) {
+                Thread.sleep(20);
+            }
+
+            int threads = Thread.activeCount() - threadsBefore;
+            long heapPerConnection = (usedHeap() - heapBefore) / CONNECTIONS;
+            long rssPerConnection = (residentKiB() - rssBefore) / CONNECTIONS;
+            long[] latencies = privmsgRoundTrips(server, mode);
+            Arrays.sort(latencies);
+
+            return String.format("%-16s %12d %10d %14d %14d %10d %10d %10d",
+                    mode, CONNECTIONS, threads, heapPerConnection, rssPerConnection,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1]);
+        } finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+            server.stopServer();
+        }
+    }
+
+    private long[] privmsgRoundTrips(IRCServer server, String mode) throws IOException {
+        String sender = mode + "-sender-" + System.nanoTime();
+        String receiver = mode + "-receiver-" + System.nanoTime();
+        try (IrcTestSupport.TestClient from = new IrcTestSupport.TestClient(server.getLocalPort()).register(sender);
+             IrcTestSupport.TestClient to = new IrcTestSupport.TestClient(server.getLocalPort()).register(receiver)) {
+            long[] latencies = new long[ROUND_TRIPS];
+            for (int i = 0; i < ROUND_TRIPS; i++) {
+                long start = System.nanoTime();
+                from.send("PRIVMSG " + receiver + " :" + i);
+                String line = to.readUntilContains("PRIVMSG");
+                latencies[i] = (System.nanoTime() - start) / 1_000;
+                assertEquals(":" + sender + " PRIVMSG " + receiver + " :" + i, line);
+            }
+            return latencies;
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)))];
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Platform thread stacks live outside the heap, so resident set size is what shows their cost.
+    private static long residentKiB() throws IOException {
+        Path status = Path.of("/proc/self/status");
+        if (!Files.exists(status)) return 0;
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloodControlTest {
+    private IRCServer server;
+
+    @AfterEach
+    void tearDown() {
+        server.stopServer();
+    }
+
+    @Test
+    void commandsOverBudgetAreDelayedInOrderNotDropped() throws IOException {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setFloodMessagesPerSecond(40);
+        config.setFloodMessageBurst(5);
+        server = IrcTestSupport.startServer(config);
+
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort()).register("flood-paced")) {
+            client.send("JOIN #paced");
+            client.readUntilContains(" 366 ");
+            long start = System.nanoTime();
+            for (int i = 0; i < 25; i++) {
+                client.send("PRIVMSG #paced :line " + i);
+            }
+            for (int i = 0; i < 25; i++) {
+                assertEquals(":flood-paced PRIVMSG #paced :line " + i, client.readUntilContains(" PRIVMSG "));
+            }
+            // 20 lines beyond the burst at 40 per second.
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 400);
+        }
+    }
+
+    @Test
+    void flooderIsDisconnectedWithoutHurtingOtherChannels() throws Exception {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setFloodMessagesPerSecond(20);
+        // The receiving client never speaks, so keep it clear of the liveness check.
+        config.setPingIntervalMillis(TimeUnit.MINUTES.toMillis(5));
+        server = IrcTestSupport.startServer(config);
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(server.getLocalPort()).register("flood-alice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(server.getLocalPort()).register("flood-bob");
+             IrcTestSupport.TestClient flooder = new IrcTestSupport.TestClient(server.getLocalPort()).register("flood-er")) {
+            alice.send("JOIN #calm");
+            alice.readUntilContains(" 366 ");
+            bob.send("JOIN #calm");
+            bob.readUntilContains(" 366 ");
+            flooder.send("JOIN #noisy");
+            flooder.readUntilContains(" 366 ");
+
+            long[] baseline = roundTrips(alice, bob, "before");
+
+            AtomicBoolean disconnected = new AtomicBoolean();
+            Thread flood = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        flooder.send("PRIVMSG #noisy :" + "spam ".repeat(40) + i);
+                    }
+                    flooder.readUntilContains("Excess Flood");
+                    disconnected.set(true);
+                } catch (IOException e) {
+                    disconnected.set(true);
+                }
+            });
+            flood.start();
+            long[] during = roundTrips(alice, bob, "during");
+            flood.join(10_000);
+
+            assertTrue(disconnected.get());
+            long p99Before = percentile(baseline, 0.99);
+            long p99During = percentile(during, 0.99);
+            System.out.printf("calm channel p99: %d us before, %d us during flood%n", p99Before, p99During);
+            assertTrue(p99During < Math.max(5 * p99Before, TimeUnit.MILLISECONDS.toMicros(50)),
+                    "p99 " + p99During + " us during flood vs " + p99Before + " us before");
+        }
+    }
+
+    // Round trips through the calm channel, paced under the message budget.
+    private static long[] roundTrips(IrcTestSupport.TestClient sender, IrcTestSupport.TestClient receiver, String tag)
+            throws IOException, InterruptedException {
+        long[] micros = new long[100];
+        for (int i = 0; i < micros.length; i++) {
+            long start = System.nanoTime();
+            sender.send("PRIVMSG #calm :" + tag + "-" + i);
+            receiver.readUntilContains(":" + tag + "-" + i);
+            micros[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            sender.readUntilContains(":" + tag + "-" + i);
+            Thread.sleep(1_000 / 10);
+        }
+        return micros;
+    }
+
+    private static long percentile(long[] values, double percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+}
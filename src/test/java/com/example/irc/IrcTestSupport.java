@@ -0,0 +1,130 @@
+package com.example.irc;
+
+import com.example.irc.Connection.HostResolver;
+import com.example.irc.User.User;
+import com.example.irc.User.UserRepository;
+import com.example.irc.User.UserService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+final class IrcTestSupport {
+    // UserDatabaseSingleton keeps the first UserService it sees, so every server in the test JVM shares this one.
+    private static final UserService userService = new UserService(inMemoryUserRepository(), new BCryptPasswordEncoder(4));
+
+    private IrcTestSupport() {
+    }
+
+    static ServerConfig config(ServerConfig.Transport transport) {
+        ServerConfig config = new ServerConfig();
+        config.setDefaultPort(0);
+        config.setTransport(transport);
+        config.setEventLoopThreads(2);
+        // Every test client connects from loopback.
+        config.setMaxConnectionsPerIp(0);
+        return config;
+    }
+
+    static IRCServer startServer(ServerConfig config) {
+        return startServer(config, address -> "localhost");
+    }
+
+    static IRCServer startServer(ServerConfig config, HostResolver hostResolver) {
+        IRCServer server = new IRCServer(userService, config, hostResolver);
+        server.startServer();
+        return server;
+    }
+
+    static UserRepository inMemoryUserRepository() {
+        Map<String, User> users = new ConcurrentHashMap<>();
+        AtomicLong ids = new AtomicLong();
+        UserRepository repository = mock(UserRepository.class, withSettings().stubOnly());
+        when(repository.findByUsername(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(users.get(invocation.<String>getArgument(0))));
+        when(repository.existsByUsername(anyString()))
+                .thenAnswer(invocation -> users.containsKey(invocation.<String>getArgument(0)));
+        when(repository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            User existing = users.get(user.getUsername());
+            if (existing != null && !existing.getId().equals(user.getId())) {
+                throw new DataIntegrityViolationException("duplicate username " + user.getUsername());
+            }
+            if (user.getId() == null) {
+                user.setId(ids.incrementAndGet());
+            }
+            users.put(user.getUsername(), user);
+            return user;
+        });
+        return repository;
+    }
+
+    static final class TestClient implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final OutputStream out;
+
+        TestClient(int port) throws IOException {
+            this.socket = new Socket("localhost", port);
+            this.socket.setSoTimeout(30_000);
+            this.socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = socket.getOutputStream();
+        }
+
+        void send(String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        void sendRaw(String data) throws IOException {
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        String readLine() throws IOException {
+            return in.readLine();
+        }
+
+        String readUntil(Predicate<String> condition) throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (condition.test(line)) {
+                    return line;
+                }
+            }
+            throw new IOException("Connection closed before expected line arrived");
+        }
+
+        String readUntilContains(String text) throws IOException {
+            return readUntil(line -> line.contains(text));
+        }
+
+        TestClient register(String username) throws IOException {
+            send("REGISTER " + username + " secret");
+            readUntilContains("successfully registered");
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.irc;
+
+import com.example.irc.Link.ServerLink;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Channel throughput as the same audience is spread over more linked nodes. The clients, channels and
+ * members per channel stay fixed and the clients are dealt round-robin over the nodes, so every channel
+ * has members on every node and each line reaches the same number of people; what changes with the node
+ * count is how much of the traffic crosses links. Nodes are linked in a star around the first one. Run with {@code mvn test -Pbenchmark -Dtest=LinkThroughputBenchmark}.
+ */
+@Tag("benchmark")
+class LinkThroughputBenchmark {
+    private static final int MAX_NODES = Integer.getInteger("irc.bench.nodes", 3);
+    private static final int CLIENTS = Integer.getInteger("irc.bench.clients", 150);
+    private static final int CHANNELS = Integer.getInteger("irc.bench.channels", 10);
+    private static final int MESSAGES_PER_CLIENT = Integer.getInteger("irc.bench.messagesPerClient", 200);
+    private static final long SETUP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @Test
+    void aggregateThroughputByNodeCount() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-6s %8s %10s %12s %9s %10s %14s %12s",
+                "nodes", "clients", "sent", "delivered", "seconds", "sent/s", "delivered/s", "link lines"));
+        for (int nodes = 1; nodes <= MAX_NODES; nodes++) {
+            report.add(run(nodes));
+        }
+        report.forEach(System.out::println);
+    }
+
+    private String run(int nodes) throws Exception {
+        List<IRCServer> servers = new ArrayList<>();
+        List<IrcTestSupport.TestClient> clients = new ArrayList<>();
+        try {
+            for (int node = 0; node < nodes; node++) {
+                ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+                config.setFloodControlEnabled(false);
+                config.setServerName("node" + node + ".bench");
+                config.setLinkEnabled(true);
+                config.setLinkPort(0);
+                config.setLinkPassword("bench");
+                if (node > 0) {
+                    config.getLinkPeers().add("localhost:" + servers.get(0).getLinkPort());
+                }
+                servers.add(IrcTestSupport.startServer(config));
+            }
+            awaitLinks(servers.get(0), nodes - 1);
+
+            String runId = Long.toString(System.nanoTime(), 36);
+            int[] members = new int[CHANNELS];
+            int[] local = new int[nodes];
+            for (int index = 0; index < CLIENTS; index++) {
+                int node = index % nodes;
+                IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(servers.get(node).getLocalPort())
+                        .register("lt" + index + "-" + runId);
+                client.send("JOIN #bench" + index % CHANNELS);
+                client.readUntilContains(" 366 ");
+                members[index % CHANNELS]++;
+                local[node]++;
+                clients.add(client);
+            }
+            awaitRemoteUsers(servers, local);
+
+            LongAdder delivered = new LongAdder();
+            for (IrcTestSupport.TestClient client : clients) {
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        String line;
+                        while ((line = client.readLine()) != null) {
+                            if (line.contains(" PRIVMSG #bench")) {
+                                delivered.increment();
+                            }
+                        }
+                    } catch (IOException ignored) {
+                    }
+                });
+            }
+            long expected = 0;
+            for (int index = 0; index < clients.size(); index++) {
+                expected += (long) MESSAGES_PER_CLIENT * members[index % CHANNELS];
+            }
+
+            long start = System.nanoTime();
+            List<Thread> senders = new ArrayList<>();
+            for (int index = 0; index < clients.size(); index++) {
+                IrcTestSupport.TestClient client = clients.get(index);
+                String line = "PRIVMSG #bench" + index % CHANNELS + " :throughput";
+                senders.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        for (int i = 0; i < MESSAGES_PER_CLIENT; i++) {
+                            client.send(line);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+            while (delivered.sum() < expected && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long sent = (long) clients.size() * MESSAGES_PER_CLIENT;
+            long linkLines = servers.get(0).getServerLinks().stream().mapToLong(ServerLink.Info::linesOut).sum();
+            assertEquals(expected, delivered.sum());
+
+            return String.format("%-6d %8d %10d %12d %9.2f %10.0f %14.0f %12d",
+                    nodes, clients.size(), sent, delivered.sum(), seconds, sent / seconds, delivered.sum() / seconds, linkLines);
+        } finally {
+            for (IrcTestSupport.TestClient client : clients) {
+                client.close();
+            }
+            servers.forEach(IRCServer::stopServer);
+        }
+    }
+
+    private static void awaitLinks(IRCServer hub, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETUP_TIMEOUT_MILLIS;
+        while (hub.getServerLinks().size() < expected || !hub.getServerLinks().stream().allMatch(ServerLink.Info::synced)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Only " + hub.getServerLinks().size() + " of " + expected + " links came up");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // Joins travel after the users themselves, so give them a moment once every user is known everywhere.
+    private static void awaitRemoteUsers(List<IRCServer> servers, int[] local) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETUP_TIMEOUT_MILLIS;
+        for (int node = 0; node < servers.size(); node++) {
+            int expected = CLIENTS - local[node];
+            while (servers.get(node).getLinkStats().remoteUsers() < expected) {
+                if (System.currentTimeMillis() > deadline) {
+                    fail("Node " + node + " knows " + servers.get(node).getLinkStats().remoteUsers() + " of " + expected + " remote users");
+                }
+                Thread.sleep(10);
+            }
+        }
+        Thread.sleep(500);
+    }
+}
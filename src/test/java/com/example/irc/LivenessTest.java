@@ -0,0 +1,50 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LivenessTest {
+    private IRCServer server;
+
+    @AfterEach
+    void tearDown() {
+        server.stopServer();
+    }
+
+    private void start(ServerConfig.Transport transport) {
+        ServerConfig config = IrcTestSupport.config(transport);
+        config.setPingIntervalMillis(300);
+        config.setPongTimeoutMillis(300);
+        server = IrcTestSupport.startServer(config);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerConfig.Transport.class)
+    void dropsClientThatNeverAnswersPing(ServerConfig.Transport transport) throws IOException {
+        start(transport);
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            assertEquals("PING :MyIRCServer", client.readLine());
+            assertNull(client.readLine());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerConfig.Transport.class)
+    void keepsIdleClientThatAnswersPing(ServerConfig.Transport transport) throws Exception {
+        start(transport);
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("PING :MyIRCServer", client.readLine());
+                client.send("PONG :MyIRCServer");
+            }
+            assertEquals(1, server.getClientCount());
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.irc;
+
+import com.example.irc.MessageHandler.IrcCommand;
+import com.example.irc.Metrics.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives simulated clients against an in-process {@link IRCServer} through a scripted sequence of phases
+ * and reports delivery latency, throughput and heap per phase. Every PRIVMSG carries its send time, and the
+ * receiving client records the difference, so latency is end to end through the server. Clients register
+ * once, join a few channels, then send channel messages and DMs at the phase's rate; some of them leave and
+ * rejoin a channel or quit and come back with AUTH while the phase runs.
+ */
+final class LoadGenerator {
+    private static final String MARKER = "lt ";
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Profile profile;
+    private final IRCServer server;
+    private final String runId = Long.toString(System.nanoTime(), 36);
+    private final List<SimulatedClient> clients = new ArrayList<>();
+    private final ExecutorService churn = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder errors = new LongAdder();
+    private volatile PhaseStats current;
+
+    /**
+     * @param messagesPerSecond PRIVMSGs each client sends per second during the phase
+     * @param churnPerSecond    share of clients per second that part and rejoin a channel or reconnect
+     */
+    record Phase(String name, int seconds, double messagesPerSecond, double churnPerSecond) {
+    }
+
+    record Profile(int clients, int channels, int channelsPerClient, double directMessageShare,
+                   int messageBytes, ServerConfig.Transport transport, List<Phase> phases) {
+
+        /**
+         * Reads {@code irc.load.*} system properties. Phases are {@code name:seconds:msgsPerSec[:churnPerSec]}
+         * separated by commas.
+         */
+        static Profile fromSystemProperties() {
+            return new Profile(
+                    Integer.getInteger("irc.load.clients", 200),
+                    Integer.getInteger("irc.load.channels", 20),
+                    Integer.getInteger("irc.load.channelsPerClient", 3),
+                    Double.parseDouble(System.getProperty("irc.load.dmShare", "0.2")),
+                    Integer.getInteger("irc.load.messageBytes", 80),
+                    ServerConfig.Transport.valueOf(System.getProperty("irc.load.transport", "NIO")),
+                    parsePhases(System.getProperty("irc.load.phases",
+                            "warmup:5:0.5:0,steady:20:1:0.01,spike:5:4:0.01,cooldown:5:0.5:0")));
+        }
+
+        static List<Phase> parsePhases(String script) {
+            List<Phase> phases = new ArrayList<>();
+            for (String step : script.split(",")) {
+                String[] fields = step.trim().split(":");
+                phases.add(new Phase(fields[0], Integer.parseInt(fields[1]), Double.parseDouble(fields[2]),
+                        fields.length > 3 ? Double.parseDouble(fields[3]) : 0));
+            }
+            return phases;
+        }
+    }
+
+    record PhaseReport(Phase phase, long sent, long delivered, Histogram.Snapshot latency, long maxHeapBytes,
+                       long serverPrivmsgP99Nanos) {
+    }
+
+    private static final class PhaseStats {
+        private final Histogram latency = new Histogram();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final AtomicLong maxHeap = new AtomicLong();
+    }
+
+    LoadGenerator(Profile profile) {
+        this.profile = profile;
+        ServerConfig config = IrcTestSupport.config(profile.transport());
+        config.setFloodControlEnabled(Boolean.getBoolean("irc.load.floodControl"));
+        config.setPingIntervalMillis(TimeUnit.MINUTES.toMillis(10));
+        this.server = IrcTestSupport.startServer(config);
+    }
+
+    List<PhaseReport> run() throws Exception {
+        try {
+            connectAll();
+            List<PhaseReport> reports = new ArrayList<>();
+            for (Phase phase : profile.phases()) {
+                reports.add(runPhase(phase));
+            }
+            return reports;
+        } finally {
+            churn.shutdownNow();
+            for (SimulatedClient client : clients) {
+                client.close();
+            }
+            server.stopServer();
+        }
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    private void connectAll() throws Exception {
+        current = new PhaseStats();
+        ExecutorService connectors = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<?>> connected = new ArrayList<>();
+        for (int i = 0; i < profile.clients(); i++) {
+            SimulatedClient client = new SimulatedClient("lg" + i + "-" + runId, pickChannels());
+            clients.add(client);
+            connected.add(connectors.submit(() -> {
+                client.connect(true);
+                return null;
+            }));
+        }
+        for (Future<?> future : connected) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        connectors.shutdown();
+    }
+
+    private List<String> pickChannels() {
+        List<String> picked = new ArrayList<>();
+        while (picked.size() < Math.min(profile.channelsPerClient(), profile.channels())) {
+            String channel = "#load" + ThreadLocalRandom.current().nextInt(profile.channels());
+            if (!picked.contains(channel)) {
+                picked.add(channel);
+            }
+        }
+        return picked;
+    }
+
+    private PhaseReport runPhase(Phase phase) throws InterruptedException {
+        PhaseStats stats = new PhaseStats();
+        current = stats;
+        Histogram serverPrivmsg = server.getMetrics().getCommandLatency().get(IrcCommand.PRIVMSG);
+        Histogram.Mark serverStart = serverPrivmsg.mark();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String padding = "x".repeat(Math.max(0, profile.messageBytes() - 40));
+        double messagesPerTick = phase.messagesPerSecond() * clients.size() * TICK_NANOS / 1e9;
+        double churnPerTick = phase.churnPerSecond() * clients.size() * TICK_NANOS / 1e9;
+        double messageCredit = 0;
+        double churnCredit = 0;
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(phase.seconds());
+        long nextHeapSample = start;
+        for (long tick = start; tick < end; tick += TICK_NANOS) {
+            messageCredit += messagesPerTick;
+            for (; messageCredit >= 1; messageCredit--) {
+                SimulatedClient sender = clients.get(random.nextInt(clients.size()));
+                if (!sender.active) continue;
+                String target = random.nextDouble() < profile.directMessageShare()
+                        ? clients.get(random.nextInt(clients.size())).nick
+                        : sender.channels.get(random.nextInt(sender.channels.size()));
+                if (sender.send("PRIVMSG " + target + " :" + MARKER + System.nanoTime() + " " + padding)) {
+                    stats.sent.increment();
+                }
+            }
+            churnCredit += churnPerTick;
+            for (; churnCredit >= 1; churnCredit--) {
+                SimulatedClient client = clients.get(random.nextInt(clients.size()));
+                if (client.active) {
+                    // Taken out of rotation here so the same client is not churned twice at once.
+                    client.active = false;
+                    churn.execute(random.nextBoolean() ? client::rejoin : client::reconnect);
+                }
+            }
+            if (tick >= nextHeapSample) {
+                Runtime runtime = Runtime.getRuntime();
+                stats.maxHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                nextHeapSample += TimeUnit.SECONDS.toNanos(1);
+            }
+            long sleep = tick + TICK_NANOS - System.nanoTime();
+            if (sleep > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        }
+        // Let messages in flight at the end of the phase land in its numbers.
+        Thread.sleep(200);
+        return new PhaseReport(phase, stats.sent.sum(), stats.delivered.sum(), stats.latency.snapshot(),
+                stats.maxHeap.get(), serverPrivmsg.since(serverStart).p99());
+    }
+
+    static String format(Profile profile, List<PhaseReport> reports, long errors) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("load profile: %d clients, %d channels, %d channels/client, %.0f%% DMs, %d-byte messages, %s%n",
+                profile.clients(), profile.channels(), profile.channelsPerClient(), profile.directMessageShare() * 100,
+                profile.messageBytes(), profile.transport()));
+        out.append(String.format("%-10s %5s %9s %10s %12s %9s %9s %9s %9s %9s %9s %13s%n",
+                "phase", "secs", "sent/s", "deliv/s", "deliv/sent", "p50 us", "p90 us", "p99 us", "p999 us", "max us",
+                "heap MB", "srv p99 us"));
+        for (PhaseReport report : reports) {
+            double seconds = report.phase().seconds();
+            Histogram.Snapshot latency = report.latency();
+            out.append(String.format("%-10s %5d %9.0f %10.0f %12.1f %9d %9d %9d %9d %9d %9d %13d%n",
+                    report.phase().name(), report.phase().seconds(), report.sent() / seconds, report.delivered() / seconds,
+                    report.sent() == 0 ? 0.0 : (double) report.delivered() / report.sent(),
+                    micros(latency.p50()), micros(latency.p90()), micros(latency.p99()), micros(latency.p999()),
+                    micros(latency.max()), report.maxHeapBytes() >> 20, micros(report.serverPrivmsgP99Nanos())));
+        }
+        out.append("client errors: ").append(errors);
+        return out.toString();
+    }
+
+    private void fail(Exception e) {
+        if (errors.sum() < 10) {
+            System.out.println("Load client error: " + e);
+        }
+        errors.increment();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private final class SimulatedClient {
+        private final String nick;
+        private final List<String> channels;
+        private final Object writeLock = new Object();
+        private volatile boolean active;
+        private volatile Socket socket;
+        private volatile OutputStream out;
+        private volatile String[] awaited;
+        private volatile String awaitedLine;
+        private volatile CountDownLatch awaitedSeen;
+
+        SimulatedClient(String nick, List<String> channels) {
+            this.nick = nick;
+            this.channels = channels;
+        }
+
+        void connect(boolean register) throws IOException, InterruptedException {
+            socket = new Socket("localhost", server.getLocalPort());
+            out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Socket own = socket;
+            Thread.ofVirtual().name("load-reader-" + nick).start(() -> read(own, in));
+            if (register) {
+                request("REGISTER " + nick + " secret", "successfully registered");
+            } else {
+                // The server may not have released the nick from the previous connection yet.
+                for (int attempt = 0; request("AUTH " + nick + " secret", "Authentication successful", " 433 ").contains(" 433 "); attempt++) {
+                    if (attempt == 50) throw new IOException(nick + ": nick still in use");
+                    Thread.sleep(20);
+                }
+            }
+            for (String channel : channels) {
+                request("JOIN " + channel, " 366 ");
+            }
+            active = true;
+        }
+
+        // Sends a line and waits for a reply containing one of the given texts; returns that reply.
+        private String request(String line, String... replies) throws IOException, InterruptedException {
+            CountDownLatch seen = new CountDownLatch(1);
+            awaitedSeen = seen;
+            awaited = replies;
+            write(line);
+            if (!seen.await(30, TimeUnit.SECONDS)) {
+                throw new IOException(nick + ": no reply to " + line);
+            }
+            return awaitedLine;
+        }
+
+        private void read(Socket own, BufferedReader in) {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int marker = line.indexOf(MARKER);
+                    if (marker > 0 && line.contains(" PRIVMSG ")) {
+                        int end = line.indexOf(' ', marker + MARKER.length());
+                        long sentAt = Long.parseLong(line, marker + MARKER.length(), end < 0 ? line.length() : end, 10);
+                        PhaseStats stats = current;
+                        stats.latency.record(System.nanoTime() - sentAt);
+                        stats.delivered.increment();
+                    } else if (line.startsWith("PING ")) {
+                        write("PONG " + line.substring(5));
+                    } else {
+                        String[] expected = awaited;
+                        for (int i = 0; expected != null && i < expected.length; i++) {
+                            if (line.contains(expected[i])) {
+                                awaited = null;
+                                awaitedLine = line;
+                                awaitedSeen.countDown();
+                            }
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (active && own == socket) {
+                    fail(e);
+                }
+            }
+        }
+
+        boolean send(String line) {
+            try {
+                write(line);
+                return true;
+            } catch (IOException e) {
+                // A client taken out for churn after the caller checked it is not a failure.
+                if (active) {
+                    fail(e);
+                }
+                return false;
+            }
+        }
+
+        private void write(String line) throws IOException {
+            byte[] bytes = (line + "\r\n").getBytes(StandardCharsets.UTF_8);
+            synchronized (writeLock) {
+                out.write(bytes);
+                out.flush();
+            }
+        }
+
+        void rejoin() {
+            String channel = channels.get(ThreadLocalRandom.current().nextInt(channels.size()));
+            try {
+                write("PART " + channel);
+                request("JOIN " + channel, " 366 ");
+                active = true;
+            } catch (IOException | InterruptedException e) {
+                fail(e);
+            }
+        }
+
+        void reconnect() {
+            try {
+                write("QUIT :reconnecting");
+                socket.close();
+                connect(false);
+            } catch (IOException | InterruptedException e) {
+                fail(e);
+            }
+        }
+
+        void close() {
+            active = false;
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
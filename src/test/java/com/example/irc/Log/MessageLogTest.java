@@ -0,0 +1,113 @@
+package com.example.irc.Log;
+
+import com.example.irc.Connection.Frame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void scansTimeRangeAcrossRolledSegments() throws Exception {
+        ChannelLog log = new ChannelLog(directory, 512, 64, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, log.append(1_000 + i * 10L, line("message " + i)));
+        }
+        assertTrue(log.segmentCount() > 5);
+        assertEquals(1, log.mappedSegmentCount());
+
+        List<MessageLog.Record> records = log.scan(1_200, 1_300, 100);
+        assertEquals(11, records.size());
+        assertEquals(21, records.get(0).seq());
+        assertEquals("message 20", text(records.get(0)));
+        assertEquals("message 30", text(records.get(10)));
+        assertEquals(3, log.scan(0, Long.MAX_VALUE, 3).size());
+    }
+
+    @Test
+    void scansSealedSegmentsInChunksWithRecordsSpanningThem() throws Exception {
+        ChannelLog log = new ChannelLog(directory, 256 * 1024, 4096, Long.MAX_VALUE);
+        for (int i = 0; i < 20; i++) {
+            log.append(i, line(i + " " + "x".repeat(40_000)));
+        }
+        assertTrue(log.segmentCount() > 2);
+        assertEquals(1, log.mappedSegmentCount());
+
+        List<MessageLog.Record> records = log.scan(0, Long.MAX_VALUE, 100);
+        assertEquals(20, records.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i + 1, records.get(i).seq());
+            assertEquals(i + " " + "x".repeat(40_000), text(records.get(i)));
+        }
+    }
+
+    @Test
+    void reopenedLogContinuesAfterTheLastRecord() throws Exception {
+        ChannelLog log = new ChannelLog(directory, 4096, 64, Long.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            log.append(i, line("before restart " + i));
+        }
+        log.force();
+
+        ChannelLog reopened = new ChannelLog(directory, 4096, 64, Long.MAX_VALUE);
+        assertEquals(1, reopened.mappedSegmentCount());
+        assertEquals(11, reopened.append(10, line("after restart")));
+        List<MessageLog.Record> records = reopened.scan(0, Long.MAX_VALUE, 100);
+        assertEquals(11, records.size());
+        assertEquals("before restart 9", text(records.get(9)));
+        assertEquals("after restart", text(records.get(10)));
+    }
+
+    @Test
+    void rollsByAgeAndDeletesSegmentsPastRetention() throws Exception {
+        ChannelLog log = new ChannelLog(directory, 4096, 64, 100);
+        for (int i = 0; i < 10; i++) {
+            log.append(i * 50L, line("line " + i));
+        }
+        assertEquals(5, log.segmentCount());
+
+        assertEquals(2, log.deleteBefore(200));
+        assertEquals(1, log.mappedSegmentCount());
+        List<MessageLog.Record> remaining = log.scan(0, Long.MAX_VALUE, 100);
+        assertEquals(200, remaining.get(0).timestamp());
+        assertEquals(6, remaining.size());
+    }
+
+    @Test
+    void queuedLinesAreDurableAfterClose() throws Exception {
+        MessageLog log = new MessageLog(directory, 64 * 1024, 1024, Long.MAX_VALUE, Long.MAX_VALUE, 50, 1024);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(log.append("#logged", Frame.of(":alice PRIVMSG #logged :line " + i)));
+        }
+        log.close();
+        assertEquals(100, log.getStats().appended());
+
+        MessageLog reopened = new MessageLog(directory, 64 * 1024, 1024, Long.MAX_VALUE, Long.MAX_VALUE, 50, 1024);
+        try {
+            List<MessageLog.Record> records = reopened.scan("#logged", start, Long.MAX_VALUE, 1000);
+            assertEquals(100, records.size());
+            assertEquals(":alice PRIVMSG #logged :line 99", text(records.get(99)));
+            assertTrue(reopened.scan("#other", 0, Long.MAX_VALUE, 10).isEmpty());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static ByteBuffer line(String text) {
+        return Frame.of(text).buffer();
+    }
+
+    private static String text(MessageLog.Record record) {
+        return StandardCharsets.UTF_8.decode(record.line()).toString().stripTrailing();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.irc.MessageHandler;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IrcMessageTest {
+    private static final String WORD_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789#&!@._-[]{}|^é";
+
+    private final IrcMessage message = new IrcMessage();
+
+    @Test
+    void parsesPrefixCommandParamsAndTrailing() {
+        assertEquals(IrcMessage.ParseResult.OK, message.parse(":nick!user@host privmsg #chan :hello  world :)"));
+
+        assertEquals("nick!user@host", message.getPrefix());
+        assertEquals(IrcCommand.PRIVMSG, message.getCommand());
+        assertEquals(2, message.getParamCount());
+        assertEquals("#chan", message.getParam(0));
+        assertEquals("hello  world :)", message.getParam(1));
+        assertTrue(message.hasTrailing());
+    }
+
+    @Test
+    void collapsesRepeatedSpacesBetweenMiddleParams() {
+        message.parse("REGISTER   alice    secret   alice@example.org\r\n");
+
+        assertNull(message.getPrefix());
+        assertEquals(IrcCommand.REGISTER, message.getCommand());
+        assertEquals(List.of("alice", "secret", "alice@example.org"), params());
+        assertFalse(message.hasTrailing());
+    }
+
+    @Test
+    void rawParamsKeepTheRestOfTheLineAsSent() {
+        message.parse("AUTH alice correct horse  battery\r\n");
+        assertEquals("correct horse  battery", message.getRawParams(1));
+
+        message.parse("AUTH alice :colon first\r\n");
+        assertEquals(":colon first", message.getRawParams(1));
+        assertEquals("alice :colon first", message.getRawParams(0));
+    }
+
+    @Test
+    void fifteenthParamTakesRestOfLine() {
+        message.parse("CMD 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16");
+
+        assertEquals(IrcMessage.MAX_PARAMS, message.getParamCount());
+        assertEquals("15 16", message.getParam(14));
+        assertEquals(IrcCommand.UNKNOWN, message.getCommand());
+        assertEquals("CMD", message.getCommandName());
+    }
+
+    @Test
+    void classifiesEmptyMalformedAndOversizedLines() {
+        assertEquals(IrcMessage.ParseResult.EMPTY, message.parse("   "));
+        assertEquals(IrcMessage.ParseResult.MALFORMED, message.parse(":prefixonly"));
+        assertEquals(IrcMessage.ParseResult.MALFORMED, message.parse(": PRIVMSG x"));
+        assertEquals(IrcMessage.ParseResult.OK, message.parse("PRIVMSG #c :" + "a".repeat(510 - 12)));
+        assertEquals(IrcMessage.ParseResult.TOO_LONG, message.parse("PRIVMSG #c :" + "a".repeat(511 - 12)));
+        // 'é' is two bytes in UTF-8, so this line is short in chars but over the byte limit.
+        assertEquals(IrcMessage.ParseResult.TOO_LONG, message.parse("PRIVMSG #c :" + "é".repeat(260)));
+    }
+
+    @Test
+    void looksUpCommandsCaseInsensitively() {
+        for (IrcCommand command : IrcCommand.values()) {
+            if (command == IrcCommand.UNKNOWN) continue;
+            message.parse(command.name().toLowerCase() + " x");
+            assertEquals(command, message.getCommand());
+        }
+        message.parse("PRIVMSGX x");
+        assertEquals(IrcCommand.UNKNOWN, message.getCommand());
+    }
+
+    @RepeatedTest(20)
+    void roundTripsRandomWellFormedMessages() {
+        Random random = new Random();
+        for (int n = 0; n < 500; n++) {
+            String prefix = random.nextBoolean() ? word(random) : null;
+            String command = random.nextBoolean()
+                    ? IrcCommand.values()[random.nextInt(IrcCommand.values().length - 1)].name()
+                    : word(random);
+            List<String> params = new ArrayList<>();
+            int middles = random.nextInt(IrcMessage.MAX_PARAMS);
+            for (int i = 0; i < middles; i++) {
+                params.add(word(random));
+            }
+            String trailing = random.nextBoolean() ? text(random) : null;
+
+            StringBuilder line = new StringBuilder();
+            if (prefix != null) line.append(':').append(prefix).append(' ');
+            line.append(command);
+            params.forEach(param -> line.append(' ').append(param));
+            if (trailing != null) {
+                line.append(" :").append(trailing);
+                params.add(trailing);
+            }
+
+            assertEquals(IrcMessage.ParseResult.OK, message.parse(line), line::toString);
+            assertEquals(prefix, message.getPrefix(), line::toString);
+            assertEquals(command, message.getCommandName(), line::toString);
+            assertEquals(params, params(), line::toString);
+        }
+    }
+
+    @RepeatedTest(20)
+    void neverThrowsOnRandomInput() {
+        Random random = new Random();
+        String alphabet = " ::\r\n\t#abcXYZ012é\u0000😀";
+        for (int n = 0; n < 2_000; n++) {
+            StringBuilder line = new StringBuilder();
+            int length = random.nextInt(600);
+            for (int i = 0; i < length; i++) {
+                line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            IrcMessage.ParseResult result = message.parse(line);
+            if (result == IrcMessage.ParseResult.OK) {
+                assertTrue(message.getCommandName().length() > 0);
+                assertTrue(message.getParamCount() <= IrcMessage.MAX_PARAMS);
+                for (int i = 0; i < message.getParamCount(); i++) {
+                    message.getParam(i);
+                }
+            }
+        }
+    }
+
+    private List<String> params() {
+        List<String> params = new ArrayList<>();
+        for (int i = 0; i < message.getParamCount(); i++) {
+            params.add(message.getParam(i));
+        }
+        return params;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            word.append(WORD_CHARS.charAt(random.nextInt(WORD_CHARS.length())));
+        }
+        if (word.charAt(0) == ':') word.setCharAt(0, 'x');
+        return word.toString();
+    }
+
+    private static String text(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            text.append(random.nextBoolean() ? " " : ":").append(word(random));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.irc.MessageHandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        long wait = bucket.tryAcquire(now);
+        assertTrue(wait > 0 && wait <= SECOND / 10, "wait " + wait);
+        assertTrue(bucket.tryAcquire(now) > 0);
+
+        assertEquals(0, bucket.tryAcquire(now + wait));
+        assertTrue(bucket.tryAcquire(now + wait) > 0);
+        assertEquals(0, bucket.tryAcquire(now + SECOND));
+    }
+
+    @Test
+    void refundReturnsAToken() {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(1, 1);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+        bucket.refund();
+        assertEquals(0, bucket.tryAcquire(now));
+    }
+
+    @Test
+    void concurrentCallersNeverTakeMoreThanTheBurst() throws InterruptedException {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(1, 1_000);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    if (bucket.tryAcquire(now) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1_000, granted.get());
+    }
+
+    @Test
+    void classifiesCommandsIntoBudgets() {
+        assertEquals(FloodControl.CommandClass.MESSAGE, FloodControl.classify(IrcCommand.PRIVMSG));
+        assertEquals(FloodControl.CommandClass.MEMBERSHIP, FloodControl.classify(IrcCommand.JOIN));
+        assertEquals(FloodControl.CommandClass.QUERY, FloodControl.classify(IrcCommand.LIST));
+        assertEquals(FloodControl.CommandClass.UNLIMITED, FloodControl.classify(IrcCommand.PONG));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.irc.Metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void bucketsTileTheRangeWithoutGaps() {
+        for (int i = 0; Histogram.upperBound(i) < Long.MAX_VALUE / 2; i++) {
+            long upper = Histogram.upperBound(i);
+            assertEquals(i, Histogram.bucket(upper));
+            assertEquals(i + 1, Histogram.bucket(upper + 1));
+        }
+        assertTrue(Histogram.bucket(Long.MAX_VALUE) >= 0);
+    }
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.count());
+        assertEquals(100_000, snapshot.max());
+        assertEquals(50_000, snapshot.mean());
+        assertWithin(50_000, snapshot.p50());
+        assertWithin(99_000, snapshot.p99());
+        assertWithin(99_900, snapshot.p999());
+    }
+
+    @Test
+    void sinceReportsOnlyValuesAfterTheMark() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 10_000; i++) {
+            histogram.record(1_000_000);
+        }
+        Histogram.Mark mark = histogram.mark();
+        for (long value = 1; value <= 1_000; value++) {
+            histogram.record(value);
+        }
+
+        Histogram.Snapshot since = histogram.since(mark);
+        assertEquals(1_000, since.count());
+        assertEquals(500, since.mean());
+        assertWithin(990, since.p99());
+        assertWithin(1_000, since.max());
+        assertEquals(1_000_000, histogram.snapshot().p99());
+        assertEquals(0, histogram.since(histogram.mark()).count());
+    }
+
+    @Test
+    void recordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i);
+        }
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1_000_000; i++) {
+            histogram.record(i * 31L);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(allocated < 1024, allocated + " bytes allocated");
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, actual + " not within 12.5% of " + expected);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.irc.Metrics;
+
+import com.example.irc.MessageHandler.IrcCommand;
+import com.example.irc.ServerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsEndpointTest {
+
+    @Test
+    void servesPrometheusText() throws Exception {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.gauge("clients.connected", () -> 3);
+        metrics.addChannel("#ops");
+        metrics.recordCommand(IrcCommand.JOIN, 2_000_000);
+        metrics.recordFanOut("#ops", 12, 50_000);
+
+        ServerConfig config = new ServerConfig();
+        config.setMetricsPort(0);
+        MetricsEndpoint endpoint = new MetricsEndpoint(metrics, config);
+        endpoint.start();
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.getLocalPort() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            String body = response.body();
+            assertTrue(body.contains("\nirc_clients_connected 3\n"), body);
+            assertTrue(body.contains("irc_command_latency_seconds{command=\"JOIN\",quantile=\"0.99\"} 0.00"), body);
+            assertTrue(body.contains("irc_command_latency_seconds_count{command=\"JOIN\"} 1\n"), body);
+            assertTrue(body.contains("irc_fanout_recipients{quantile=\"0.5\"} 12\n"), body);
+            assertTrue(body.contains("irc_channel_recipients_total{channel=\"#ops\"} 12\n"), body);
+        } finally {
+            endpoint.stop();
+        }
+    }
+}
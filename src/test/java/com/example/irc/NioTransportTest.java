@@ -0,0 +1,162 @@
+package com.example.irc;
+
+import com.example.irc.Chat.ChannelShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NioTransportTest {
+    private static final int IDLE_CONNECTIONS = Integer.getInteger("irc.test.idleConnections", 10_000);
+
+    private IRCServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = IrcTestSupport.startServer(IrcTestSupport.config(ServerConfig.Transport.NIO));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stopServer();
+    }
+
+    @Test
+    void answersCommandsOverNio() throws IOException {
+        try (IrcTestSupport.TestClient client = new IrcTestSupport.TestClient(server.getLocalPort())) {
+            client.sendRaw("LI");
+            client.sendRaw("ST\r\n");
+
+            assertTrue(client.readLine().contains(" 321 "));
+            String line;
+            while (!(line = client.readLine()).contains(" 323 ")) {
+                assertTrue(line.contains(" 322 "));
+            }
+        }
+    }
+
+    @Test
+    void deliversDirectMessagesOverNio() throws IOException {
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(server.getLocalPort()).register("nio-alice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(server.getLocalPort()).register("nio-bob")) {
+            alice.send("PRIVMSG nio-bob :hello there");
+            assertEquals(":nio-alice PRIVMSG nio-bob :hello there", bob.readUntilContains("PRIVMSG"));
+        }
+    }
+
+    @Test
+    void busyChannelShardDoesNotHoldUpOtherChannelsOnTheSameEventLoop() throws Exception {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setEventLoopThreads(1);
+        config.setChannelShards(2);
+        config.setChannelShardQueueCapacity(1);
+        config.setFloodControlEnabled(false);
+        IRCServer busyServer = IrcTestSupport.startServer(config);
+        ChannelShards shards = busyServer.getChannelShards();
+        String calm = "#calm";
+        for (int i = 0; shards.shardOf(calm) == shards.shardOf("#busy"); i++) {
+            calm = "#calm" + i;
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        try (IrcTestSupport.TestClient talker = new IrcTestSupport.TestClient(busyServer.getLocalPort()).register("shard-talker");
+             IrcTestSupport.TestClient listener = new IrcTestSupport.TestClient(busyServer.getLocalPort()).register("shard-listener");
+             IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(busyServer.getLocalPort()).register("shard-alice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(busyServer.getLocalPort()).register("shard-bob")) {
+            for (IrcTestSupport.TestClient client : List.of(talker, listener)) {
+                client.send("JOIN #busy");
+                client.readUntilContains(" 366 ");
+            }
+            for (IrcTestSupport.TestClient client : List.of(alice, bob)) {
+                client.send("JOIN " + calm);
+                client.readUntilContains(" 366 ");
+            }
+
+            // The busy shard is stuck, one line fills its queue and the next is refused.
+            shards.execute("#busy", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            talker.send("PRIVMSG #busy :first");
+            talker.send("PRIVMSG #busy :second");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (shards.getThrottled() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(shards.getThrottled() > 0);
+
+            alice.send("PRIVMSG " + calm + " :still moving");
+            assertTrue(bob.readUntilContains("PRIVMSG " + calm).endsWith(":still moving"));
+            assertEquals(1, release.getCount());
+
+            release.countDown();
+            assertTrue(listener.readUntilContains("PRIVMSG #busy").endsWith(":first"));
+            assertTrue(listener.readUntilContains("PRIVMSG #busy").endsWith(":second"));
+        } finally {
+            release.countDown();
+            busyServer.stopServer();
+        }
+    }
+
+    @Test
+    void holdsManyIdleConnectionsWithFewThreads() throws Exception {
+        assumeTrue(availableSocketBudget() >= IDLE_CONNECTIONS,
+                "needs file descriptors for " + IDLE_CONNECTIONS + " connections, have " + availableSocketBudget());
+        int connections = IDLE_CONNECTIONS;
+        int threadsBefore = Thread.activeCount();
+        long heapBefore = usedHeap();
+
+        List<SocketChannel> channels = new ArrayList<>(connections);
+        try {
+            InetSocketAddress address = new InetSocketAddress("localhost", server.getLocalPort());
+            for (int i = 0; i < connections; i++) {
+                channels.add(SocketChannel.open(address));
+            }
+
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (server.getClientCount() < connections && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(connections, server.getClientCount());
+
+            int threadsAfter = Thread.activeCount();
+            long heapPerConnection = (usedHeap() - heapBefore) / connections;
+            assertTrue(threadsAfter - threadsBefore < 16,
+                    "transport must not spawn a thread per connection, " + (threadsAfter - threadsBefore) + " new threads");
+            assertTrue(heapPerConnection < 16 * 1024,
+                    "idle connections must stay cheap on the heap, ~" + heapPerConnection + " bytes each");
+        } finally {
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Both ends of every connection live in this JVM, so each one costs two descriptors.
+    private static int availableSocketBudget() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.UnixOperatingSystemMXBean os) {
+            long free = os.getMaxFileDescriptorCount() - os.getOpenFileDescriptorCount() - 256;
+            return (int) Math.max(0, free / 2);
+        }
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.irc.Search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+    private SearchIndex index;
+
+    @AfterEach
+    void tearDown() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void tokenizesIntoDistinctLowercaseTerms() {
+        assertEquals(List.of("hello", "world", "42"), SearchIndex.terms("Hello, WORLD! hello 42 a"));
+    }
+
+    @Test
+    void matchesAllTermsWithChannelNickAndTimeFilters() {
+        index = new SearchIndex(Long.MAX_VALUE, 8, 16);
+        index.index("#java", "Alice", 1_000, "the build is broken again");
+        index.index("#java", "bob", 2_000, "who broke the build");
+        index.index("#rust", "alice", 3_000, "the borrow checker broke my build");
+        index.index("#java", "alice", 4_000, "build fixed");
+
+        assertEquals(List.of("the borrow checker broke my build", "who broke the build"),
+                texts(index.search(query(null, null, "BUILD broke"))));
+        assertEquals(List.of("build fixed", "the build is broken again"),
+                texts(index.search(query("#java", "ALICE", "build"))));
+        assertEquals(List.of("who broke the build"),
+                texts(index.search(new SearchIndex.Query(Set.of("#java"), null, 1_500, 3_500, "build", 10))));
+        assertTrue(index.search(query(null, null, "nothing")).isEmpty());
+        assertEquals("Alice", index.search(query(null, null, "again")).get(0).nick());
+    }
+
+    @Test
+    void mergesFrozenSegmentsWithoutLosingPostings() throws Exception {
+        index = new SearchIndex(Long.MAX_VALUE, 16, 16);
+        for (int i = 0; i < 16 * 16 + 5; i++) {
+            index.index("#load", "user" + (i % 7), i, "message number " + i + (i % 3 == 0 ? " fizz" : ""));
+        }
+        index.awaitIdle();
+
+        SearchIndex.Stats stats = index.getStats();
+        assertTrue(stats.merges() > 0);
+        assertTrue(stats.segments() < 16);
+        List<SearchIndex.Hit> fizz = index.search(query("#load", null, "fizz", 1_000));
+        assertEquals((16 * 16 + 5 + 2) / 3, fizz.size());
+        assertEquals(258, fizz.get(0).timestamp());
+        assertEquals(0, fizz.get(fizz.size() - 1).timestamp());
+        assertEquals(List.of("message number 100"), texts(index.search(query(null, "USER2", "number 100"))));
+    }
+
+    @Test
+    void dropsOldestSegmentsOverTheMemoryLimit() {
+        // The limit also covers the builder, which for these 16-message segments is about 4 KiB on its own.
+        index = new SearchIndex(8 * 1024, 16, 16);
+        for (int i = 0; i < 1_000; i++) {
+            index.index("#big", "user", i, "filler text for the memory limit id" + i);
+        }
+
+        assertTrue(index.getStats().bytes() <= 8 * 1024);
+        assertTrue(index.search(query(null, null, "filler id0")).isEmpty());
+        assertEquals(1, index.search(query(null, null, "filler id999")).size());
+    }
+
+    @Test
+    void internedNamesCountTowardTheLimitAndGoWithTheirSegments() {
+        index = new SearchIndex(16 * 1024, 16, 16);
+        for (int i = 0; i < 2_000; i++) {
+            index.index("#names" + i, "nick" + i, i, "unique sender " + i);
+        }
+
+        assertTrue(index.getStats().bytes() <= 16 * 1024);
+        assertTrue(index.internedCount() < 400);
+        assertEquals(1, index.search(query("#names1999", "nick1999", "sender")).size());
+    }
+
+    @Test
+    void queuedMessagesBecomeSearchable() throws Exception {
+        index = new SearchIndex(Long.MAX_VALUE, 8, 16);
+        assertTrue(index.add("#queue", "carol", 1, "queued words"));
+        index.awaitIdle();
+        assertEquals(1, index.search(query("#queue", "carol", "queued")).size());
+    }
+
+    private static SearchIndex.Query query(String channel, String nick, String text) {
+        return query(channel, nick, text, 10);
+    }
+
+    private static SearchIndex.Query query(String channel, String nick, String text, int limit) {
+        return new SearchIndex.Query(channel == null ? null : Set.of(channel), nick, Long.MIN_VALUE, Long.MAX_VALUE, text, limit);
+    }
+
+    private static List<String> texts(List<SearchIndex.Hit> hits) {
+        return hits.stream().map(SearchIndex.Hit::text).toList();
+    }
+}
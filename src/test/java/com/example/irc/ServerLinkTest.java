@@ -0,0 +1,219 @@
+package com.example.irc;
+
+import com.example.irc.Link.ServerLink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerLinkTest {
+    private final List<IRCServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(IRCServer::stopServer);
+    }
+
+    @Test
+    void channelAndPrivateMessagesCrossTheLink() throws Exception {
+        IRCServer a = startNode("a.test");
+        IRCServer b = startNode("b.test", a);
+        awaitLinks(a, 1);
+        awaitLinks(b, 1);
+
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(a.getLocalPort()).register("linkalice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(b.getLocalPort()).register("linkbob")) {
+            alice.send("JOIN #linked");
+            alice.readUntilContains(" 366 ");
+            bob.send("JOIN #linked");
+            alice.readUntilContains(":linkbob!linkbob@b.test JOIN #linked");
+            String names = bob.readUntilContains(" 353 ");
+            assertTrue(names.contains("linkalice") && names.contains("linkbob"), names);
+
+            bob.send("PRIVMSG #linked :hello from b");
+            alice.readUntilContains(":linkbob PRIVMSG #linked :hello from b");
+            alice.send("PRIVMSG linkbob :psst");
+            bob.readUntilContains(":linkalice PRIVMSG linkbob :psst");
+
+            alice.send("WHOIS linkbob");
+            assertTrue(alice.readUntilContains(" 312 ").contains("linkbob b.test"));
+        }
+    }
+
+    @Test
+    void relaysChannelTrafficOnlyTowardsServersWithMembers() throws Exception {
+        IRCServer hub = startNode("hub.test");
+        IRCServer busy = startNode("busy.test", hub);
+        IRCServer quiet = startNode("quiet.test", hub);
+        awaitLinks(hub, 2);
+        awaitLinks(quiet, 1);
+
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(hub.getLocalPort()).register("relayalice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(busy.getLocalPort()).register("relaybob");
+             IrcTestSupport.TestClient carol = new IrcTestSupport.TestClient(quiet.getLocalPort()).register("relaycarol")) {
+            alice.send("JOIN #busy");
+            alice.readUntilContains(" 366 ");
+            bob.send("JOIN #busy");
+            alice.readUntilContains("relaybob!relaybob@busy.test JOIN #busy");
+
+            long towardsQuiet = linesOut(hub, "quiet.test");
+            for (int i = 0; i < 10; i++) {
+                alice.send("PRIVMSG #busy :message " + i);
+            }
+            bob.readUntilContains(":relayalice PRIVMSG #busy :message 9");
+            assertEquals(towardsQuiet, linesOut(hub, "quiet.test"));
+
+            // Two hops, quiet -> hub -> busy, once quiet has a member too.
+            carol.send("JOIN #busy");
+            String names = carol.readUntilContains(" 353 ");
+            assertTrue(names.contains("relayalice") && names.contains("relaybob"), names);
+            bob.readUntilContains("relaycarol!relaycarol@quiet.test JOIN #busy");
+            carol.send("PRIVMSG #busy :from the edge");
+            bob.readUntilContains(":relaycarol PRIVMSG #busy :from the edge");
+        }
+    }
+
+    @Test
+    void netsplitQuitsRemoteUsersAndRelinkRestoresThem() throws Exception {
+        ServerConfig config = linkConfig("split-a.test");
+        config.setOperators(List.of("splitalice", "splitabsent"));
+        IRCServer a = start(config);
+        IRCServer b = startNode("split-b.test", a);
+        awaitLinks(a, 1);
+
+        try (IrcTestSupport.TestClient alice = new IrcTestSupport.TestClient(a.getLocalPort()).register("splitalice");
+             IrcTestSupport.TestClient bob = new IrcTestSupport.TestClient(b.getLocalPort()).register("splitbob")) {
+            alice.send("JOIN #split");
+            alice.readUntilContains(" 366 ");
+            bob.send("JOIN #split");
+            alice.readUntilContains("splitbob!splitbob@split-b.test JOIN #split");
+
+            try (IrcTestSupport.TestClient mallory = new IrcTestSupport.TestClient(a.getLocalPort()).register("splitmallory")) {
+                mallory.send("NICK splitabsent");
+                mallory.readUntilContains(" NICK splitabsent");
+                mallory.send("SQUIT split-b.test");
+                assertTrue(mallory.readUntilContains(" 481 ").contains("not an IRC operator"));
+            }
+
+            alice.send("SQUIT split-b.test");
+            alice.readUntilContains(":splitbob QUIT :split-a.test split-b.test");
+            // split-b reconnects on its own and bursts its users again.
+            alice.readUntilContains("splitbob!splitbob@split-b.test JOIN #split");
+            bob.readUntilContains("splitalice!splitalice@split-a.test JOIN #split");
+            bob.send("PRIVMSG #split :back");
+            alice.readUntilContains(":splitbob PRIVMSG #split :back");
+        }
+    }
+
+    @Test
+    void nickCollisionKeepsTheOlderNick() throws Exception {
+        IRCServer a = startNode("older.test");
+        ServerConfig config = linkConfig("newer.test");
+        config.setOperators(List.of("collideop"));
+        IRCServer b = start(config);
+
+        try (IrcTestSupport.TestClient first = new IrcTestSupport.TestClient(a.getLocalPort()).register("collider");
+             IrcTestSupport.TestClient op = new IrcTestSupport.TestClient(b.getLocalPort()).register("collideop")) {
+            Thread.sleep(5);
+            try (IrcTestSupport.TestClient second = new IrcTestSupport.TestClient(b.getLocalPort())) {
+                second.send("AUTH collider secret");
+                second.readUntilContains("Authentication successful");
+
+                op.send("CONNECT localhost:" + a.getLinkPort());
+                assertTrue(second.readUntilContains(" KILL ").contains("Nick collision"));
+                assertClosed(second);
+            }
+
+            awaitLinks(a, 1);
+            awaitLinks(b, 1);
+            op.send("WHOIS collider");
+            assertTrue(op.readUntilContains(" 312 ").contains("collider older.test"));
+            first.send("PRIVMSG collideop :still here");
+            op.readUntilContains(":collider PRIVMSG collideop :still here");
+            assertTrue(a.getLinkStats().collisions() + b.getLinkStats().collisions() >= 2);
+        }
+    }
+
+    @Test
+    void malformedPeerLinesAreIgnoredWithoutSplitting() throws Exception {
+        IRCServer server = startNode("strict.test");
+        try (IrcTestSupport.TestClient peer = new IrcTestSupport.TestClient(server.getLinkPort())) {
+            peer.send("SERVER rogue.test link-secret");
+            peer.readUntilContains("EOB");
+            peer.send("UID 1.rogue.test");
+            peer.send("UID 1.rogue.test roguenick soon");
+            peer.send("SJOIN #rogue");
+            peer.send("KILL");
+            peer.send("UID 1.rogue.test roguenick 1");
+            peer.send("EOB");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (server.getLinkStats().remoteUsers() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, server.getLinkStats().remoteUsers());
+            assertEquals(1, server.getServerLinks().size());
+        }
+    }
+
+    @Test
+    void refusesToLinkWithoutAPassword() {
+        ServerConfig config = linkConfig("open.test");
+        config.setLinkPassword(" ");
+        assertThrows(IllegalStateException.class, () -> start(config));
+    }
+
+    private ServerConfig linkConfig(String name) {
+        ServerConfig config = IrcTestSupport.config(ServerConfig.Transport.NIO);
+        config.setServerName(name);
+        config.setLinkEnabled(true);
+        config.setLinkPort(0);
+        config.setLinkPassword("link-secret");
+        config.setLinkReconnectMillis(200);
+        return config;
+    }
+
+    private IRCServer startNode(String name, IRCServer... peers) {
+        ServerConfig config = linkConfig(name);
+        for (IRCServer peer : peers) {
+            config.getLinkPeers().add("localhost:" + peer.getLinkPort());
+        }
+        return start(config);
+    }
+
+    private IRCServer start(ServerConfig config) {
+        IRCServer server = IrcTestSupport.startServer(config);
+        servers.add(server);
+        return server;
+    }
+
+    private static void awaitLinks(IRCServer server, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            List<ServerLink.Info> links = server.getServerLinks();
+            if (links.size() == expected && links.stream().allMatch(ServerLink.Info::synced)) return;
+            Thread.sleep(10);
+        }
+        assertEquals(expected, server.getServerLinks().size());
+    }
+
+    private static void assertClosed(IrcTestSupport.TestClient client) {
+        try {
+            while (client.readLine() != null) {
+            }
+        } catch (IOException reset) {
+            // Closed with unread input on our side is fine too.
+        }
+    }
+
+    private static long linesOut(IRCServer server, String peer) {
+        return server.getServerLinks().stream().filter(link -> link.peer().equals(peer))
+                .mapToLong(ServerLink.Info::linesOut).sum();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowConsumerTest {
+    private static final int MESSAGES = 40_000;
+    private static final int BATCH = 100;
+
+    private IRCServer server;
+
+    @AfterEach
+    void tearDown() {
+        server.stopServer();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ServerConfig.Transport.class)
+    void evictsSlowConsumerWithoutStallingBroadcasts(ServerConfig.Transport transport) throws Exception {
+        ServerConfig config = IrcTestSupport.config(transport);
+        config.setSendQueueMaxBytes(128 * 1024);
+        config.setSendQueueMaxMessages(1_000);
+        // The sender has to outrun the idle reader, which flood control would otherwise prevent.
+        config.setFloodControlEnabled(false);
+        server = IrcTestSupport.startServer(config);
+
+        String suffix = transport.name().toLowerCase();
+        String channel = "#flood-" + suffix;
+        try (IrcTestSupport.TestClient slow = new IrcTestSupport.TestClient(server.getLocalPort()).register("slow-" + suffix);
+             IrcTestSupport.TestClient fast = new IrcTestSupport.TestClient(server.getLocalPort()).register("fast-" + suffix)) {
+            slow.send("JOIN " + channel);
+            slow.readUntilContains(" 366 ");
+            fast.send("JOIN " + channel);
+            fast.readUntilContains(" 366 ");
+
+            // The sender reads its own echoes batch by batch, so only the idle member can fall behind.
+            String payload = "x".repeat(200);
+            String quit = ":slow-" + suffix + " QUIT :SendQ exceeded";
+            AtomicBoolean quitSeen = new AtomicBoolean();
+            long start = System.nanoTime();
+            for (int batch = 0; batch < MESSAGES / BATCH; batch++) {
+                for (int i = 0; i < BATCH; i++) {
+                    fast.send("PRIVMSG " + channel + " :" + payload);
+                }
+                fast.send("PRIVMSG " + channel + " :batch-" + batch);
+                String marker = ":batch-" + batch;
+                fast.readUntil(line -> {
+                    if (line.contains(quit)) {
+                        quitSeen.set(true);
+                    }
+                    return line.contains(marker);
+                });
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30);
+            if (!quitSeen.get()) {
+                fast.readUntilContains(quit);
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (server.getClientCount() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, server.getClientCount());
+        }
+    }
+}
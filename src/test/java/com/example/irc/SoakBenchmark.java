@@ -0,0 +1,31 @@
+package com.example.irc;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link LoadGenerator} with the profile from {@code irc.load.*} system properties and prints its report.
+ * Run with {@code mvn test -Pbenchmark -Dtest=SoakBenchmark}, for example
+ * {@code -Dirc.load.clients=2000 -Dirc.load.phases=ramp:30:0.2,soak:1800:0.5:0.001} for a half-hour soak.
+ */
+@Tag("benchmark")
+class SoakBenchmark {
+
+    @Test
+    void soak() throws Exception {
+        LoadGenerator.Profile profile = LoadGenerator.Profile.fromSystemProperties();
+        LoadGenerator generator = new LoadGenerator(profile);
+        List<LoadGenerator.PhaseReport> reports = generator.run();
+        System.out.println(LoadGenerator.format(profile, reports, generator.getErrors()));
+
+        assertEquals(0, generator.getErrors());
+        for (LoadGenerator.PhaseReport report : reports) {
+            assertTrue(report.sent() == 0 || report.delivered() > 0, report.phase().name() + " delivered nothing");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthExecutorTest {
+    private final AuthExecutor executor = new AuthExecutor(1, 2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void rejectsWhenQueueIsFullAndSeparatesQueueWaitFromServiceTime() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            await(release);
+            return "first";
+        });
+        CompletableFuture<String> queued1 = executor.submit(() -> sleep(20, "second"));
+        CompletableFuture<String> queued2 = executor.submit(() -> sleep(20, "third"));
+
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "overflow"));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued1.get(5, TimeUnit.SECONDS));
+        assertEquals("third", queued2.get(5, TimeUnit.SECONDS));
+
+        AuthExecutor.Stats stats = executor.getStats();
+        assertEquals(3, stats.submitted());
+        assertEquals(1, stats.rejected());
+        assertEquals(3, stats.completed());
+        // The last job queued behind the blocked one and the one after it; the blocked one held the only worker.
+        assertTrue(stats.maxQueueWaitMicros() >= 100_000);
+        assertTrue(stats.maxServiceMicros() >= 20_000);
+    }
+
+    @Test
+    void continuationsAreRejectedRatherThanRunOnTheCallerWhenFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            await(release);
+            return "blocker";
+        });
+        executor.execute(() -> {
+        });
+        executor.execute(() -> {
+        });
+        Thread caller = Thread.currentThread();
+        boolean[] ranOnCaller = new boolean[1];
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> ranOnCaller[0] = Thread.currentThread() == caller));
+        release.countDown();
+        assertFalse(ranOnCaller[0]);
+        assertEquals(1, executor.getStats().rejected());
+    }
+
+    @Test
+    void failedJobsCompleteExceptionally() {
+        CompletableFuture<String> result = executor.submit(() -> {
+            throw new IllegalStateException("database down");
+        });
+        assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String sleep(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NickRegistryTest {
+
+    @Test
+    void foldsWithRfc1459CaseMapping() {
+        assertEquals("alice{}|~", NickRegistry.fold("ALICE[]\\^"));
+        assertEquals("bob_-`", NickRegistry.fold("Bob_-`"));
+        String folded = "already{folded}";
+        assertSame(folded, NickRegistry.fold(folded));
+    }
+
+    @Test
+    void claimsAreCaseInsensitiveAndOwnerScoped() {
+        NickRegistry<Object> registry = new NickRegistry<>();
+        Object alice = new Object();
+        Object mallory = new Object();
+
+        assertTrue(registry.claim(NickRegistry.fold("Alice[1]"), alice));
+        assertTrue(registry.claim(NickRegistry.fold("alice{1}"), alice));
+        assertFalse(registry.claim(NickRegistry.fold("ALICE{1}"), mallory));
+        assertSame(alice, registry.find("aLiCe[1]"));
+
+        registry.release(NickRegistry.fold("alice[1]"), mallory);
+        assertSame(alice, registry.find("alice[1]"));
+        registry.release(NickRegistry.fold("alice[1]"), alice);
+        assertNull(registry.find("alice[1]"));
+        assertEquals(0, registry.size());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Registrations per second through the old exists-then-save path against the write-behind batches,
+ * with password hashing left out so only the database path is measured. Uses the embedded H2 database.
+ * Run with {@code mvn test -Pbenchmark -Dtest=RegistrationThroughputBenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RegistrationThroughputBenchmark {
+    private static final int REGISTRATIONS = Integer.getInteger("irc.bench.registrations", 20_000);
+    private static final int CALLERS = Integer.getInteger("irc.bench.callers", 16);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Test
+    void compareRegistrationPaths() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-14s %14s %10s %12s", "path", "registrations", "callers", "per second"));
+        report.add(run("exists+save", this::registerDirectly));
+        report.add(run("write-behind", this::registerBehind));
+        report.forEach(System.out::println);
+    }
+
+    private interface Path {
+        void register(ExecutorService callers, String prefix) throws Exception;
+    }
+
+    private String run(String name, Path path) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            path.register(callers, "warm-" + name + "-");
+            repository.deleteAll();
+            long started = System.nanoTime();
+            path.register(callers, name + "-");
+            long elapsed = System.nanoTime() - started;
+            assertEquals(REGISTRATIONS, repository.count());
+            repository.deleteAll();
+            return String.format("%-14s %14d %10d %12d",
+                    name, REGISTRATIONS, CALLERS, REGISTRATIONS * 1_000_000_000L / elapsed);
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    private void registerDirectly(ExecutorService callers, String prefix) throws Exception {
+        List<Future<?>> results = new ArrayList<>(REGISTRATIONS);
+        for (int i = 0; i < REGISTRATIONS; i++) {
+            User user = user(prefix + i);
+            results.add(callers.submit(() -> {
+                if (!repository.existsByUsername(user.getUsername())) {
+                    repository.save(user);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+    }
+
+    private void registerBehind(ExecutorService callers, String prefix) throws Exception {
+        UserWriteBehind writer = new UserWriteBehind(new JdbcTemplate(dataSource), 100, 500);
+        try {
+            List<Future<CompletableFuture<User>>> submitted = new ArrayList<>(REGISTRATIONS);
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                User user = user(prefix + i);
+                submitted.add(callers.submit(() -> writer.register(user)));
+            }
+            for (Future<CompletableFuture<User>> result : submitted) {
+                result.get().get();
+            }
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    private static User user(String name) {
+        return User.builder().username(name).password("hash").email(name + "@example.com").build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResumeTokensTest {
+
+    @Test
+    void tokensRedeemOnceForTheirUser() {
+        ResumeTokens tokens = new ResumeTokens(60_000, 100);
+        String token = tokens.issue("alice");
+
+        assertEquals("alice", tokens.redeem(token));
+        assertNull(tokens.redeem(token));
+    }
+
+    @Test
+    void rejectsTamperedForeignAndExpiredTokens() throws InterruptedException {
+        ResumeTokens tokens = new ResumeTokens(60_000, 100);
+        String token = tokens.issue("alice");
+        String forgedUser = token.replaceFirst("^[^.]+", "Ym9i");
+
+        assertNull(tokens.redeem(forgedUser));
+        assertNull(tokens.redeem(token + "x"));
+        assertNull(tokens.redeem("not-a-token"));
+        assertNull(new ResumeTokens(60_000, 100).redeem(token));
+
+        ResumeTokens shortLived = new ResumeTokens(20, 100);
+        String expiring = shortLived.issue("alice");
+        Thread.sleep(50);
+        assertNull(shortLived.redeem(expiring));
+    }
+
+    @Test
+    void boundsOutstandingTokensByEvictingOldest() {
+        ResumeTokens tokens = new ResumeTokens(60_000, 10);
+        String oldest = tokens.issue("user0");
+        for (int i = 1; i < 50; i++) {
+            tokens.issue("user" + i);
+        }
+
+        assertTrue(tokens.getOutstandingCount() <= 10);
+        assertNull(tokens.redeem(oldest));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Optional<User> load(String username) {
+        loads.incrementAndGet();
+        return username.startsWith("known")
+                ? Optional.of(User.builder().username(username).password("x").email(username + "@example.com").build())
+                : Optional.empty();
+    }
+
+    @Test
+    void cachesHitsAndMissesSeparately() {
+        UserCache cache = new UserCache(100, 60_000, 60_000);
+
+        assertTrue(cache.get("known-alice", this::load).isPresent());
+        assertTrue(cache.get("known-alice", this::load).isPresent());
+        assertFalse(cache.get("ghost", this::load).isPresent());
+        assertFalse(cache.get("ghost", this::load).isPresent());
+
+        assertEquals(2, loads.get());
+        assertEquals(new UserCache.Stats(1, 1, 2, 2), cache.getStats());
+    }
+
+    @Test
+    void foldedKeyStillRequiresExactUsername() {
+        UserCache cache = new UserCache(100, 60_000, 60_000);
+        cache.get("known-Alice", this::load);
+
+        assertEquals("known-alice", cache.get("known-alice", this::load).orElseThrow().getUsername());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndExpiredEntries() throws InterruptedException {
+        UserCache cache = new UserCache(2, 60_000, 60_000);
+        cache.get("known-1", this::load);
+        cache.get("known-2", this::load);
+        cache.get("known-1", this::load);
+        cache.get("known-3", this::load);
+        cache.get("known-1", this::load);
+        assertEquals(3, loads.get());
+        cache.get("known-2", this::load);
+        assertEquals(4, loads.get());
+
+        UserCache shortLived = new UserCache(10, 20, 20);
+        shortLived.get("known-4", this::load);
+        Thread.sleep(50);
+        shortLived.get("known-4", this::load);
+        assertEquals(6, loads.get());
+    }
+
+    @Test
+    void registrationReplacesNegativeEntry() {
+        UserCache cache = new UserCache(100, 60_000, 60_000);
+        assertFalse(cache.get("newcomer", this::load).isPresent());
+
+        cache.put(User.builder().username("newcomer").password("x").email("n@example.com").build());
+        assertTrue(cache.get("newcomer", this::load).isPresent());
+        cache.invalidate("newcomer");
+        assertFalse(cache.get("newcomer", this::load).isPresent());
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Runs against an embedded H2 database in place of Postgres.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class UserServiceCacheTest {
+    private static final int USERS = 20;
+    private static final int ROUNDS = 25;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Test
+    void repeatedLoginsReachTheRepositoryOncePerUser() {
+        UserRepository counting = mock(UserRepository.class, delegatesTo(repository));
+        UserService cached = new UserService(counting, new BCryptPasswordEncoder(4));
+
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(cached.registerUser(user("cached" + i)).isPresent());
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < USERS; i++) {
+                assertTrue(cached.authenticateUser("cached" + i, "secret").isPresent());
+            }
+            assertFalse(cached.authenticateUser("nobody", "secret").isPresent());
+        }
+
+        // Registration relies on the unique constraint and warms the cache, so only the unknown name misses.
+        verify(counting, times(1)).findByUsername(anyString());
+        verify(counting, times(USERS)).save(any(User.class));
+        UserCache.Stats stats = cached.getCacheStats();
+        assertEquals(USERS * ROUNDS, stats.hits());
+        assertEquals(ROUNDS - 1, stats.negativeHits());
+    }
+
+    @Test
+    void withoutCacheEveryLoginIsARoundTrip() {
+        UserRepository counting = mock(UserRepository.class, delegatesTo(repository));
+        UserService uncached = new UserService(counting, new BCryptPasswordEncoder(4), new UserCache(0, 0, 0));
+
+        uncached.registerUser(user("uncached"));
+        for (int round = 0; round < ROUNDS; round++) {
+            assertTrue(uncached.authenticateUser("uncached", "secret").isPresent());
+        }
+
+        verify(counting, times(ROUNDS)).findByUsername(anyString());
+    }
+
+    @Test
+    void duplicateRegistrationIsRejectedByTheConstraint() {
+        UserService first = new UserService(repository, new BCryptPasswordEncoder(4));
+        UserService second = new UserService(repository, new BCryptPasswordEncoder(4));
+
+        assertTrue(first.registerUser(user("taken")).isPresent());
+        repository.flush();
+        assertFalse(second.registerUser(user("taken")).isPresent());
+    }
+
+    @Test
+    void renameInvalidatesBothNames() {
+        UserService service = new UserService(repository, new BCryptPasswordEncoder(4));
+        service.registerUser(user("before"));
+        assertFalse(service.findUser("after").isPresent());
+
+        service.updateUser("before", "after");
+
+        assertTrue(service.findUser("after").isPresent());
+        assertFalse(service.findUser("before").isPresent());
+    }
+
+    private static User user(String name) {
+        return User.builder().username(name).password("secret").email(name + "@example.com").build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.irc.User;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The writer commits on its own connections, so the test must not hold a rolled-back transaction open.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserWriteBehindTest {
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository repository;
+
+    private JdbcTemplate jdbc;
+    private UserWriteBehind writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        // A long interval keeps flushing under the test's control.
+        writer = new UserWriteBehind(jdbc, 60_000, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+        repository.deleteAll();
+    }
+
+    @Test
+    void batchedRegistrationsGetIds() throws Exception {
+        CompletableFuture<User> alice = writer.register(user("wb-alice"));
+        CompletableFuture<User> bob = writer.register(user("wb-bob"));
+        assertTrue(!alice.isDone() && !bob.isDone());
+
+        writer.flush();
+
+        assertNotNull(alice.get(1, TimeUnit.SECONDS).getId());
+        assertNotNull(bob.get(1, TimeUnit.SECONDS).getId());
+        assertTrue(repository.existsByUsername("wb-alice"));
+        assertTrue(repository.existsByUsername("wb-bob"));
+    }
+
+    @Test
+    void duplicateInBatchFailsAloneAndOthersCommit() throws Exception {
+        writer.register(user("wb-taken"));
+        writer.flush();
+
+        CompletableFuture<User> before = writer.register(user("wb-first"));
+        CompletableFuture<User> duplicate = writer.register(user("wb-taken"));
+        CompletableFuture<User> sameBatch = writer.register(user("wb-first"));
+        CompletableFuture<User> after = writer.register(user("wb-last"));
+        writer.flush();
+
+        assertNotNull(before.get(1, TimeUnit.SECONDS));
+        assertNull(duplicate.get(1, TimeUnit.SECONDS));
+        assertNull(sameBatch.get(1, TimeUnit.SECONDS));
+        assertNotNull(after.get(1, TimeUnit.SECONDS));
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    void presenceUpdatesCoalesceIntoOneWrite() throws Exception {
+        writer.register(user("wb-carol"));
+        writer.flush();
+
+        LocalDateTime seen = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        writer.updatePresence("wb-carol", true, seen.minusMinutes(1));
+        writer.updatePresence("wb-carol", false, seen);
+        writer.flush();
+
+        User stored = repository.findByUsername("wb-carol").orElseThrow();
+        assertEquals(false, stored.isOnline());
+        assertEquals(seen, stored.getLastSeen());
+    }
+
+    @Test
+    void fullBatchFlushesWithoutWaitingForTheInterval() throws Exception {
+        List<CompletableFuture<User>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(writer.register(user("wb-size" + i)));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(4, repository.count());
+    }
+
+    private static User user(String name) {
+        return User.builder().username(name).password("hash").email(name + "@example.com").build();
+    }
+}